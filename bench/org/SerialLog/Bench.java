@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Minimal benchmark harness in the spirit of JMH: warmup iterations,
+ * measured iterations of fixed duration, throughput with its spread,
+ * per-operation latency percentiles and bytes allocated per operation.
+ *
+ * A benchmark does its work in batches; each call to {@link #run()}
+ * performs some number of operations and returns that number. Latency
+ * is the batch time divided by its operations, so percentiles describe
+ * batches rather than single operations.
+ */
+abstract class Bench {
+
+    private static final int MAX_SAMPLES = 1 << 20;
+
+    /** Name shown in the report. */
+    abstract String name();
+
+    /** Prepare state; called once before warmup. */
+    void setUp() throws Exception {
+    }
+
+    /** Perform a batch of operations and return how many. */
+    abstract int run() throws Exception;
+
+    /** Release state; called once after measurement. */
+    void tearDown() throws Exception {
+    }
+
+    static final class Result {
+        String name;
+        double opsPerSecond;
+        double opsPerSecondError;
+        double bytesPerOp;
+        long p50Nanos;
+        long p99Nanos;
+        long p999Nanos;
+
+        @Override
+        public String toString() {
+            return String.format("%-22s %14.0f +- %5.1f%% ops/s %10.2f B/op   p50 %8d ns  p99 %8d ns  p99.9 %8d ns",
+                    name, opsPerSecond, opsPerSecondError * 100 / Math.max(opsPerSecond, 1),
+                    bytesPerOp, p50Nanos, p99Nanos, p999Nanos);
+        }
+    }
+
+    Result measure(int warmups, int iterations, long iterationMillis) throws Exception {
+        setUp();
+        try {
+            for (int i = 0; i < warmups; i++) {
+                iterate(iterationMillis, null, null);
+            }
+            long[] samples = new long[MAX_SAMPLES];
+            int[] sampleCount = new int[1];
+            double[] rates = new double[iterations];
+            long allocated = 0;
+            long ops = 0;
+            for (int i = 0; i < iterations; i++) {
+                long allocatedBefore = allocatedBytes();
+                long start = System.nanoTime();
+                long done = iterate(iterationMillis, samples, sampleCount);
+                long elapsed = System.nanoTime() - start;
+                allocated += allocatedBytes() - allocatedBefore;
+                ops += done;
+                rates[i] = done * 1e9 / elapsed;
+            }
+
+            Result result = new Result();
+            result.name = name();
+            result.opsPerSecond = mean(rates);
+            result.opsPerSecondError = stddev(rates, result.opsPerSecond);
+            result.bytesPerOp = ops > 0 ? (double) allocated / ops : 0;
+            long[] sorted = Arrays.copyOf(samples, sampleCount[0]);
+            Arrays.sort(sorted);
+            result.p50Nanos = percentile(sorted, 0.5);
+            result.p99Nanos = percentile(sorted, 0.99);
+            result.p999Nanos = percentile(sorted, 0.999);
+            return result;
+        } finally {
+            tearDown();
+        }
+    }
+
+    /** Run batches for the given time, recording batch latencies if asked. */
+    private long iterate(long millis, long[] samples, int[] sampleCount) throws Exception {
+        long deadline = System.nanoTime() + millis * 1000000L;
+        long ops = 0;
+        long now = System.nanoTime();
+        while (now < deadline) {
+            int batch = run();
+            long end = System.nanoTime();
+            if (samples != null && batch > 0 && sampleCount[0] < MAX_SAMPLES) {
+                samples[sampleCount[0]++] = (end - now) / batch;
+            }
+            ops += batch;
+            now = end;
+        }
+        return ops;
+    }
+
+    /** Bytes allocated so far by this thread, where the JVM reports it. */
+    static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    private static double mean(double[] values) {
+        double sum = 0;
+        for (double value : values) sum += value;
+        return sum / values.length;
+    }
+
+    private static double stddev(double[] values, double mean) {
+        if (values.length < 2) return 0;
+        double sum = 0;
+        for (double value : values) sum += (value - mean) * (value - mean);
+        return Math.sqrt(sum / (values.length - 1));
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1);
+        return sorted[Math.max(index, 0)];
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.util.Random;
+
+/**
+ * Realistic Arduino output for benchmarks: mostly short CSV sensor
+ * lines, with an occasional long debug dump.
+ */
+final class BenchData {
+
+    private BenchData() {
+    }
+
+    static String line(Random random, int sequence) {
+        if (random.nextInt(50) == 0) {
+            StringBuilder dump = new StringBuilder("DBG regs:");
+            for (int i = 0; i < 32; i++) {
+                dump.append(' ').append(Integer.toHexString(random.nextInt(256)));
+            }
+            return dump.append(" free=").append(random.nextInt(2048)).toString();
+        }
+        return sequence + "," + (random.nextInt(4000) / 100.0) + ","
+                + (random.nextInt(1000) / 1000.0) + "," + random.nextInt(1024);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Exports capture segments to CSV or JSON Lines in a temporary file and
+ * reports MB/s and the heap in use, which should stay flat however large
+ * the capture is; run with a small -Xmx to check. With no segments given
+ * a synthetic capture of Arduino style lines is generated first.
+ *
+ * Usage: ExportBench [csv|jsonl] [lines] [segment.cap ...]
+ */
+public class ExportBench {
+
+    private static final int SYNTHETIC_LINES = 2000000;
+
+    public static void main(String[] args) throws Exception {
+        int format = args.length > 0 && args[0].equals("jsonl")
+                ? SessionExporter.FORMAT_JSON_LINES : SessionExporter.FORMAT_CSV;
+        int lines = args.length > 1 ? Integer.parseInt(args[1]) : SYNTHETIC_LINES;
+        File[] segments;
+        if (args.length > 2) {
+            segments = new File[args.length - 2];
+            for (int i = 2; i < args.length; i++) {
+                segments[i - 2] = new File(args[i]);
+            }
+        } else {
+            File file = File.createTempFile("exportbench", CaptureFormat.SEGMENT_SUFFIX);
+            file.deleteOnExit();
+            ReplayBench.writeSynthetic(file, lines);
+            segments = new File[] {file};
+        }
+
+        File out = File.createTempFile("exportbench", format == SessionExporter.FORMAT_CSV
+                ? ".csv" : ".jsonl");
+        out.deleteOnExit();
+        final Runtime runtime = Runtime.getRuntime();
+        final long[] maxHeap = new long[1];
+        SessionExporter exporter = new SessionExporter(segments, format,
+                Charset.forName("UTF-8"));
+        // The synthetic sensor lines: sequence, two decimals and a reading
+        exporter.setColumns(ColumnSchema.parse(",", "lddl"));
+        exporter.setListener(new SessionExporter.Listener() {
+            public void onProgress(long bytesRead, long bytesTotal) {
+                maxHeap[0] = Math.max(maxHeap[0], runtime.totalMemory() - runtime.freeMemory());
+            }
+        });
+        OutputStream stream = new FileOutputStream(out);
+        try {
+            exporter.export(stream);
+        } finally {
+            stream.close();
+        }
+        System.out.println(exporter);
+        System.out.printf("heap in use at most %.1f MB of %.1f MB max%n",
+                maxHeap[0] / 1e6, runtime.maxMemory() / 1e6);
+        out.delete();
+    }
+}
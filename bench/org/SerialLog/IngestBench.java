@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+
+/**
+ * Runs the receive loop over an in-process loopback transport. An idle
+ * phase checks that the loop sleeps while nothing arrives, then a load
+ * phase streams generated Arduino lines as fast as the pipe takes them
+ * and reports throughput, CPU use and pool allocations.
+ *
+ * Usage: IngestBench [idle seconds] [load lines]
+ */
+public class IngestBench {
+
+    public static void main(String[] args) throws Exception {
+        long idleMillis = (args.length > 0 ? Long.parseLong(args[0]) : 2) * 1000;
+        int lines = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+
+        ChannelTransport[] loopback = ChannelTransport.loopback();
+        ChannelTransport device = loopback[1];
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        final LineBufferPool pool = new LineBufferPool(256, 1024);
+        final long[] received = new long[1];
+        LineFramer framer = new LineFramer(pool, (byte) '\n', new LineFramer.Listener() {
+            public void onLine(LineBuffer line) {
+                received[0]++;
+                line.release();
+            }
+        });
+        final IngestLoop loop = new IngestLoop(loopback[0], framer, 1024,
+                new IngestLoop.Listener() {
+                    public void onDisconnected(IOException e) {
+                        System.out.println("disconnected: " + e);
+                    }
+                }) {
+            @Override
+            protected long threadCpuNanos() {
+                return threads.getCurrentThreadCpuTime();
+            }
+        };
+        Thread reader = new Thread(loop, "ingest");
+        reader.start();
+
+        // Idle: one byte to start the measurement, then silence
+        device.write(new byte[] {'\n'}, 0, 1);
+        Thread.sleep(100);
+        long idleCpuStart = threads.getThreadCpuTime(reader.getId());
+        Thread.sleep(idleMillis);
+        long idleCpu = threads.getThreadCpuTime(reader.getId()) - idleCpuStart;
+        System.out.printf("idle: reader used %.3f ms cpu in %d ms (%.3f%% of a core)%n",
+                idleCpu / 1e6, idleMillis, idleCpu / 1e4 / idleMillis);
+
+        // Load: stream lines in chunks of the size a serial bridge delivers
+        Random random = new Random(42);
+        byte[] chunk = new byte[4096];
+        int position = 0;
+        long start = System.nanoTime();
+        long cpuStart = threads.getThreadCpuTime(reader.getId());
+        long expected = received[0] + lines;
+        for (int i = 0; i < lines; i++) {
+            byte[] line = (BenchData.line(random, i) + "\n").getBytes("US-ASCII");
+            if (position + line.length > chunk.length) {
+                device.write(chunk, 0, position);
+                position = 0;
+            }
+            System.arraycopy(line, 0, chunk, position, line.length);
+            position += line.length;
+        }
+        device.write(chunk, 0, position);
+        while (received[0] < expected) {
+            Thread.sleep(1);
+        }
+        long elapsed = System.nanoTime() - start;
+        long cpu = threads.getThreadCpuTime(reader.getId()) - cpuStart;
+        loop.cancel();
+        reader.join();
+
+        IngestStats stats = loop.getStats();
+        System.out.printf("load: %d lines in %.2f s, %.0f lines/s, reader cpu %.1f%%%n",
+                lines, elapsed / 1e9, lines * 1e9 / elapsed, cpu * 100.0 / elapsed);
+        System.out.println("ingest: " + stats);
+        System.out.println("pool allocations: " + pool.getAllocations());
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Benchmarks for the pure Java stages of the receive path: framing, byte
+ * to String decoding, numeric parsing, log model append,
+ * capture block compression and the hand-off
+ * from the reader thread to a consumer. Each works through the same
+ * generated stream of Arduino style lines, one batch being the whole
+ * stream, and reports per line figures.
+ *
+ * Usage: PipelineBench [name filter] [iterations] [iteration ms]
+ */
+public class PipelineBench {
+
+    private static final int STREAM_LINES = 10000;
+
+    public static void main(String[] args) throws Exception {
+        String filter = args.length > 0 ? args[0] : "";
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        long iterationMillis = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+
+        List<Bench> benches = new ArrayList<Bench>();
+        benches.addAll(suite());
+        for (Bench bench : benches) {
+            if (!bench.name().contains(filter)) continue;
+            System.out.println(bench.measure(3, iterations, iterationMillis));
+        }
+    }
+
+    static List<Bench> suite() {
+        List<Bench> benches = new ArrayList<Bench>();
+        benches.add(new FrameBench("frame", Framing.delimited((byte) '\n')));
+        benches.add(new FrameBench("frame.crlf", Framing.lines()));
+        benches.add(new FrameBench("frame.length", Framing.lengthPrefixed(2, false)));
+        benches.add(new FrameBench("frame.cobs", Framing.cobs()));
+        benches.add(new FrameBench("frame.slip", Framing.slip()));
+        benches.add(new StringDecodeBench());
+        benches.add(new DecodeBench("decode.ascii", Charset.forName("US-ASCII"), false));
+        benches.add(new DecodeBench("decode.utf8", Charset.forName("UTF-8"), false));
+        benches.add(new DecodeBench("decode.utf16", Charset.forName("UTF-16LE"), false));
+        benches.add(new DecodeBench("decode.hex", Charset.forName("UTF-8"), true));
+        benches.add(new ParseBench());
+        benches.add(new LogAppendBench());
+        benches.add(new CompressBench());
+        benches.add(new HandoffBench());
+        return benches;
+    }
+
+    /** The generated stream as the device would send it, delimiters included. */
+    static byte[] stream() throws Exception {
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < STREAM_LINES; i++) {
+            text.append(BenchData.line(random, i)).append('\n');
+        }
+        return text.toString().getBytes("US-ASCII");
+    }
+
+    /** The generated stream split into lines, as the framer delivers them. */
+    static byte[][] lines() throws Exception {
+        Random random = new Random(42);
+        byte[][] lines = new byte[STREAM_LINES][];
+        for (int i = 0; i < STREAM_LINES; i++) {
+            lines[i] = BenchData.line(random, i).getBytes("US-ASCII");
+        }
+        return lines;
+    }
+
+    /** The generated lines framed as a device using the framing would send them. */
+    static byte[] stream(Framing framing) throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (byte[] line : lines()) {
+            switch (framing.getMode()) {
+            case Framing.MODE_LENGTH_PREFIXED:
+                stream.write(line.length);
+                stream.write(line.length >> 8);
+                stream.write(line);
+                break;
+            case Framing.MODE_COBS:
+                // The lines hold no zeros and are shorter than a block
+                stream.write(line.length + 1);
+                stream.write(line);
+                stream.write(0);
+                break;
+            case Framing.MODE_SLIP:
+                // ASCII lines need no escapes
+                stream.write(line);
+                stream.write(0xc0);
+                break;
+            default:
+                stream.write(line);
+                if (framing.getDelimiters().length > 1) stream.write('\r');
+                stream.write('\n');
+                break;
+            }
+        }
+        return stream.toByteArray();
+    }
+
+    /** Split the stream into pooled lines, in reads of 1 KB. */
+    static class FrameBench extends Bench {
+        private final String mName;
+        private final Framing mFraming;
+        private byte[] mStream;
+        private LineFramer mFramer;
+        long mSink;
+
+        FrameBench(String name, Framing framing) {
+            mName = name;
+            mFraming = framing;
+        }
+
+        String name() {
+            return mName;
+        }
+
+        void setUp() throws Exception {
+            mStream = stream(mFraming);
+            mFramer = new LineFramer(new LineBufferPool(256, 1024), mFraming,
+                    new LineFramer.Listener() {
+                        public void onLine(LineBuffer line) {
+                            mSink += line.getLength();
+                            line.release();
+                        }
+                    });
+        }
+
+        int run() {
+            for (int offset = 0; offset < mStream.length; offset += 1024) {
+                mFramer.feed(mStream, offset, Math.min(1024, mStream.length - offset));
+            }
+            return STREAM_LINES;
+        }
+    }
+
+    /** Turn each line into a new String, the way rows were once bound. */
+    static class StringDecodeBench extends Bench {
+        private byte[][] mLines;
+        long mSink;
+
+        String name() {
+            return "decode.string";
+        }
+
+        void setUp() throws Exception {
+            mLines = lines();
+        }
+
+        int run() {
+            for (byte[] line : mLines) {
+                mSink += new String(line, 0, line.length).length();
+            }
+            return mLines.length;
+        }
+    }
+
+    /**
+     * Decode each line into a reused StringBuilder, as a row is bound.
+     * UTF-16 has no ASCII fast path, so it always goes through the decoder.
+     */
+    static class DecodeBench extends Bench {
+        private final String mName;
+        private final Charset mCharset;
+        private final boolean mHex;
+        private final StringBuilder mText = new StringBuilder();
+        private byte[][] mLines;
+        private LineDecoder mDecoder;
+        long mSink;
+
+        DecodeBench(String name, Charset charset, boolean hex) {
+            mName = name;
+            mCharset = charset;
+            mHex = hex;
+        }
+
+        String name() {
+            return mName;
+        }
+
+        void setUp() throws Exception {
+            mLines = lines();
+            mDecoder = new LineDecoder(mCharset);
+        }
+
+        int run() {
+            for (byte[] line : mLines) {
+                mText.setLength(0);
+                if (mHex) {
+                    LineDecoder.appendHex(line, 0, line.length, mText);
+                } else {
+                    mDecoder.decode(line, 0, line.length, mText);
+                }
+                mSink += mText.length();
+            }
+            return mLines.length;
+        }
+    }
+
+    /** Parse each line into numeric columns; debug dumps are malformed. */
+    static class ParseBench extends Bench {
+        private byte[][] mLines;
+        private NumericParser mParser;
+
+        String name() {
+            return "parse";
+        }
+
+        void setUp() throws Exception {
+            mLines = lines();
+            mParser = new NumericParser(new ColumnStore(ColumnSchema.parse(",", "lddl"), 65536));
+        }
+
+        int run() {
+            for (byte[] line : mLines) {
+                mParser.parse(line, 0, line.length, 0);
+            }
+            return mLines.length;
+        }
+    }
+
+    /** Append each line to a full LogModel, so every append also evicts. */
+    static class LogAppendBench extends Bench {
+        private byte[][] mLines;
+        private LogModel mModel;
+
+        String name() {
+            return "log.append";
+        }
+
+        void setUp() throws Exception {
+            mLines = lines();
+            mModel = new LogModel(2 * 1024 * 1024, 50000);
+        }
+
+        int run() {
+            for (byte[] line : mLines) {
+                mModel.append(line, 0, line.length, LogModel.DIR_IN, 0, 0);
+            }
+            return mLines.length;
+        }
+    }
+
+    /** Compress the stream in capture sized blocks, as the capture writer does. */
+    static class CompressBench extends Bench {
+        private static final int BLOCK_BYTES = CaptureWriter.DEFAULT_BLOCK_BYTES;
+        private byte[] mStream;
+        private byte[] mCompressed;
+        private final int[] mTable = new int[Lz4.HASH_TABLE_SIZE];
+        long mSink;
+
+        String name() {
+            return "capture.lz4";
+        }
+
+        void setUp() throws Exception {
+            mStream = stream();
+            mCompressed = new byte[Lz4.maxCompressedLength(BLOCK_BYTES)];
+        }
+
+        int run() {
+            for (int offset = 0; offset < mStream.length; offset += BLOCK_BYTES) {
+                int length = Math.min(BLOCK_BYTES, mStream.length - offset);
+                mSink += Lz4.compress(mStream, offset, length, mCompressed, 0, mTable);
+            }
+            return STREAM_LINES;
+        }
+    }
+
+    /** Frame on this thread and hand each line to a consumer thread. */
+    static class HandoffBench extends Bench {
+        private byte[] mStream;
+        private LineFramer mFramer;
+        private final BlockingQueue<LineBuffer> mQueue = new ArrayBlockingQueue<LineBuffer>(128);
+        private Thread mConsumer;
+        private volatile long mConsumed;
+        private long mProduced;
+
+        String name() {
+            return "handoff";
+        }
+
+        void setUp() throws Exception {
+            mStream = stream();
+            mFramer = new LineFramer(new LineBufferPool(256, 1024), (byte) '\n',
+                    new LineFramer.Listener() {
+                        public void onLine(LineBuffer line) {
+                            try {
+                                mQueue.put(line);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        }
+                    });
+            mConsumer = new Thread("consumer") {
+                public void run() {
+                    try {
+                        while (true) {
+                            mQueue.take().release();
+                            mConsumed++;
+                        }
+                    } catch (InterruptedException e) {
+                        // done
+                    }
+                }
+            };
+            mConsumer.start();
+        }
+
+        int run() throws InterruptedException {
+            for (int offset = 0; offset < mStream.length; offset += 1024) {
+                mFramer.feed(mStream, offset, Math.min(1024, mStream.length - offset));
+            }
+            mProduced += STREAM_LINES;
+            while (mConsumed < mProduced) {
+                Thread.yield();
+            }
+            return STREAM_LINES;
+        }
+
+        void tearDown() throws InterruptedException {
+            mConsumer.interrupt();
+            mConsumer.join();
+        }
+    }
+}
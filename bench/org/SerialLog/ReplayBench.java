@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Replays capture segments through the framer and a consumer thread
+ * standing in for the UI Handler, and reports lines/s and end-to-end
+ * latency. With no segments given a synthetic capture of Arduino style
+ * lines is generated first, so runs are repeatable without hardware.
+ *
+ * Usage: ReplayBench [speed] [segment.cap ...]
+ * where speed is a multiple of real time, 0 for as fast as possible.
+ */
+public class ReplayBench {
+
+    private static final int SYNTHETIC_LINES = 200000;
+    private static final long SYNTHETIC_INTERVAL_NANOS = 1000000; // 1000 lines/s
+
+    public static void main(String[] args) throws Exception {
+        double speed = args.length > 0 ? Double.parseDouble(args[0])
+                : ReplaySource.AS_FAST_AS_POSSIBLE;
+        File[] segments;
+        if (args.length > 1) {
+            segments = new File[args.length - 1];
+            for (int i = 1; i < args.length; i++) {
+                segments[i - 1] = new File(args[i]);
+            }
+        } else {
+            File file = File.createTempFile("replaybench", CaptureFormat.SEGMENT_SUFFIX);
+            file.deleteOnExit();
+            writeSynthetic(file, SYNTHETIC_LINES);
+            segments = new File[] {file};
+        }
+
+        final LineBufferPool pool = new LineBufferPool(256, 1024);
+        final BlockingQueue<LineBuffer> handoff = new ArrayBlockingQueue<LineBuffer>(128);
+        LineFramer framer = new LineFramer(pool, (byte) '\n', new LineFramer.Listener() {
+            public void onLine(LineBuffer line) {
+                try {
+                    handoff.put(line);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        final ReplaySource replay = new ReplaySource(segments, speed, framer);
+
+        Thread consumer = new Thread("consumer") {
+            public void run() {
+                try {
+                    while (true) {
+                        LineBuffer line = handoff.take();
+                        replay.recordDelivery(line);
+                        line.release();
+                    }
+                } catch (InterruptedException e) {
+                    // done
+                }
+            }
+        };
+        consumer.setDaemon(true);
+        consumer.start();
+
+        replay.play();
+        while (!handoff.isEmpty()) {
+            Thread.sleep(1);
+        }
+        consumer.interrupt();
+        System.out.println(replay);
+        System.out.println("pool allocations: " + pool.getAllocations());
+    }
+
+    /** Write a segment of short CSV sensor lines mixed with longer debug dumps. */
+    static void writeSynthetic(File file, int lines) throws IOException {
+        Random random = new Random(42);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file), 64 * 1024));
+        try {
+            out.writeInt(CaptureFormat.SEGMENT_MAGIC);
+            out.writeShort(CaptureFormat.VERSION);
+            out.writeShort(0);
+            out.writeLong(System.currentTimeMillis());
+            out.writeLong(0);
+            for (int i = 0; i < lines; i++) {
+                byte[] payload = BenchData.line(random, i).getBytes("US-ASCII");
+                out.writeLong(i * SYNTHETIC_INTERVAL_NANOS);
+                out.writeByte(CaptureFormat.DIR_IN);
+                out.writeShort(0); // tag
+                out.writeInt(payload.length);
+                out.write(payload);
+            }
+        } finally {
+            out.close();
+        }
+    }
+}
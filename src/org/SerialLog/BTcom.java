@@ -20,21 +20,44 @@
 
 package org.SerialLog;
 
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.util.UUID;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
-import android.bluetooth.BluetoothSocket;
 import android.content.Context;
 import android.os.Bundle;
+import android.os.Debug;
 import android.os.Handler;
 import android.os.Message;
 import android.util.Log;
 
 
+/**
+ * Manages the connections to one or more devices at once. Each device
+ * gets a session with its own connection state, framer and outbound
+ * queue, and a tag that is stamped on every line it sends so the UI and
+ * the capture can tell the devices apart. A device keeps its tag when it
+ * reconnects.
+ *
+ * Connecting, receiving and sending for all sessions run as tasks on one
+ * shared executor whose idle threads are reused. Bluetooth sockets only
+ * offer blocking streams that cannot be multiplexed on a selector, so a
+ * connected session still holds one pool thread blocked in read() and
+ * one waiting to write; they sleep while the device is idle and sessions
+ * share nothing on the receive path but the line pool and the batcher.
+ */
 public class BTcom {
 	
 	// Debugging
@@ -44,24 +67,114 @@ public class BTcom {
     // Name for the SDP record when creating server socket
     //private static final String NAME = "BTcom";
     
-    // Unique UUID for this application
-    private static final UUID MY_UUID = UUID.fromString("00001101-0000-1000-8000-00805f9b34fb"); //Standard SerialPortService ID
+    // Received lines are handed out in pooled buffers of this size; the
+    // framer grows a buffer for a longer line, up to its maximum frame
+    private static final int LINE_POOL_SIZE = 256;
+    private static final int LINE_BUFFER_BYTES = 1024;
+    
+    // Size of the buffer each read from the transport fills
+    private static final int READ_BUFFER_BYTES = 1024;
+    
+    // Most commands that may wait to be sent before write() refuses more
+    private static final int OUTBOUND_QUEUE_SIZE = 64;
+    
+    // Parsed rows kept per device when a column schema is set
+    public static final int COLUMN_ROWS = 64 * 1024;
+    
+    // Size of each session's capture queue for sent lines
+    private static final int OUT_CAPTURE_QUEUE_BYTES = 64 * 1024;
+    
+    // Most devices that may be connected at once; a Bluetooth piconet
+    // has at most seven active peers
+    public static final int MAX_SESSIONS = 7;
+    
+    // How long an idle pool thread is kept for reuse
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 30;
+    
+    // Default batching of received lines: one delivery per display frame
+    public static final int DEFAULT_BATCH_LINES = 256;
+    public static final long DEFAULT_BATCH_LATENCY_MS = 16;
+    
+    // Most received lines that may wait for the Handler, about a second
+    // of a fast device; what happens beyond that is the overload policy
+    public static final int DISPLAY_QUEUE_LINES = 1024;
+    
+    // How often the metrics are written to the capture while connected
+    private static final long METRICS_DUMP_MS = 10000;
+    private static final int METRICS_QUEUE_BYTES = 16 * 1024;
+    
+    // Backoff between attempts to reconnect a lost link: doubling from the
+    // first delay up to the longest, each picked at random from its upper
+    // half so that devices lost together do not retry in step
+    private static final long RECONNECT_FIRST_DELAY_MS = 250;
+    private static final long RECONNECT_MAX_DELAY_MS = 30000;
     
     private final BluetoothAdapter mAdapter;
 	private Context mContext;
 	private Handler mHandler;
-	private ConnectThread mConnectThread;
-    private ConnectedThread mConnectedThread;
+	private final LineBufferPool mLinePool = new LineBufferPool(LINE_POOL_SIZE, LINE_BUFFER_BYTES);
+	private volatile LineBatcher mBatcher;
+	private int mBatchLines = DEFAULT_BATCH_LINES;
+	private long mBatchLatencyMs = DEFAULT_BATCH_LATENCY_MS;
+	private int mOverloadPolicy = LineBatcher.POLICY_DROP_OLDEST;
+	private int mSampleInterval = 1;
+	private volatile CaptureWriter mCapture;
+	private volatile Framing mFraming = Framing.delimited((byte) '\n');
+	private volatile boolean mAutoReconnect = true;
+	private final Metrics mMetrics = new Metrics();
+	// Metrics records go to the capture from the Handler's thread
+	private CaptureWriter mMetricsCapture;
+	private CaptureQueue mMetricsQueue;
+	private boolean mMetricsDumpScheduled;
+	private ColumnSchema mSchema;
+	private byte[] mInferSeparators;
+	private final ThreadPoolExecutor mExecutor;
+	// Sessions by tag, oldest first
+	private final LinkedHashMap<Integer, Session> mSessions = new LinkedHashMap<Integer, Session>();
+	// Tags by device address, so a device keeps its tag across connections
+	private final HashMap<String, Integer> mTags = new HashMap<String, Integer>();
+	private Session mCurrent;
+    private Replay mReplay;
+    private final int mReplayTag;
+    
+    // Hands received lines to the Handler through the batcher, which
+    // either queues, drops or samples out each one
+    private final LineFramer.Listener mDelivery = new LineFramer.Listener() {
+        public void onLine(LineBuffer line) {
+            mMetrics.increment(Metrics.LINES_QUEUED);
+            mBatcher.onLine(line);
+        }
+    };
+    
+    private final Runnable mMetricsDump = new Runnable() {
+        public void run() {
+            synchronized (BTcom.this) {
+                dumpMetrics();
+                // Stop once no device is connected; connect() starts again
+                if (mSessions.isEmpty()) {
+                    mMetricsDumpScheduled = false;
+                    return;
+                }
+            }
+            mHandler.postDelayed(this, METRICS_DUMP_MS);
+        }
+    };
 	
-	// Message types sent to the main activity
+	// Message types sent to the main activity. Received lines, taken
+	// from the LineBatcher in MESSAGE_READ_BATCH, carry the tag of their
+	// session; MESSAGE_WRITE, MESSAGE_MARKER and MESSAGE_DEVICE_NAME carry it
+	// in arg1, and MESSAGE_STATE_CHANGE in arg2. A MESSAGE_MARKER is a note
+	// for the log, such as where a link was lost
     public static final int MESSAGE_STATE_CHANGE = 1;
-    public static final int MESSAGE_READ = 2;
     public static final int MESSAGE_WRITE = 3;
     public static final int MESSAGE_DEVICE_NAME = 4;
     public static final int MESSAGE_TOAST = 5;
+    public static final int MESSAGE_READ_BATCH = 6;
+    public static final int MESSAGE_MARKER = 7;
     
     // Key names sent to the main activity
     public static final String DEVICE_NAME = "device_name";
+    public static final String DEVICE_ADDRESS = "device_address";
     public static final String TOAST = "toast";
 	
 	// Constants that indicate the current connection state
@@ -71,37 +184,257 @@ public class BTcom {
     public static final int STATE_CONNECTED = 3;  // now connected to a remote device
     public static final int STATE_RECONNECT = 4;  // reconnecting to remote device
     private int mState;
+    private int mIdleState;
 	
 	public BTcom(Context context, Handler handler){
 		mAdapter = BluetoothAdapter.getDefaultAdapter();
 		mContext = context;
 		mHandler = handler;
 		mState = STATE_NONE;
+		mIdleState = STATE_NONE;
+		mBatcher = newBatcher();
+		// A receive and a send task per session, one for replay and one
+		// spare for a cancelled session that has not yet wound down
+		mExecutor = new ThreadPoolExecutor(0, MAX_SESSIONS * 2 + 2,
+				THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+				new ThreadFactory() {
+					private final AtomicInteger mmCount = new AtomicInteger();
+
+					public Thread newThread(Runnable r) {
+						return new Thread(r, "BTcom-" + mmCount.incrementAndGet());
+					}
+				});
+		mReplayTag = tagFor("replay");
+	}
+	
+	/**
+	 * Choose how received lines are delivered to the Handler. Lines arrive
+	 * as MESSAGE_READ_BATCH at most once per maxLatencyMs, or sooner once
+	 * maxLines are waiting. A maxLines of 1 sends each line on as soon as
+	 * the Handler has taken the last one.
+	 * @param maxLines  Batch size at which delivery is not delayed further
+	 * @param maxLatencyMs  Longest time a line waits before delivery
+	 */
+	public synchronized void setBatching(int maxLines, long maxLatencyMs) {
+		mBatchLines = Math.max(maxLines, 1);
+		mBatchLatencyMs = maxLines > 1 ? maxLatencyMs : 0;
+		mBatcher = newBatcher();
+	}
+	
+	/**
+	 * Choose what happens to received lines once DISPLAY_QUEUE_LINES are
+	 * waiting for the Handler. Captured and parsed data is not affected;
+	 * only the display falls behind or leaves lines out.
+	 * @param policy  One of the LineBatcher POLICY_ constants
+	 * @param sampleInterval  For POLICY_SAMPLE, show one line in this many
+	 */
+	public synchronized void setOverloadPolicy(int policy, int sampleInterval) {
+		mOverloadPolicy = policy;
+		mSampleInterval = sampleInterval;
+		mBatcher = newBatcher();
+	}
+	
+	public synchronized int getOverloadPolicy() {
+		return mOverloadPolicy;
+	}
+	
+	/**
+	 * The batcher received lines currently go through. The Handler may
+	 * take() from it at any time, such as to apply waiting lines before a
+	 * marker.
+	 */
+	public LineBatcher getLineBatcher() {
+		return mBatcher;
+	}
+	
+	private LineBatcher newBatcher() {
+		// Lines still waiting in a replaced batcher are taken by the
+		// message it has already sent
+		return new LineBatcher(mHandler, mBatchLines, mBatchLatencyMs, DISPLAY_QUEUE_LINES,
+				mOverloadPolicy, mSampleInterval, mMetrics);
+	}
+	
+	/**
+	 * Set how received bytes are split into lines, or frames for a binary
+	 * device. Sessions already running keep the framing they started with.
+	 */
+	public void setFraming(Framing framing) {
+		mFraming = framing;
+	}
+	
+	public Framing getFraming() {
+		return mFraming;
+	}
+	
+	/**
+	 * Choose whether a lost link is connected again. While it is retried
+	 * the session is in STATE_RECONNECT and commands wait in its queue.
+	 */
+	public void setAutoReconnect(boolean reconnect) {
+		mAutoReconnect = reconnect;
+	}
+	
+	public boolean isAutoReconnect() {
+		return mAutoReconnect;
+	}
+	
+	/**
+	 * Set the writer that every received line is also handed to, or null
+	 * to stop capturing. The writer is not started or stopped here, and
+	 * sessions already running keep the writer they started with.
+	 */
+	public void setCaptureWriter(CaptureWriter capture) {
+		mCapture = capture;
+	}
+	
+	/**
+	 * Return the counters kept along the receive and send paths. The UI
+	 * reports each line it applies with Metrics.recordShown().
+	 */
+	public Metrics getMetrics() {
+		return mMetrics;
+	}
+	
+	/**
+	 * Write the metrics to the capture as a DIR_META record. Runs on the
+	 * Handler's thread, the only producer for the metrics queue.
+	 */
+	private synchronized void dumpMetrics() {
+		CaptureWriter capture = mCapture;
+		if (capture != mMetricsCapture) {
+			if (mMetricsCapture != null) mMetricsCapture.closeQueue(mMetricsQueue);
+			mMetricsQueue = capture != null ? capture.openQueue(METRICS_QUEUE_BYTES) : null;
+			mMetricsCapture = capture;
+		}
+		if (capture == null) return;
+		StringBuilder text = new StringBuilder();
+		mMetrics.appendTo(text);
+		text.append(" pool_allocations=").append(mLinePool.getAllocations())
+				.append(" capture_dropped=").append(capture.getDropped());
+		byte[] bytes = text.toString().getBytes();
+		capture.offer(mMetricsQueue, System.nanoTime(), CaptureFormat.DIR_META,
+				CaptureFormat.META_TAG, bytes, 0, bytes.length);
+	}
+	
+	/**
+	 * Parse every received line into numeric columns laid out by a schema,
+	 * or stop parsing with null. Parsing runs on each session's receive
+	 * thread, right after framing; the lines are still delivered as text.
+	 * Each device gets a fresh {@link ColumnStore}, see getParser().
+	 */
+	public synchronized void setColumnSchema(ColumnSchema schema) {
+		mSchema = schema;
+		mInferSeparators = null;
+		resetParsers();
+	}
+	
+	/**
+	 * Parse received lines into columns laid out like the first line of
+	 * each device that is made up only of numbers.
+	 * @param separators  Bytes that end a field
+	 */
+	public synchronized void inferColumnSchema(byte[] separators) {
+		mSchema = null;
+		mInferSeparators = separators;
+		resetParsers();
+	}
+	
+	/** Whether received lines are being parsed into columns. */
+	public synchronized boolean isParsingColumns() {
+		return mSchema != null || mInferSeparators != null;
+	}
+	
+	private void resetParsers() {
+		for (Session session : mSessions.values()) {
+			session.mmParser = newParser();
+		}
+		if (mReplay != null) mReplay.mmParser = newParser();
+	}
+	
+	private NumericParser newParser() {
+		if (mSchema != null) return new NumericParser(new ColumnStore(mSchema, COLUMN_ROWS));
+		if (mInferSeparators != null) return new NumericParser(mInferSeparators, COLUMN_ROWS);
+		return null;
+	}
+	
+	/**
+	 * Return the parser of one device's lines, which holds its columns
+	 * and its malformed line count, or null if there is no schema or no
+	 * such session.
+	 */
+	public synchronized NumericParser getParser(int tag) {
+		if (tag == mReplayTag) return mReplay != null ? mReplay.mmParser : null;
+		Session session = mSessions.get(tag);
+		return session != null ? session.mmParser : null;
+	}
+	
+	/** Tag for a device address, the same one each time it connects. */
+	private synchronized int tagFor(String address) {
+		Integer tag = mTags.get(address);
+		if (tag == null) {
+			tag = mTags.size();
+			mTags.put(address, tag);
+		}
+		return tag;
 	}
 	
-	private synchronized void setState(int state) {
+	/**
+	 * Work out the overall state from the sessions: connected while any
+	 * device is, reconnecting while any lost link is being retried,
+	 * connecting while any is trying to, idle otherwise.
+	 * @param tag  Session whose change prompted the update, or -1
+	 */
+	private synchronized void updateState(int tag) {
+		int state = mIdleState;
+		for (Session session : mSessions.values()) {
+			if (session.mmState == STATE_CONNECTED) {
+				state = STATE_CONNECTED;
+				break;
+			}
+			if (session.mmState == STATE_RECONNECT) {
+				state = STATE_RECONNECT;
+			} else if (session.mmState == STATE_CONNECTING && state != STATE_RECONNECT) {
+				state = STATE_CONNECTING;
+			}
+		}
+		if (state == mState) return;
         if (D) Log.d(TAG, "setState() " + mState + " -> " + state);
         mState = state;
 
         // Give the new state to the Handler so the UI Activity can update
-        mHandler.obtainMessage(MESSAGE_STATE_CHANGE, state, -1).sendToTarget();
+        mHandler.obtainMessage(MESSAGE_STATE_CHANGE, state, tag).sendToTarget();
     }
 	public synchronized int getState() {
         return mState;
     }
 	/**
+	 * Return the state of one device's session, STATE_NONE if there is
+	 * none.
+	 */
+	public synchronized int getState(int tag) {
+		Session session = mSessions.get(tag);
+		return session != null ? session.mmState : STATE_NONE;
+	}
+	/** Return the tags of all current sessions, oldest first. */
+	public synchronized int[] getSessionTags() {
+		int[] tags = new int[mSessions.size()];
+		int i = 0;
+		for (Integer tag : mSessions.keySet()) {
+			tags[i++] = tag;
+		}
+		return tags;
+	}
+	/**
      * Start the chat service. Specifically start AcceptThread to begin a
      * session in listening (server) mode. Called by the Activity onResume() */
     public synchronized void start() {
         if (D) Log.d(TAG, "start");
         
-     // Cancel any thread attempting to make a connection
-        if (mConnectThread != null) {mConnectThread.cancel(); mConnectThread = null;}
-
-        // Cancel any thread currently running a connection
-        if (mConnectedThread != null) {mConnectedThread.cancel(); mConnectedThread = null;}
+        // Cancel every session, connecting or connected
+        cancelSessions();
         
-        setState(STATE_LISTEN);
+        mIdleState = STATE_LISTEN;
+        updateState(-1);
 
     }
     /**
@@ -110,275 +443,537 @@ public class BTcom {
     public synchronized void stop() {
         if (D) Log.d(TAG, "stop");
         
-        if (mConnectThread != null) {
-            mConnectThread.cancel();
-            mConnectThread = null;
-        }
+        cancelSessions();
         
-        if (mConnectedThread != null) {
-            mConnectedThread.cancel();
-            mConnectedThread = null;
-        }
+        stopReplay();
 
-        setState(STATE_NONE);
+        mIdleState = STATE_NONE;
+        updateState(-1);
+    }
+    private void cancelSessions() {
+        for (Session session : mSessions.values()) {
+            session.cancel();
+        }
+        mSessions.clear();
+        mCurrent = null;
     }
     /**
-     * Start the ConnectThread to initiate a connection to a remote device.
+     * Start a session to initiate a connection to a remote device.
      * @param device  The BluetoothDevice to connect
      * @param secure Socket Security type - Secure (true) , Insecure (false)
      */
     public synchronized void connect(BluetoothDevice device, boolean secure) {
-        if (D) Log.d(TAG, "connect to: " + device);
+        connect(new BluetoothTransport(device, secure));
+    }
+    /**
+     * Start a session to initiate a connection over any transport, such
+     * as a TCP serial bridge. Other devices stay connected; a session
+     * already open to the same device is replaced.
+     * @param transport  The unconnected Transport to the device
+     */
+    public synchronized void connect(Transport transport) {
+        if (D) Log.d(TAG, "connect to: " + transport.getName());
+
+        int tag = tagFor(transport.getAddress());
 
-        // Cancel any thread attempting to make a connection
-        if (mState == STATE_CONNECTING) {
-            if (mConnectThread != null) {mConnectThread.cancel(); mConnectThread = null;}
+        // Cancel any session already running with this device
+        Session old = mSessions.remove(tag);
+        if (old != null) {
+            old.cancel();
+            if (mCurrent == old) mCurrent = null;
         }
 
-        // Cancel any thread currently running a connection
-        if (mConnectedThread != null) {mConnectedThread.cancel(); mConnectedThread = null;}
+        if (mSessions.size() >= MAX_SESSIONS) {
+            sendToast("Too many devices connected");
+            updateState(tag);
+            return;
+        }
 
-        // Start the thread to connect with the given device
-        mConnectThread = new ConnectThread(device, secure);
-        mConnectThread.start();
-        setState(STATE_CONNECTING);
+        // Start the task to connect with the given device
+        Session session = new Session(tag, transport);
+        try {
+            mExecutor.execute(session);
+        } catch (RejectedExecutionException e) {
+            Log.e(TAG, "no thread for " + transport.getName(), e);
+            session.cancel();
+            sendToast("Too many devices connected");
+            updateState(tag);
+            return;
+        }
+        mSessions.put(tag, session);
+        updateState(tag);
+        if (!mMetricsDumpScheduled) {
+            mMetricsDumpScheduled = true;
+            mHandler.postDelayed(mMetricsDump, METRICS_DUMP_MS);
+        }
     }
     /**
-     * Start the ConnectedThread to begin managing a Bluetooth connection
-     * @param socket  The BluetoothSocket on which the connection was made
-     * @param device  The BluetoothDevice that has been connected
+     * Disconnect one device, leaving the others connected.
+     * @param tag  The session's tag
      */
-    public synchronized void connected(BluetoothSocket socket, BluetoothDevice
-            device, final String socketType) {
-        if (D) Log.d(TAG, "connected, Socket Type:" + socketType);
-
-        // Cancel the thread that completed the connection
-        if (mConnectThread != null) {mConnectThread.cancel(); mConnectThread = null;}
-
-        // Cancel any thread currently running a connection
-        if (mConnectedThread != null) {mConnectedThread.cancel(); mConnectedThread = null;}
+    public synchronized void disconnect(int tag) {
+        Session session = mSessions.remove(tag);
+        if (session == null) return;
+        session.cancel();
+        if (mCurrent == session) mCurrent = null;
+        updateState(tag);
+    }
+    /**
+     * Begin managing a connection once a session's transport is open.
+     * @return false if the session was cancelled in the meantime
+     */
+    private synchronized boolean connected(Session session) {
+        Transport transport = session.mmTransport;
+        if (D) Log.d(TAG, "connected: " + transport.getName());
+        if (mSessions.get(session.mmTag) != session) return false;
 
-        // Start the thread to manage the connection and perform transmissions
-        mConnectedThread = new ConnectedThread(socket, socketType);
-        mConnectedThread.start();
+        try {
+            session.mmOutbound.attach(transport);
+        } catch (RejectedExecutionException e) {
+            Log.e(TAG, "no thread to write to " + transport.getName(), e);
+            mSessions.remove(session.mmTag);
+            sendToast("Too many devices connected");
+            updateState(session.mmTag);
+            return false;
+        }
+        session.mmState = STATE_CONNECTED;
+        mCurrent = session;
 
         // Send the name of the connected device back to the UI Activity
-        Message msg = mHandler.obtainMessage(MESSAGE_DEVICE_NAME);
+        Message msg = mHandler.obtainMessage(MESSAGE_DEVICE_NAME, session.mmTag, -1);
         Bundle bundle = new Bundle();
-        bundle.putString(DEVICE_NAME, device.getName());
+        bundle.putString(DEVICE_NAME, transport.getName());
+        bundle.putString(DEVICE_ADDRESS, transport.getAddress());
         msg.setData(bundle);
         mHandler.sendMessage(msg);
 
-        setState(STATE_CONNECTED);
+        updateState(session.mmTag);
+        return true;
+    }
+    /**
+     * End a session that failed or was lost, and tell the UI Activity.
+     */
+    private void sessionEnded(Session session, String message) {
+        sendToast(message);
+        synchronized (this) {
+            if (mSessions.get(session.mmTag) == session) {
+                mSessions.remove(session.mmTag);
+                if (mCurrent == session) mCurrent = null;
+            }
+        }
+        session.cancel();
+        updateState(session.mmTag);
     }
 	/**
      * Indicate that the connection attempt failed and notify the UI Activity.
      */
-    private void connectionFailed() {
-        // Send a failure message back to the Activity
-        Message msg = mHandler.obtainMessage(MESSAGE_TOAST);
-        Bundle bundle = new Bundle();
-        bundle.putString(TOAST, "Unable to connect device");
-        msg.setData(bundle);
-        mHandler.sendMessage(msg);
-
-        // Start the service over to restart listening mode
-        BTcom.this.start();
+    private void connectionFailed(Session session) {
+        sessionEnded(session, "Unable to connect " + session.mmTransport.getName());
     }
     
     /**
      * Indicate that the connection was lost and notify the UI Activity.
      */
-    private void connectionLost() {
-        // Send a failure message back to the Activity
+    private void connectionLost(Session session) {
+        sessionEnded(session, session.mmTransport.getName() + " connection was lost");
+    }
+    
+    /**
+     * Move a session whose link was lost to STATE_RECONNECT.
+     * @return false if the session has been cancelled or replaced
+     */
+    private synchronized boolean reconnecting(Session session) {
+        if (mSessions.get(session.mmTag) != session) return false;
+        session.mmState = STATE_RECONNECT;
+        updateState(session.mmTag);
+        return true;
+    }
+    
+    /**
+     * Delay before a reconnect attempt, in ms.
+     * @param attempt  0 for the first attempt after the link was lost
+     */
+    static long reconnectDelayMs(int attempt) {
+        long delay = RECONNECT_FIRST_DELAY_MS << Math.min(attempt, 16);
+        delay = Math.min(delay, RECONNECT_MAX_DELAY_MS);
+        return delay / 2 + (long) (Math.random() * (delay / 2));
+    }
+    private void sendToast(String text) {
         Message msg = mHandler.obtainMessage(MESSAGE_TOAST);
         Bundle bundle = new Bundle();
-        bundle.putString(TOAST, "Device connection was lost");
+        bundle.putString(TOAST, text);
         msg.setData(bundle);
         mHandler.sendMessage(msg);
-
-        // Start the service over to restart listening mode
-        BTcom.this.start();
     }
     /**
-     * Write to the ConnectedThread in an unsynchronized manner
+     * Queue a command to be sent to the device connected most recently.
+     * Returns at once; the command is sent from that session's writer,
+     * once the link is back if it is being reconnected.
      * @param out The string to write
-     * @see ConnectedThread#write(byte[])
+     * @return a Future that completes with the number of bytes sent, or
+     *         null if not connected or too many commands are waiting
      */
-    public void write(String out) {
-        // Create temporary object
-        ConnectedThread r;
-        // Synchronize a copy of the ConnectedThread
+    public Future<Integer> write(String out) {
+        Session session;
         synchronized (this) {
-            if (mState != STATE_CONNECTED) return;
-            r = mConnectedThread;
+            session = mCurrent;
+            if (session == null || !session.isWritable()) return null;
         }
-        // Perform the write unsynchronized
-        r.write(out);
+        return session.mmOutbound.submit(out);
     }
-	
+    /**
+     * Queue a command to be sent to one device.
+     * @param tag  The session's tag
+     * @param out The string to write
+     * @return a Future that completes with the number of bytes sent, or
+     *         null if that device is not connected or too many commands
+     *         are waiting
+     */
+    public Future<Integer> write(int tag, String out) {
+        Session session;
+        synchronized (this) {
+            session = mSessions.get(tag);
+            if (session == null || !session.isWritable()) return null;
+        }
+        return session.mmOutbound.submit(out);
+    }
+    /**
+     * Return the receive loop counters for the device connected most
+     * recently, or null when not connected. Used to check idle CPU use
+     * against throughput.
+     */
+    public synchronized IngestStats getIngestStats() {
+        return mCurrent != null ? mCurrent.mmLoop.getStats() : null;
+    }
+    /**
+     * Return the receive loop counters for one device, or null.
+     */
+    public synchronized IngestStats getIngestStats(int tag) {
+        Session session = mSessions.get(tag);
+        return session != null ? session.mmLoop.getStats() : null;
+    }
+    /**
+     * Play recorded capture segments through the same framing and Handler
+     * path as a live connection, replacing any replay already running.
+     * Replayed lines are not captured again.
+     * @param segments  Capture segments to play, in order
+     * @param speed  Multiple of real time, or ReplaySource.AS_FAST_AS_POSSIBLE
+     */
+    public synchronized void startReplay(File[] segments, double speed) {
+        if (D) Log.d(TAG, "startReplay " + segments.length + " segments at " + speed + "x");
+        stopReplay();
+        mReplay = new Replay(segments, speed);
+        mExecutor.execute(mReplay);
+
+        Message msg = mHandler.obtainMessage(MESSAGE_DEVICE_NAME, mReplayTag, -1);
+        Bundle bundle = new Bundle();
+        bundle.putString(DEVICE_NAME, "Replay");
+        msg.setData(bundle);
+        mHandler.sendMessage(msg);
+    }
+    /**
+     * Stop any replay in progress.
+     */
+    public synchronized void stopReplay() {
+        if (mReplay != null) {
+            mReplay.mmSource.cancel();
+            mReplay = null;
+        }
+    }
+    /**
+     * Return the replay in progress, or null. Consumers of replayed lines
+     * report them to it so it can measure end-to-end latency.
+     */
+    public synchronized ReplaySource getReplay() {
+        return mReplay != null ? mReplay.mmSource : null;
+    }
+    /**
+     * Return the pool that received lines are handed out from. Its
+     * allocation count shows whether consumers are keeping up.
+     */
+    public LineBufferPool getLinePool() {
+        return mLinePool;
+    }
+
 	/**
-     * This thread runs while attempting to make an outgoing connection
-     * with a device. It runs straight through; the connection either
-     * succeeds or fails.
+     * This task plays a recorded capture back into the Handler.
      */
-    private class ConnectThread extends Thread {
-        private final BluetoothSocket mmSocket;
-        private final BluetoothDevice mmDevice;
-        private String mSocketType;
-
-        public ConnectThread(BluetoothDevice device, boolean secure) {
-            mmDevice = device;
-            BluetoothSocket tmp = null;
-            mSocketType = secure ? "Secure" : "Insecure";
-
-            // Get a BluetoothSocket for a connection with the
-            // given BluetoothDevice
-            try {
-              tmp = device.createRfcommSocketToServiceRecord(
-                            MY_UUID);
-            } catch (IOException e) {
-                Log.e(TAG, "Socket Type: " + mSocketType + "create() failed", e);
-            }
-            mmSocket = tmp;
+    private class Replay implements Runnable {
+        private final ReplaySource mmSource;
+        private volatile NumericParser mmParser;
+
+        public Replay(File[] segments, double speed) {
+            mmParser = newParser();
+            LineFramer framer = new LineFramer(mLinePool, mFraming,
+                    new LineFramer.Listener() {
+                        public void onLine(LineBuffer line) {
+                            NumericParser parser = mmParser;
+                            if (parser != null) {
+                                parser.parse(line.getData(), 0, line.getLength(),
+                                        line.getTimestamp());
+                            }
+                            mDelivery.onLine(line);
+                        }
+                    });
+            framer.setTag(mReplayTag);
+            framer.setMetrics(mMetrics);
+            mmSource = new ReplaySource(segments, speed, framer);
         }
 
         public void run() {
-            Log.i(TAG, "BEGIN mConnectThread SocketType:" + mSocketType);
-            setName("ConnectThread" + mSocketType);
-
-            // Always cancel discovery because it will slow down a connection
-            mAdapter.cancelDiscovery();
-            // Make a connection to the BluetoothSocket
+            Log.i(TAG, "BEGIN replay");
+            String result;
             try {
-                // This is a blocking call and will only return on a
-                // successful connection or an exception
-                mmSocket.connect();
+                mmSource.play();
+                result = "Replay finished: " + mmSource.getLines() + " lines";
             } catch (IOException e) {
-                // Close the socket
-                try {
-                    mmSocket.close();
-                } catch (IOException e2) {
-                    Log.e(TAG, "unable to close() " + mSocketType +
-                            " socket during connection failure", e2);
-                }
-                connectionFailed();
-                return;
+                Log.e(TAG, "replay failed", e);
+                result = "Unable to replay capture";
             }
+            if (D) Log.d(TAG, "END replay: " + mmSource);
+
+            sendToast(result);
 
-            // Reset the ConnectThread because we're done
             synchronized (BTcom.this) {
-                mConnectThread = null;
+                if (mReplay == this) mReplay = null;
             }
+        }
+    }
+
+	/**
+     * One device: this task makes the connection and then keeps reading
+     * from it until it is cancelled or lost. A lost link is retried with
+     * a fresh transport to the same device while auto reconnect is on.
+     * Commands are sent by the session's own outbound writer, also on the
+     * shared executor; it keeps its queue while the link is down.
+     */
+    private class Session implements Runnable {
+        private final int mmTag;
+        private final LineFramer mmFramer;
+        private final OutboundWriter mmOutbound;
+        private final CaptureWriter mmCapture;
+        private final CaptureQueue mmInCapture;
+        private final CaptureQueue mmOutCapture;
+        // Replaced together, under the session's lock, on each reconnect
+        private volatile Transport mmTransport;
+        private volatile IngestLoop mmLoop;
+        private volatile boolean mmCanceled;
+        private volatile int mmState = STATE_CONNECTING;
+        private volatile NumericParser mmParser;
+
+        public Session(int tag, Transport transport) {
+            Log.d(TAG, "create Session " + tag + ": " + transport.getName());
+            mmTag = tag;
+            mmCapture = mCapture;
+            mmInCapture = mmCapture != null ? mmCapture.openQueue() : null;
+            mmOutCapture = mmCapture != null ? mmCapture.openQueue(OUT_CAPTURE_QUEUE_BYTES) : null;
+            mmParser = newParser();
+
+            mmFramer = new LineFramer(mLinePool, mFraming,
+                    new LineFramer.Listener() {
+                        public void onLine(LineBuffer line) {
+                            // Persist first; the capture writer copies the bytes
+                            if (mmCapture != null) {
+                                mmCapture.offer(mmInCapture, line.getTimestamp(),
+                                        CaptureFormat.DIR_IN, mmTag, line.getData(), 0,
+                                        line.getLength());
+                            }
+                            NumericParser parser = mmParser;
+                            if (parser != null) {
+                                parser.parse(line.getData(), 0, line.getLength(),
+                                        line.getTimestamp());
+                            }
+                            mDelivery.onLine(line);
+                        }
+                    });
+            mmFramer.setTag(tag);
+            mmFramer.setMetrics(mMetrics);
+            mmTransport = transport;
+            mmLoop = newLoop(transport);
+            mmOutbound = new OutboundWriter(OUTBOUND_QUEUE_SIZE, Charset.defaultCharset(),
+                    mExecutor, new OutboundWriter.Listener() {
+                        public void onWritten(String command, byte[] encoded, int offset,
+                                int length) {
+                            mMetrics.add(Metrics.BYTES_OUT, length);
+                            mMetrics.increment(Metrics.LINES_OUT);
+                            // Capture the command without its line ending
+                            if (mmCapture != null) {
+                                while (length > 0 && (encoded[offset + length - 1] == '\n'
+                                        || encoded[offset + length - 1] == '\r')) {
+                                    length--;
+                                }
+                                mmCapture.offer(mmOutCapture, System.nanoTime(),
+                                        CaptureFormat.DIR_OUT, mmTag, encoded, offset, length);
+                            }
 
-            // Start the connected thread
-            connected(mmSocket, mmDevice, mSocketType);
+                            // Share the sent message back to the UI Activity
+                            mHandler.obtainMessage(MESSAGE_WRITE, mmTag, -1, command)
+                                    .sendToTarget();
+                        }
+
+                        public void onWriteFailed(IOException e) {
+                            Log.e(TAG, "Exception during write", e);
+                        }
+
+                        public void onClosed() {
+                            // Nothing more can be sent, so nothing more captured
+                            if (mmCapture != null) mmCapture.closeQueue(mmOutCapture);
+                        }
+                    });
         }
 
-        public void cancel() {
+        private IngestLoop newLoop(Transport transport) {
+            return new IngestLoop(transport, mmFramer, READ_BUFFER_BYTES,
+                    new IngestLoop.Listener() {
+                        public void onDisconnected(IOException e) {
+                            Log.e(TAG, "disconnected", e);
+                        }
+                    }) {
+                @Override
+                protected long threadCpuNanos() {
+                    return Debug.threadCpuTimeNanos();
+                }
+            };
+        }
+
+        public void run() {
+            Log.i(TAG, "BEGIN session " + mmTag + " " + mmTransport.getName());
             try {
-                mmSocket.close();
-            } catch (IOException e) {
-                Log.e(TAG, "close() of connect " + mSocketType + " socket failed", e);
+                // When the link was lost, and attempts made to get it back
+                long lostNanos = 0;
+                int attempt = 0;
+                while (true) {
+                    // Make a connection to the device
+                    long connectNanos = System.nanoTime();
+                    try {
+                        // This is a blocking call and will only return on a
+                        // successful connection or an exception
+                        mmTransport.connect();
+                    } catch (IOException e) {
+                        if (mmCanceled) return;
+                        Log.e(TAG, "unable to connect to " + mmTransport.getName(), e);
+                        if (lostNanos == 0) {
+                            connectionFailed(this);
+                            return;
+                        }
+                        if (!awaitReconnect(attempt++)) return;
+                        continue;
+                    }
+                    long now = System.nanoTime();
+                    mMetrics.recordConnect(now - connectNanos);
+                    if (!connected(this)) {
+                        cancel();
+                        return;
+                    }
+                    if (lostNanos != 0) {
+                        mMetrics.recordReconnect(now - lostNanos);
+                        mark(String.format("Reconnected after %d ms, attempt %d",
+                                (now - lostNanos) / 1000000, attempt));
+                        lostNanos = 0;
+                        attempt = 0;
+                    }
+
+                    // Note in the capture which device this tag belongs to
+                    if (mmCapture != null) {
+                        byte[] name = String.valueOf(mmTransport.getName()).getBytes();
+                        mmCapture.offer(mmInCapture, System.nanoTime(),
+                                CaptureFormat.DIR_MARKER, mmTag, name, 0, name.length);
+                    }
+
+                    // Keep listening to the transport while connected
+                    mmLoop.run();
+                    if (D) Log.d(TAG, "END session " + mmTag + ": " + mmLoop.getStats());
+                    if (mmCanceled) return;
+                    if (!mAutoReconnect || !reconnecting(this)) {
+                        connectionLost(this);
+                        return;
+                    }
+                    lostNanos = System.nanoTime();
+                    mark("Link lost, reconnecting");
+                    if (!awaitReconnect(attempt++)) return;
+                }
+            } finally {
+                if (mmCapture != null) mmCapture.closeQueue(mmInCapture);
             }
         }
-    }
 
-	
-	/**
-     * This thread runs during a connection with a remote device.
-     * It handles all incoming and outgoing transmissions.
-     */
-    private class ConnectedThread extends Thread {
-    	
-    	private final BluetoothSocket mmSocket;
-        private final InputStream mmInStream;
-        private final OutputStream mmOutStream;
-    	
-    	public ConnectedThread(BluetoothSocket socket, String socketType) {
-            Log.d(TAG, "create ConnectedThread: " + socketType);
-            mmSocket = socket;
-            InputStream tmpIn = null;
-            OutputStream tmpOut = null;
-
-            // Get the BluetoothSocket input and output streams
+        /**
+         * Close the dead link, wait out the backoff and set up a fresh
+         * transport for the next attempt, keeping queued commands.
+         * @return false if the session has ended instead
+         */
+        private boolean awaitReconnect(int attempt) {
             try {
-                tmpIn = socket.getInputStream();
-                tmpOut = socket.getOutputStream();
+                mmLoop.cancel();
             } catch (IOException e) {
-                Log.e(TAG, "temp sockets not created", e);
+                Log.e(TAG, "close() of lost transport failed", e);
             }
-
-            mmInStream = tmpIn;
-            mmOutStream = tmpOut;
+            mmOutbound.detach();
+            long delay = reconnectDelayMs(attempt);
+            if (D) Log.d(TAG, "reconnect " + mmTag + " attempt " + (attempt + 1) + " in " + delay + " ms");
+            boolean interrupted = false;
+            synchronized (this) {
+                long deadline = System.nanoTime() + delay * 1000000L;
+                try {
+                    long remaining;
+                    while (!mmCanceled && (remaining = deadline - System.nanoTime()) > 0) {
+                        wait(remaining / 1000000L + 1);
+                    }
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+                if (mmCanceled) return false;
+            }
+            Transport transport = interrupted ? null : mmTransport.reopen();
+            if (transport == null) {
+                if (interrupted) Thread.currentThread().interrupt();
+                connectionLost(this);
+                return false;
+            }
+            synchronized (this) {
+                if (mmCanceled) return false;
+                mmTransport = transport;
+                mmLoop = newLoop(transport);
+            }
+            return true;
         }
-    	
-    	 public void run() {
-             Log.i(TAG, "BEGIN mConnectedThread");
-             
-             char delimeter = '\n';
-             byte[] readBuffer = new byte[1024];
-             int readBufferPosition = 0;
-             
-             // Keep listening to the InputStream while connected
-             while (true) {
-                 try {
-                     // Read from the InputStream
-                	 int bytesAvailable = mmInStream.available();
-                	 if(bytesAvailable > 0)
-                	 {
-                		 byte[] packetBytes = new byte[bytesAvailable];
-                		 mmInStream.read(packetBytes);
-              
-                		 for (int i = 0; i < bytesAvailable; i++)
-                		 {
-                			 byte b = packetBytes[i];
-                			 if (b == delimeter)
-                			 {
-                				 mHandler.obtainMessage(MESSAGE_READ, readBufferPosition, -1, readBuffer)
-                                         .sendToTarget();
-                				 readBufferPosition = 0;                			 
-                			 }
-                			 else
-                			 {
-                				 readBuffer[readBufferPosition++] = b;
-                			 }
-                		 }
-                	 }
-
-                     
-                 } catch (IOException e) {
-                     Log.e(TAG, "disconnected", e);
-                     connectionLost();
-                     // Start the service over to restart listening mode
-                     BTcom.this.start();
-                     break;
-                 }
-             }
-         }
-    	
-    	/**
-         * Write to the connected OutStream.
-         * @param buffer  The bytes to write
-         */
-        public void write(String msg) {
-            try {
-                mmOutStream.write(msg.getBytes());
 
-                // Share the sent message back to the UI Activity
-                mHandler.obtainMessage(MESSAGE_WRITE, -1, -1, msg)
-                        .sendToTarget();
-            } catch (IOException e) {
-                Log.e(TAG, "Exception during write", e);
+        /**
+         * Note something about the link in the capture and the log, such
+         * as where it was lost and how long it took to come back.
+         */
+        private void mark(String text) {
+            byte[] bytes = text.getBytes();
+            if (mmCapture != null) {
+                mmCapture.offer(mmInCapture, System.nanoTime(), CaptureFormat.DIR_MARKER,
+                        mmTag, bytes, 0, bytes.length);
             }
+            mHandler.obtainMessage(MESSAGE_MARKER, mmTag, -1, text).sendToTarget();
         }
-    	
-    	public void cancel() {
+
+        /** Commands are taken while connected and while reconnecting. */
+        boolean isWritable() {
+            return mmState == STATE_CONNECTED || mmState == STATE_RECONNECT;
+        }
+
+        public void cancel() {
+            IngestLoop loop;
+            synchronized (this) {
+                mmCanceled = true;
+                mmState = STATE_NONE;
+                loop = mmLoop;
+                // Wake a wait between reconnect attempts
+                notifyAll();
+            }
             try {
-                mmSocket.close();
+                loop.cancel();
             } catch (IOException e) {
-                Log.e(TAG, "close() of connect socket failed", e);
+                Log.e(TAG, "close() of connect transport failed", e);
             }
-    	}
+            // Closing the transport first wakes a writer stuck on the link;
+            // the out capture queue is closed once that writer has ended
+            mmOutbound.close();
+            mmOutbound.clear(new IOException("connection closed"));
+        }
     }
 }
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.UUID;
+
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothSocket;
+import android.util.Log;
+
+/**
+ * {@link Transport} over a Bluetooth RFCOMM socket using the serial port
+ * profile.
+ */
+public class BluetoothTransport implements Transport {
+
+    // Debugging
+    private static final String TAG = "BluetoothTransport";
+
+    // Unique UUID for this application
+    private static final UUID MY_UUID = UUID.fromString("00001101-0000-1000-8000-00805f9b34fb"); //Standard SerialPortService ID
+
+    private final BluetoothDevice mDevice;
+    private final boolean mSecure;
+    private final BluetoothSocket mSocket;
+    private final String mSocketType;
+    private InputStream mInStream;
+    private OutputStream mOutStream;
+
+    /**
+     * @param device  The BluetoothDevice to connect
+     * @param secure Socket Security type - Secure (true) , Insecure (false)
+     */
+    public BluetoothTransport(BluetoothDevice device, boolean secure) {
+        mDevice = device;
+        mSecure = secure;
+        mSocketType = secure ? "Secure" : "Insecure";
+        BluetoothSocket tmp = null;
+
+        // Get a BluetoothSocket for a connection with the
+        // given BluetoothDevice
+        try {
+            tmp = secure ? device.createRfcommSocketToServiceRecord(MY_UUID)
+                    : device.createInsecureRfcommSocketToServiceRecord(MY_UUID);
+        } catch (IOException e) {
+            Log.e(TAG, "Socket Type: " + mSocketType + "create() failed", e);
+        }
+        mSocket = tmp;
+    }
+
+    public void connect() throws IOException {
+        if (mSocket == null) throw new IOException("no " + mSocketType + " socket");
+
+        // Always cancel discovery because it will slow down a connection
+        BluetoothAdapter.getDefaultAdapter().cancelDiscovery();
+
+        // This is a blocking call and will only return on a
+        // successful connection or an exception
+        mSocket.connect();
+        mInStream = mSocket.getInputStream();
+        mOutStream = mSocket.getOutputStream();
+    }
+
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        return mInStream.read(buffer, offset, length);
+    }
+
+    public void write(byte[] buffer, int offset, int length) throws IOException {
+        mOutStream.write(buffer, offset, length);
+    }
+
+    public void close() throws IOException {
+        if (mSocket != null) mSocket.close();
+    }
+
+    public String getName() {
+        return mDevice.getName();
+    }
+
+    public String getAddress() {
+        return mDevice.getAddress();
+    }
+
+    public Transport reopen() {
+        // A Bluetooth socket can only be connected once
+        return new BluetoothTransport(mDevice, mSecure);
+    }
+
+    public BluetoothDevice getDevice() {
+        return mDevice;
+    }
+
+    public String getSocketType() {
+        return mSocketType;
+    }
+}
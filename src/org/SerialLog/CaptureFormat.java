@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+
+/**
+ * Layout of the binary capture files written by {@link CaptureWriter}
+ * and read by {@link CaptureReader}. All values are big endian.
+ *
+ * A segment ({@value #SEGMENT_SUFFIX}) starts with a header
+ * <pre>
+ *   int   magic       {@value #SEGMENT_MAGIC}
+ *   short version
+ *   short flags
+ *   long  wall clock time the segment was started, ms since the epoch
+ *   long  monotonic time the segment was started, System.nanoTime()
+ * </pre>
+ * followed by one record per line
+ * <pre>
+ *   long  monotonic receive time, System.nanoTime()
+ *   byte  direction, DIR_IN, DIR_OUT, DIR_MARKER or DIR_META
+ *   short tag of the device session
+ *   int   payload length
+ *   byte[] payload, without the line delimiter
+ * </pre>
+ * A DIR_MARKER record is a note written by the app rather than a line,
+ * such as the name of the device a tag was given to. A DIR_META record
+ * holds the app's own {@link Metrics} as name=value pairs, with tag
+ * META_TAG.
+ *
+ * The flags may say that the records are stored in blocks, FLAG_BLOCKS,
+ * each being
+ * <pre>
+ *   int   stored length, the bytes that follow the block header
+ *   int   raw length, the bytes the block decodes to
+ *   int   number of records
+ *   byte  codec, CODEC_STORED or CODEC_LZ4 (see {@link Lz4})
+ *   byte[] stored bytes
+ * </pre>
+ * A block holds whole records, so it can be decoded without any other.
+ * With FLAG_DELTA the records in a block are packed with
+ * {@link DeltaVarint}
+ * <pre>
+ *   delta  monotonic receive time, the first from zero
+ *   byte   direction
+ *   varint tag
+ *   varint payload length
+ *   byte[] payload
+ * </pre>
+ * and otherwise they have the layout above.
+ *
+ * Beside each segment an index ({@value #INDEX_SUFFIX}) starts with an
+ * int magic and a short version, followed by sparse entries of
+ * <pre>
+ *   long  record timestamp
+ *   long  record number within the segment
+ *   long  file offset of the record
+ * </pre>
+ * one for every {@value #INDEX_INTERVAL} records, so a seek reads the
+ * small index and then at most that many records. In a segment of
+ * blocks there is instead one entry per block, for its first record,
+ * and the offset is that of the block.
+ */
+public final class CaptureFormat {
+
+    public static final String SEGMENT_SUFFIX = ".cap";
+    public static final String INDEX_SUFFIX = ".idx";
+
+    public static final int SEGMENT_MAGIC = 0x534c4331; // "SLC1"
+    public static final int INDEX_MAGIC = 0x534c4931;   // "SLI1"
+    public static final short VERSION = 1;
+
+    // Segment header flags
+    public static final short FLAG_BLOCKS = 1;
+    public static final short FLAG_DELTA = 2;
+
+    // Block codecs
+    public static final int CODEC_STORED = 0;
+    public static final int CODEC_LZ4 = 1;
+
+    public static final int SEGMENT_HEADER_BYTES = 24;
+    public static final int INDEX_HEADER_BYTES = 6;
+    public static final int RECORD_HEADER_BYTES = 15;
+    public static final int INDEX_ENTRY_BYTES = 24;
+    public static final int BLOCK_HEADER_BYTES = 13;
+
+    // Larger blocks are taken to be corrupt rather than allocated
+    public static final int MAX_BLOCK_BYTES = 16 * 1024 * 1024;
+
+    public static final int INDEX_INTERVAL = 256;
+
+    // Record directions, the same values as LogModel
+    public static final int DIR_IN = LogModel.DIR_IN;
+    public static final int DIR_OUT = LogModel.DIR_OUT;
+    public static final int DIR_MARKER = 2;
+    public static final int DIR_META = 3;
+
+    // Tag of records that belong to no device
+    public static final int META_TAG = -1;
+
+    private CaptureFormat() {
+    }
+
+    static void putSegmentHeader(ByteBuffer dst, short flags, long wallMillis, long nanos) {
+        dst.putInt(SEGMENT_MAGIC);
+        dst.putShort(VERSION);
+        dst.putShort(flags);
+        dst.putLong(wallMillis);
+        dst.putLong(nanos);
+    }
+
+    static void putIndexHeader(ByteBuffer dst) {
+        dst.putInt(INDEX_MAGIC);
+        dst.putShort(VERSION);
+    }
+
+    static void checkHeader(int magic, int expectedMagic, short version) throws IOException {
+        if (magic != expectedMagic) {
+            throw new IOException("not a capture file, magic " + Integer.toHexString(magic));
+        }
+        if (version != VERSION) {
+            throw new IOException("unsupported capture version " + version);
+        }
+    }
+
+    /**
+     * Orders segments as they were written. Names are
+     * capture-<time>-<n>.cap, so by time and then by number, which sorts
+     * a writer's tenth segment after its ninth when both were started in
+     * the same second.
+     */
+    public static final Comparator<File> SEGMENT_ORDER = new Comparator<File>() {
+        public int compare(File a, File b) {
+            String nameA = a.getName();
+            String nameB = b.getName();
+            int dashA = nameA.lastIndexOf('-');
+            int dashB = nameB.lastIndexOf('-');
+            if (dashA >= 0 && dashB >= 0) {
+                int c = nameA.substring(0, dashA).compareTo(nameB.substring(0, dashB));
+                if (c != 0) return c;
+                c = segmentNumber(nameA, dashA) - segmentNumber(nameB, dashB);
+                if (c != 0) return c;
+            }
+            return nameA.compareTo(nameB);
+        }
+    };
+
+    /** The number after the last dash of a segment name, or -1. */
+    private static int segmentNumber(String name, int dash) {
+        int end = name.endsWith(SEGMENT_SUFFIX)
+                ? name.length() - SEGMENT_SUFFIX.length() : name.length();
+        try {
+            return Integer.parseInt(name.substring(dash + 1, end));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /** Index file that belongs to a segment. */
+    static File indexFor(File segment) {
+        String name = segment.getName();
+        if (name.endsWith(SEGMENT_SUFFIX)) {
+            name = name.substring(0, name.length() - SEGMENT_SUFFIX.length());
+        }
+        return new File(segment.getParentFile(), name + INDEX_SUFFIX);
+    }
+}
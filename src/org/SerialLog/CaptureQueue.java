@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock free single producer, single consumer queue of byte records,
+ * used to pass lines from one receive or send thread to the
+ * {@link CaptureWriter}.
+ * Records are copied into a fixed ring of bytes already laid out as
+ * {@link CaptureFormat} records, so offering a record never allocates and
+ * never blocks, and the writer copies them out unchanged. When the ring
+ * is full the record is dropped and counted instead.
+ */
+public class CaptureQueue {
+
+    private static final int HEADER_BYTES = CaptureFormat.RECORD_HEADER_BYTES;
+    private static final int TAG_OFFSET = 9;
+    private static final int LENGTH_OFFSET = 11;
+
+    private final byte[] mBuffer;
+    private final int mMask;
+    private final AtomicLong mHead = new AtomicLong(); // next byte to read
+    private final AtomicLong mTail = new AtomicLong(); // next byte to write
+    private long mHeadCache;                           // producer's view of mHead
+    private volatile long mDropped;
+    private volatile boolean mClosed;
+
+    /**
+     * @param capacity  Size of the ring in bytes, rounded up to a power of two
+     */
+    public CaptureQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 64) - 1) << 1;
+        mBuffer = new byte[size];
+        mMask = size - 1;
+    }
+
+    /**
+     * Add a record. Producer thread only.
+     * @param timestamp  Monotonic receive time, System.nanoTime()
+     * @param direction  CaptureFormat.DIR_IN, DIR_OUT, DIR_MARKER or DIR_META
+     * @param tag  Device session the record belongs to
+     * @return false if there was no room and the record was dropped
+     */
+    public boolean offer(long timestamp, int direction, int tag, byte[] data, int offset,
+            int length) {
+        int needed = HEADER_BYTES + length;
+        long tail = mTail.get();
+        if (needed > mBuffer.length - (tail - mHeadCache)) {
+            mHeadCache = mHead.get();
+            if (needed > mBuffer.length - (tail - mHeadCache)) {
+                mDropped++;
+                return false;
+            }
+        }
+        for (int i = 0; i < 8; i++) {
+            put(tail + i, (byte) (timestamp >>> (56 - 8 * i)));
+        }
+        put(tail + 8, (byte) direction);
+        put(tail + TAG_OFFSET, (byte) (tag >>> 8));
+        put(tail + TAG_OFFSET + 1, (byte) tag);
+        put(tail + LENGTH_OFFSET, (byte) (length >>> 24));
+        put(tail + LENGTH_OFFSET + 1, (byte) (length >>> 16));
+        put(tail + LENGTH_OFFSET + 2, (byte) (length >>> 8));
+        put(tail + LENGTH_OFFSET + 3, (byte) length);
+        copyIn(tail + HEADER_BYTES, data, offset, length);
+        // Publish the record to the consumer
+        mTail.lazySet(tail + needed);
+        return true;
+    }
+
+    /**
+     * Payload length of the next record, or -1 if the queue is empty.
+     * Consumer thread only.
+     */
+    public int peekLength() {
+        long head = mHead.get();
+        if (head == mTail.get()) return -1;
+        long at = head + LENGTH_OFFSET;
+        return (get(at) & 0xff) << 24 | (get(at + 1) & 0xff) << 16
+                | (get(at + 2) & 0xff) << 8 | (get(at + 3) & 0xff);
+    }
+
+    /**
+     * Timestamp of the next record. The caller must have checked with
+     * peekLength() that a record is there. Consumer thread only.
+     */
+    public long peekTimestamp() {
+        long head = mHead.get();
+        long timestamp = 0;
+        for (int i = 0; i < 8; i++) {
+            timestamp = timestamp << 8 | (get(head + i) & 0xff);
+        }
+        return timestamp;
+    }
+
+    /**
+     * Copy the next record, header included, into dst and remove it. The
+     * caller must have checked with peekLength() that a record is there
+     * and that RECORD_HEADER_BYTES plus its length fit. Consumer thread only.
+     * @return the number of bytes copied
+     */
+    public int poll(ByteBuffer dst) {
+        int size = HEADER_BYTES + peekLength();
+        long head = mHead.get();
+        int start = (int) (head & mMask);
+        int first = Math.min(size, mBuffer.length - start);
+        dst.put(mBuffer, start, first);
+        dst.put(mBuffer, 0, size - first);
+        // Hand the space back to the producer
+        mHead.lazySet(head + size);
+        return size;
+    }
+
+    /** Mark that the producer has finished with the queue. */
+    void close() {
+        mClosed = true;
+    }
+
+    boolean isClosed() {
+        return mClosed;
+    }
+
+    public boolean isEmpty() {
+        return mHead.get() == mTail.get();
+    }
+
+    /** Bytes currently queued, including record headers. */
+    public int getDepth() {
+        return (int) (mTail.get() - mHead.get());
+    }
+
+    public int getCapacity() {
+        return mBuffer.length;
+    }
+
+    /** Records dropped because the queue was full. */
+    public long getDropped() {
+        return mDropped;
+    }
+
+    private void put(long position, byte b) {
+        mBuffer[(int) (position & mMask)] = b;
+    }
+
+    private byte get(long position) {
+        return mBuffer[(int) (position & mMask)];
+    }
+
+    private void copyIn(long position, byte[] data, int offset, int length) {
+        int start = (int) (position & mMask);
+        int first = Math.min(length, mBuffer.length - start);
+        System.arraycopy(data, offset, mBuffer, start, first);
+        System.arraycopy(data, offset + first, mBuffer, 0, length - first);
+    }
+}
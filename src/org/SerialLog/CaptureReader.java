@@ -0,0 +1,396 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Reads a capture segment written by {@link CaptureWriter}. Opening a
+ * segment reads only its header and sparse index; {@link #seekTime(long)},
+ * {@link #seekWallClock(long)} and {@link #seekLine(long)} binary search
+ * the index and then scan forward at most one index interval. Records
+ * are then read in order with {@link #next()} into a reused buffer.
+ *
+ * In a segment of blocks the index names blocks, and a seek decodes the
+ * one block that holds the record it looks for.
+ */
+public class CaptureReader {
+
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+
+    private final File mFile;
+    private final FileChannel mChannel;
+    private final long mStartWallMillis;
+    private final long mStartNanos;
+    private final short mFlags;
+
+    // Sparse index, one entry per INDEX_INTERVAL records
+    private long[] mIndexTimes;
+    private long[] mIndexLines;
+    private long[] mIndexOffsets;
+    private int mIndexSize;
+
+    private DataInputStream mIn;
+    private long mPosition;
+    private long mLine;
+
+    // Current record
+    private long mTimestamp;
+    private int mDirection;
+    private int mTag;
+    private int mLength;
+    private byte[] mData = new byte[1024];
+    private long mRecordLine;
+    private long mRecordOffset;
+
+    // Current block, in a segment of blocks
+    private final ByteBuffer mBlockHeader = ByteBuffer.allocate(CaptureFormat.BLOCK_HEADER_BYTES);
+    private final DeltaVarint mBlockIn = new DeltaVarint();
+    private byte[] mBlockStored = new byte[0];
+    private byte[] mBlockRaw = new byte[0];
+    private long mBlockOffset;
+    private long mNextBlockOffset;
+    private int mRecordPosition;
+    private long mRecordPrevious;
+
+    public CaptureReader(File segment) throws IOException {
+        mFile = segment;
+        mChannel = new FileInputStream(segment).getChannel();
+        try {
+            DataInputStream header = new DataInputStream(Channels.newInputStream(mChannel));
+            int magic = header.readInt();
+            short version = header.readShort();
+            CaptureFormat.checkHeader(magic, CaptureFormat.SEGMENT_MAGIC, version);
+            mFlags = header.readShort();
+            mStartWallMillis = header.readLong();
+            mStartNanos = header.readLong();
+            readIndex(CaptureFormat.indexFor(segment));
+            seekEntry(0);
+        } catch (IOException e) {
+            mChannel.close();
+            throw e;
+        }
+    }
+
+    private void readIndex(File file) throws IOException {
+        mIndexTimes = new long[16];
+        mIndexLines = new long[16];
+        mIndexOffsets = new long[16];
+        // Without an index every seek scans from the first record
+        addIndexEntry(Long.MIN_VALUE, 0, CaptureFormat.SEGMENT_HEADER_BYTES);
+        if (!file.exists()) return;
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file)));
+        try {
+            CaptureFormat.checkHeader(in.readInt(), CaptureFormat.INDEX_MAGIC, in.readShort());
+            long size = mChannel.size();
+            while (true) {
+                long time = in.readLong();
+                long line = in.readLong();
+                long offset = in.readLong();
+                // Entries past the data were written by a later flush than
+                // the data that survived; ignore them
+                if (offset >= size) break;
+                if (line == 0) {
+                    mIndexTimes[0] = time;
+                } else {
+                    addIndexEntry(time, line, offset);
+                }
+            }
+        } catch (EOFException e) {
+            // End of index, possibly a partly written entry
+        } finally {
+            in.close();
+        }
+    }
+
+    private void addIndexEntry(long time, long line, long offset) {
+        if (mIndexSize == mIndexTimes.length) {
+            int size = mIndexSize * 2;
+            mIndexTimes = Arrays.copyOf(mIndexTimes, size);
+            mIndexLines = Arrays.copyOf(mIndexLines, size);
+            mIndexOffsets = Arrays.copyOf(mIndexOffsets, size);
+        }
+        mIndexTimes[mIndexSize] = time;
+        mIndexLines[mIndexSize] = line;
+        mIndexOffsets[mIndexSize] = offset;
+        mIndexSize++;
+    }
+
+    /** Index of the last entry whose key is at most key. */
+    private static int floorEntry(long[] keys, int size, long key) {
+        int entry = Arrays.binarySearch(keys, 0, size, key);
+        if (entry < 0) entry = -entry - 2;
+        return Math.max(entry, 0);
+    }
+
+    private boolean isBlocks() {
+        return (mFlags & CaptureFormat.FLAG_BLOCKS) != 0;
+    }
+
+    private void seekEntry(int entry) throws IOException {
+        mPosition = mIndexOffsets[entry];
+        mLine = mIndexLines[entry];
+        if (isBlocks()) {
+            // The block is decoded by the first next()
+            mNextBlockOffset = mPosition;
+            mBlockIn.reset(mBlockRaw, 0, 0);
+            return;
+        }
+        mChannel.position(mPosition);
+        mIn = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(mChannel), READ_BUFFER_BYTES));
+    }
+
+    /**
+     * Position before the first record received at or after a time.
+     * @param nanos  Monotonic time, on the same clock as getStartNanos()
+     */
+    public void seekTime(long nanos) throws IOException {
+        // Records just before an entry can share its time, so start from
+        // the last entry that is strictly earlier
+        int entry = nanos == Long.MIN_VALUE ? 0
+                : floorEntry(mIndexTimes, mIndexSize, nanos - 1);
+        seekEntry(entry);
+        while (next()) {
+            if (mTimestamp >= nanos) {
+                rewind();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Position before the first record received at or after a wall
+     * clock time.
+     * @param millis  Milliseconds since the epoch
+     */
+    public void seekWallClock(long millis) throws IOException {
+        seekTime(mStartNanos + (millis - mStartWallMillis) * 1000000L);
+    }
+
+    /** Position before the record with the given number. */
+    public void seekLine(long line) throws IOException {
+        seekEntry(floorEntry(mIndexLines, mIndexSize, line));
+        while (mLine < line && next()) {
+        }
+    }
+
+    /** Step back over the record just read. */
+    private void rewind() throws IOException {
+        long line = mRecordLine;
+        if (isBlocks()) {
+            // The record is in the block still loaded
+            mBlockIn.setPosition(mRecordPosition, mRecordPrevious);
+            mLine = line;
+            return;
+        }
+        mChannel.position(mRecordOffset);
+        mIn = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(mChannel), READ_BUFFER_BYTES));
+        mPosition = mRecordOffset;
+        mLine = line;
+    }
+
+    /**
+     * Read the next record.
+     * @return false at the end of the segment, including a partly
+     *         written last record
+     */
+    public boolean next() throws IOException {
+        if (isBlocks()) return nextInBlock();
+        try {
+            long timestamp = mIn.readLong();
+            int direction = mIn.readByte();
+            int tag = mIn.readShort();
+            int length = mIn.readInt();
+            if (length < 0) throw new IOException("corrupt record at " + mPosition);
+            if (length > mData.length) {
+                mData = new byte[Math.max(length, mData.length * 2)];
+            }
+            mIn.readFully(mData, 0, length);
+            mTimestamp = timestamp;
+            mDirection = direction;
+            mTag = tag;
+            mLength = length;
+        } catch (EOFException e) {
+            return false;
+        }
+        mRecordOffset = mPosition;
+        mRecordLine = mLine;
+        mPosition += CaptureFormat.RECORD_HEADER_BYTES + mLength;
+        mLine++;
+        return true;
+    }
+
+    private boolean nextInBlock() throws IOException {
+        if (!mBlockIn.hasRemaining() && !readBlock()) return false;
+        mRecordPosition = mBlockIn.getPosition();
+        mRecordPrevious = mBlockIn.getPrevious();
+        int length;
+        if ((mFlags & CaptureFormat.FLAG_DELTA) != 0) {
+            mTimestamp = mBlockIn.getDelta();
+            mDirection = mBlockIn.getByte();
+            // Stored unsigned; read back as the short it was written from
+            mTag = (short) mBlockIn.getUnsigned();
+            length = (int) mBlockIn.getUnsigned();
+        } else {
+            mTimestamp = mBlockIn.getFixed(8);
+            mDirection = mBlockIn.getByte();
+            mTag = (short) mBlockIn.getFixed(2);
+            length = (int) mBlockIn.getFixed(4);
+        }
+        if (length < 0) throw new IOException("corrupt record in block at " + mBlockOffset);
+        if (length > mData.length) {
+            mData = new byte[Math.max(length, mData.length * 2)];
+        }
+        mBlockIn.getBytes(mData, 0, length);
+        mLength = length;
+        mRecordOffset = mBlockOffset;
+        mRecordLine = mLine;
+        mLine++;
+        return true;
+    }
+
+    /**
+     * Read and decode the block at mNextBlockOffset.
+     * @return false at the end of the segment, including a partly
+     *         written last block
+     */
+    private boolean readBlock() throws IOException {
+        long offset = mNextBlockOffset;
+        long size = mChannel.size();
+        if (size - offset < CaptureFormat.BLOCK_HEADER_BYTES) return false;
+        mBlockHeader.clear();
+        readFully(mBlockHeader, offset);
+        int stored = mBlockHeader.getInt(0);
+        int raw = mBlockHeader.getInt(4);
+        int codec = mBlockHeader.get(12);
+        if (stored < 0 || raw < 0 || stored > CaptureFormat.MAX_BLOCK_BYTES
+                || raw > CaptureFormat.MAX_BLOCK_BYTES) {
+            throw new IOException("corrupt block at " + offset);
+        }
+        if (size - offset - CaptureFormat.BLOCK_HEADER_BYTES < stored) return false;
+        if (mBlockStored.length < stored) mBlockStored = new byte[stored];
+        readFully(ByteBuffer.wrap(mBlockStored, 0, stored), offset + CaptureFormat.BLOCK_HEADER_BYTES);
+        byte[] data;
+        switch (codec) {
+        case CaptureFormat.CODEC_STORED:
+            if (raw != stored) throw new IOException("corrupt block at " + offset);
+            data = mBlockStored;
+            break;
+        case CaptureFormat.CODEC_LZ4:
+            if (mBlockRaw.length < raw) mBlockRaw = new byte[raw];
+            if (Lz4.decompress(mBlockStored, 0, stored, mBlockRaw, 0, raw) != raw) {
+                throw new IOException("corrupt block at " + offset);
+            }
+            data = mBlockRaw;
+            break;
+        default:
+            throw new IOException("unknown codec " + codec + " in block at " + offset);
+        }
+        mBlockIn.reset(data, 0, raw);
+        mBlockOffset = offset;
+        mNextBlockOffset = offset + CaptureFormat.BLOCK_HEADER_BYTES + stored;
+        mPosition = mBlockOffset;
+        return raw > 0 || readBlock();
+    }
+
+    private void readFully(ByteBuffer dst, long position) throws IOException {
+        while (dst.hasRemaining()) {
+            int read = mChannel.read(dst, position);
+            if (read < 0) throw new EOFException();
+            position += read;
+        }
+    }
+
+    public void close() throws IOException {
+        mChannel.close();
+    }
+
+    /** CaptureFormat.FLAG_BLOCKS and FLAG_DELTA as the segment was written. */
+    public short getFlags() {
+        return mFlags;
+    }
+
+    public File getFile() {
+        return mFile;
+    }
+
+    /** Wall clock time the segment was started, ms since the epoch. */
+    public long getStartWallMillis() {
+        return mStartWallMillis;
+    }
+
+    /** Monotonic time the segment was started. */
+    public long getStartNanos() {
+        return mStartNanos;
+    }
+
+    /** Convert a record timestamp to wall clock time, ms since the epoch. */
+    public long toWallMillis(long nanos) {
+        return mStartWallMillis + (nanos - mStartNanos) / 1000000L;
+    }
+
+    /** Number of entries in the sparse index. */
+    public int getIndexSize() {
+        return mIndexSize;
+    }
+
+    /** Size of the segment file in bytes. */
+    public long getSize() throws IOException {
+        return mChannel.size();
+    }
+
+    /**
+     * File offset of the next record to be read, or in a segment of
+     * blocks that of the block being read.
+     */
+    public long getPosition() {
+        return mPosition;
+    }
+
+    /** Monotonic receive time of the current record. */
+    public long getTimestamp() {
+        return mTimestamp;
+    }
+
+    /** CaptureFormat.DIR_IN, DIR_OUT, DIR_MARKER or DIR_META. */
+    public int getDirection() {
+        return mDirection;
+    }
+
+    /** Device session the current record belongs to. */
+    public int getTag() {
+        return mTag;
+    }
+
+    /** Current record payload; only the first getLength() bytes are valid. */
+    public byte[] getData() {
+        return mData;
+    }
+
+    public int getLength() {
+        return mLength;
+    }
+
+    /** Number of the current record within the segment, from 0. */
+    public long getLineNumber() {
+        return mRecordLine;
+    }
+}
@@ -0,0 +1,603 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Appends every received and sent line to capture files in app storage,
+ * in the {@link CaptureFormat} layout. Each producing thread opens its
+ * own {@link CaptureQueue} and hands lines over through it without ever
+ * waiting; a dedicated thread merges the queues in timestamp order into a direct buffer and
+ * commits it to the file in one write per flush interval, or sooner when
+ * the buffer fills. The sparse index is written after the data it points
+ * to. Files are rolled over into a new segment once they reach a size or
+ * age limit.
+ *
+ * By default each committed buffer is stored as one block, its record
+ * headers packed as deltas and varints and the whole compressed with
+ * {@link Lz4}, so the producers never pay for compression and a reader
+ * can decode any block on its own. A block that does not shrink is
+ * stored as it is.
+ *
+ * If a write fails, for instance because storage is full, the writer
+ * thread ends and the capture stops: the segment is closed, the
+ * {@link Listener} is told, and later lines are refused and counted as
+ * dropped.
+ *
+ * Has no Android dependencies; the app logs what its listener is told.
+ */
+public class CaptureWriter {
+
+    /** Told, on the writer thread, of new segments and of errors. */
+    public interface Listener {
+        /** A segment has been started; the one before it is complete. */
+        void onSegmentOpened(File segment);
+
+        /** Capture has stopped on an error. */
+        void onCaptureFailed(IOException e);
+    }
+
+    public static final int DEFAULT_QUEUE_BYTES = 1024 * 1024;
+    public static final int DEFAULT_BLOCK_BYTES = 64 * 1024;
+    public static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+    public static final long DEFAULT_SEGMENT_MILLIS = TimeUnit.HOURS.toMillis(1);
+    public static final long DEFAULT_FLUSH_MILLIS = 1000;
+    public static final short DEFAULT_FLAGS = CaptureFormat.FLAG_BLOCKS | CaptureFormat.FLAG_DELTA;
+
+    private final File mDir;
+    private final int mQueueBytes;
+    // Replaced, never modified, under mQueueLock
+    private final Object mQueueLock = new Object();
+    private volatile CaptureQueue[] mQueues = new CaptureQueue[0];
+    private volatile long mRetiredDropped;
+    private final ByteBuffer mBlock;
+    private final ByteBuffer mIndexBlock;
+    private final long mSegmentBytes;
+    private final long mSegmentMillis;
+    private final long mFlushNanos;
+    private volatile short mFlags = DEFAULT_FLAGS;
+    private volatile int mCodec = CaptureFormat.CODEC_LZ4;
+
+    // Block encoding scratch space, owned by the writer thread
+    private final byte[] mRaw;
+    private final byte[] mPacked;
+    private final byte[] mCompressed;
+    private final int[] mHashTable = new int[Lz4.HASH_TABLE_SIZE];
+    private final ByteBuffer mBlockHeader = ByteBuffer.allocate(CaptureFormat.BLOCK_HEADER_BYTES);
+    private final DeltaVarint mPacker = new DeltaVarint();
+
+    private volatile WriterThread mThread;
+    private volatile boolean mStopping;
+    private volatile Listener mListener;
+    private volatile IOException mFailure;
+
+    // Owned by the writer thread
+    private FileChannel mChannel;
+    private FileChannel mIndexChannel;
+    private File mSegment;
+    private long mSegmentStart;
+    private long mSegmentSize;
+    private int mSegmentCount;
+    private long mSegmentRecords;
+    private short mSegmentFlags;
+    // mSegment while it is open, for other threads
+    private volatile File mOpenSegment;
+    private int mBlockRecords;
+    private long mLastTimestamp;
+    private long mLastFlush;
+
+    // Counters, written by the writer thread only
+    private volatile long mBytesWritten;
+    private volatile long mRawBytesWritten;
+    private volatile long mLinesWritten;
+    // Lines refused by offer(), from any producing thread
+    private final AtomicLong mRefused = new AtomicLong();
+    private volatile long mFlushes;
+    private volatile long mFlushNanosTotal;
+    private volatile long mFlushNanosMax;
+    private volatile long mLastFlushNanos;
+
+    public CaptureWriter(File dir) {
+        this(dir, DEFAULT_QUEUE_BYTES, DEFAULT_BLOCK_BYTES, DEFAULT_SEGMENT_BYTES,
+                DEFAULT_SEGMENT_MILLIS, DEFAULT_FLUSH_MILLIS);
+    }
+
+    /**
+     * @param dir  Directory that capture segments are written to
+     * @param queueBytes  Default size of the hand-off queue opened by each
+     *                    producing thread
+     * @param blockBytes  Size of the buffer committed to the file at once
+     * @param segmentBytes  Size at which a new segment is started
+     * @param segmentMillis  Age at which a new segment is started
+     * @param flushMillis  Longest time a line waits before it is written
+     */
+    public CaptureWriter(File dir, int queueBytes, int blockBytes, long segmentBytes,
+            long segmentMillis, long flushMillis) {
+        mDir = dir;
+        mQueueBytes = queueBytes;
+        mBlock = ByteBuffer.allocateDirect(blockBytes);
+        // Worst case one entry per record in a block of empty lines
+        mIndexBlock = ByteBuffer.allocate(CaptureFormat.INDEX_HEADER_BYTES
+                + (blockBytes / CaptureFormat.RECORD_HEADER_BYTES / CaptureFormat.INDEX_INTERVAL + 2)
+                * CaptureFormat.INDEX_ENTRY_BYTES);
+        mRaw = new byte[blockBytes];
+        // Packing can lengthen a record header by up to 4 bytes
+        mPacked = new byte[blockBytes + blockBytes / CaptureFormat.RECORD_HEADER_BYTES * 4
+                + DeltaVarint.MAX_VARINT_BYTES];
+        mCompressed = new byte[Lz4.maxCompressedLength(mPacked.length)];
+        mSegmentBytes = segmentBytes;
+        mSegmentMillis = segmentMillis;
+        mFlushNanos = TimeUnit.MILLISECONDS.toNanos(flushMillis);
+    }
+
+    /**
+     * Choose how segments are stored, from the next segment on.
+     * @param flags  0 for plain records, or CaptureFormat.FLAG_BLOCKS
+     *               with FLAG_DELTA if record headers are to be packed
+     * @param codec  CaptureFormat.CODEC_LZ4 or CODEC_STORED, for blocks
+     */
+    public void setEncoding(short flags, int codec) {
+        if ((flags & CaptureFormat.FLAG_BLOCKS) == 0) flags = 0;
+        mFlags = flags;
+        mCodec = codec;
+    }
+
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    public synchronized void start() {
+        if (mThread != null) return;
+        mStopping = false;
+        mFailure = null;
+        mThread = new WriterThread();
+        mThread.start();
+    }
+
+    /** Write out everything queued so far, then stop the writer thread. */
+    public synchronized void stop() {
+        if (mThread == null) return;
+        mStopping = true;
+        LockSupport.unpark(mThread);
+        try {
+            mThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        mThread = null;
+    }
+
+    /** Open a hand-off queue of the default size. */
+    public CaptureQueue openQueue() {
+        return openQueue(mQueueBytes);
+    }
+
+    /**
+     * Open a hand-off queue for one producing thread. The queue is merged
+     * into the capture until it is closed with closeQueue().
+     * @param bytes  Size of the queue
+     */
+    public CaptureQueue openQueue(int bytes) {
+        CaptureQueue queue = new CaptureQueue(bytes);
+        synchronized (mQueueLock) {
+            CaptureQueue[] queues = Arrays.copyOf(mQueues, mQueues.length + 1);
+            queues[queues.length - 1] = queue;
+            mQueues = queues;
+        }
+        return queue;
+    }
+
+    /**
+     * Stop using a queue. Lines already in it are still written; the
+     * writer forgets the queue once it is empty.
+     */
+    public void closeQueue(CaptureQueue queue) {
+        queue.close();
+        WriterThread thread = mThread;
+        if (thread != null) LockSupport.unpark(thread);
+    }
+
+    /** Forget closed queues that have been drained. Writer thread only. */
+    private void retireQueues() {
+        synchronized (mQueueLock) {
+            CaptureQueue[] queues = mQueues;
+            int open = 0;
+            for (CaptureQueue queue : queues) {
+                if (!queue.isClosed() || !queue.isEmpty()) open++;
+            }
+            if (open == queues.length) return;
+            CaptureQueue[] kept = new CaptureQueue[open];
+            int i = 0;
+            for (CaptureQueue queue : queues) {
+                if (!queue.isClosed() || !queue.isEmpty()) {
+                    kept[i++] = queue;
+                } else {
+                    mRetiredDropped += queue.getDropped();
+                }
+            }
+            mQueues = kept;
+        }
+    }
+
+    /**
+     * Queue a line for writing; never blocks, and drops the line if the
+     * queue is full. Only one thread may offer to a given queue.
+     * @param queue  Queue opened by the calling thread
+     * @param timestamp  Monotonic time the line was received or sent
+     * @param direction  CaptureFormat.DIR_IN, DIR_OUT, DIR_MARKER or DIR_META
+     * @param tag  Device session the line belongs to
+     * @return false if the line was dropped
+     */
+    public boolean offer(CaptureQueue queue, long timestamp, int direction, int tag,
+            byte[] data, int offset, int length) {
+        if (mFailure != null) {
+            // Nothing drains the queues any more
+            mRefused.incrementAndGet();
+            return false;
+        }
+        if (CaptureFormat.RECORD_HEADER_BYTES + length > mBlock.capacity()
+                - CaptureFormat.SEGMENT_HEADER_BYTES) {
+            // Would never fit in a block
+            mRefused.incrementAndGet();
+            return false;
+        }
+        boolean queued = queue.offer(timestamp, direction, tag, data, offset, length);
+        // Wake the writer early rather than let the queue fill up
+        WriterThread thread = mThread;
+        if (thread != null && queue.getDepth() > queue.getCapacity() / 2) {
+            LockSupport.unpark(thread);
+        }
+        return queued;
+    }
+
+    private class WriterThread extends Thread {
+        public WriterThread() {
+            super("CaptureWriter");
+        }
+
+        public void run() {
+            mLastFlush = System.nanoTime();
+            try {
+                while (true) {
+                    boolean stopping = mStopping;
+                    drain();
+                    long now = System.nanoTime();
+                    if (mBlock.position() > 0 && (stopping || now - mLastFlush >= mFlushNanos)) {
+                        flush();
+                    }
+                    retireQueues();
+                    boolean empty = isEmpty();
+                    if (stopping && empty) break;
+                    if (empty) LockSupport.parkNanos(mFlushNanos);
+                }
+            } catch (IOException e) {
+                mFailure = e;
+            }
+            try {
+                closeSegment();
+            } catch (IOException e) {
+                if (mFailure == null) mFailure = e;
+            }
+            IOException failure = mFailure;
+            Listener listener = mListener;
+            if (failure != null && listener != null) listener.onCaptureFailed(failure);
+        }
+    }
+
+    private boolean isEmpty() {
+        for (CaptureQueue queue : mQueues) {
+            if (!queue.isEmpty()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Move queued lines into the block, oldest first across all queues,
+     * flushing whenever the block fills.
+     */
+    private void drain() throws IOException {
+        CaptureQueue[] queues = mQueues;
+        while (true) {
+            // There is one queue per producing thread, a handful at most,
+            // so a linear search for the oldest record is cheapest
+            CaptureQueue queue = null;
+            int length = -1;
+            long oldest = Long.MAX_VALUE;
+            for (CaptureQueue candidate : queues) {
+                int candidateLength = candidate.peekLength();
+                if (candidateLength < 0) continue;
+                long timestamp = candidate.peekTimestamp();
+                if (queue == null || timestamp < oldest) {
+                    queue = candidate;
+                    length = candidateLength;
+                    oldest = timestamp;
+                }
+            }
+            if (queue == null) return;
+            if (CaptureFormat.RECORD_HEADER_BYTES + length > mBlock.remaining()) flush();
+            if (mChannel == null) openSegment();
+
+            // Timestamps from different queues can interleave slightly out
+            // of order; keep the index monotonic so it can be searched
+            long timestamp = Math.max(oldest, mLastTimestamp);
+            mLastTimestamp = timestamp;
+            if ((mSegmentFlags & CaptureFormat.FLAG_BLOCKS) != 0) {
+                // One entry per block, pointing at the block
+                if (mBlockRecords == 0) {
+                    mIndexBlock.putLong(timestamp);
+                    mIndexBlock.putLong(mSegmentRecords);
+                    mIndexBlock.putLong(mSegmentSize);
+                }
+            } else if (mSegmentRecords % CaptureFormat.INDEX_INTERVAL == 0) {
+                mIndexBlock.putLong(timestamp);
+                mIndexBlock.putLong(mSegmentRecords);
+                mIndexBlock.putLong(mSegmentSize + mBlock.position());
+            }
+            queue.poll(mBlock);
+            mSegmentRecords++;
+            mBlockRecords++;
+            mLinesWritten++;
+        }
+    }
+
+    /**
+     * Commit the block to the current segment as a single write, then the
+     * index entries for it. Starts a new segment afterwards if this one
+     * is full or too old.
+     */
+    private void flush() throws IOException {
+        if (mChannel == null) return;
+        long start = System.nanoTime();
+        mBlock.flip();
+        int raw = mBlock.remaining();
+        int bytes;
+        if ((mSegmentFlags & CaptureFormat.FLAG_BLOCKS) != 0) {
+            bytes = writeBlock();
+        } else {
+            bytes = raw;
+            while (mBlock.hasRemaining()) {
+                mChannel.write(mBlock);
+            }
+        }
+        mChannel.force(false);
+        mBlock.clear();
+        mBlockRecords = 0;
+        mIndexBlock.flip();
+        while (mIndexBlock.hasRemaining()) {
+            mIndexChannel.write(mIndexBlock);
+        }
+        mIndexBlock.clear();
+
+        long end = System.nanoTime();
+        long latency = end - start;
+        mSegmentSize += bytes;
+        mBytesWritten += bytes;
+        mRawBytesWritten += raw;
+        mFlushes++;
+        mFlushNanosTotal += latency;
+        mLastFlushNanos = latency;
+        if (latency > mFlushNanosMax) mFlushNanosMax = latency;
+        mLastFlush = end;
+
+        if (mSegmentSize >= mSegmentBytes
+                || System.currentTimeMillis() - mSegmentStart >= mSegmentMillis) {
+            closeSegment();
+        }
+    }
+
+    /**
+     * Encode the records in the block as one stored block and write it.
+     * @return  Number of bytes written
+     */
+    private int writeBlock() throws IOException {
+        int length = mBlock.remaining();
+        mBlock.get(mRaw, 0, length);
+        byte[] data = mRaw;
+        if ((mSegmentFlags & CaptureFormat.FLAG_DELTA) != 0) {
+            length = pack(length);
+            data = mPacked;
+        }
+        int codec = CaptureFormat.CODEC_STORED;
+        int stored = length;
+        if (mCodec == CaptureFormat.CODEC_LZ4) {
+            int compressed = Lz4.compress(data, 0, length, mCompressed, 0, mHashTable);
+            if (compressed < length) {
+                codec = CaptureFormat.CODEC_LZ4;
+                stored = compressed;
+                data = mCompressed;
+            }
+        }
+        mBlockHeader.clear();
+        mBlockHeader.putInt(stored);
+        mBlockHeader.putInt(length);
+        mBlockHeader.putInt(mBlockRecords);
+        mBlockHeader.put((byte) codec);
+        mBlockHeader.flip();
+        ByteBuffer[] buffers = { mBlockHeader, ByteBuffer.wrap(data, 0, stored) };
+        while (buffers[1].hasRemaining()) {
+            mChannel.write(buffers);
+        }
+        return CaptureFormat.BLOCK_HEADER_BYTES + stored;
+    }
+
+    /**
+     * Repack the plain records in mRaw into mPacked with delta and varint
+     * headers.
+     * @return  Packed length
+     */
+    private int pack(int length) {
+        mPacker.reset(mPacked, 0, mPacked.length);
+        int position = 0;
+        while (position < length) {
+            long timestamp = 0;
+            for (int i = 0; i < 8; i++) timestamp = (timestamp << 8) | (mRaw[position++] & 0xff);
+            int direction = mRaw[position++];
+            int tag = (mRaw[position] & 0xff) << 8 | (mRaw[position + 1] & 0xff);
+            position += 2;
+            int size = (mRaw[position] & 0xff) << 24 | (mRaw[position + 1] & 0xff) << 16
+                    | (mRaw[position + 2] & 0xff) << 8 | (mRaw[position + 3] & 0xff);
+            position += 4;
+            mPacker.putDelta(timestamp);
+            mPacker.putByte(direction);
+            mPacker.putUnsigned(tag);
+            mPacker.putUnsigned(size);
+            mPacker.putBytes(mRaw, position, size);
+            position += size;
+        }
+        return mPacker.getPosition();
+    }
+
+    /** Start a new segment; the block must be empty. */
+    private void openSegment() throws IOException {
+        if (!mDir.isDirectory() && !mDir.mkdirs()) {
+            throw new IOException("cannot create " + mDir);
+        }
+        mSegmentStart = System.currentTimeMillis();
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US)
+                .format(new Date(mSegmentStart));
+        mSegment = new File(mDir, "capture-" + stamp + "-" + mSegmentCount++
+                + CaptureFormat.SEGMENT_SUFFIX);
+        mChannel = new FileOutputStream(mSegment).getChannel();
+        mIndexChannel = new FileOutputStream(CaptureFormat.indexFor(mSegment)).getChannel();
+        mSegmentSize = 0;
+        mSegmentRecords = 0;
+        mLastTimestamp = Long.MIN_VALUE;
+        mSegmentFlags = mFlags;
+        mBlockRecords = 0;
+        if ((mSegmentFlags & CaptureFormat.FLAG_BLOCKS) != 0) {
+            // Blocks hold only records, so the header goes out on its own
+            ByteBuffer header = ByteBuffer.allocate(CaptureFormat.SEGMENT_HEADER_BYTES);
+            CaptureFormat.putSegmentHeader(header, mSegmentFlags, mSegmentStart, System.nanoTime());
+            header.flip();
+            while (header.hasRemaining()) {
+                mChannel.write(header);
+            }
+            mSegmentSize = CaptureFormat.SEGMENT_HEADER_BYTES;
+            mBytesWritten += CaptureFormat.SEGMENT_HEADER_BYTES;
+        } else {
+            CaptureFormat.putSegmentHeader(mBlock, (short) 0, mSegmentStart, System.nanoTime());
+        }
+        CaptureFormat.putIndexHeader(mIndexBlock);
+        mOpenSegment = mSegment;
+        Listener listener = mListener;
+        if (listener != null) listener.onSegmentOpened(mSegment);
+    }
+
+    private void closeSegment() throws IOException {
+        if (mChannel == null) return;
+        FileChannel channel = mChannel;
+        FileChannel indexChannel = mIndexChannel;
+        mChannel = null;
+        mIndexChannel = null;
+        mOpenSegment = null;
+        try {
+            channel.close();
+        } finally {
+            indexChannel.close();
+        }
+    }
+
+    /**
+     * The segment being written, which is still growing and may end part
+     * way through a block, or null between segments.
+     */
+    public File getOpenSegment() {
+        return mOpenSegment;
+    }
+
+    /** Directory that capture segments are written to. */
+    public File getDirectory() {
+        return mDir;
+    }
+
+    public long getBytesWritten() {
+        return mBytesWritten;
+    }
+
+    /** Bytes the written records took before block encoding. */
+    public long getRawBytesWritten() {
+        return mRawBytesWritten;
+    }
+
+    /** Raw bytes per byte written; 1 for plain segments. */
+    public double getCompressionRatio() {
+        long written = mBytesWritten;
+        return written > 0 ? (double) mRawBytesWritten / written : 1;
+    }
+
+    public long getLinesWritten() {
+        return mLinesWritten;
+    }
+
+    public long getFlushes() {
+        return mFlushes;
+    }
+
+    public long getLastFlushNanos() {
+        return mLastFlushNanos;
+    }
+
+    public long getMaxFlushNanos() {
+        return mFlushNanosMax;
+    }
+
+    public long getMeanFlushNanos() {
+        long flushes = mFlushes;
+        return flushes > 0 ? mFlushNanosTotal / flushes : 0;
+    }
+
+    /** Bytes waiting in the hand-off queues. */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (CaptureQueue queue : mQueues) {
+            depth += queue.getDepth();
+        }
+        return depth;
+    }
+
+    /**
+     * The error that stopped capture, or null while it is running or if
+     * it was stopped by stop().
+     */
+    public IOException getFailure() {
+        return mFailure;
+    }
+
+    /**
+     * Lines dropped because a hand-off queue was full, they were too long
+     * or capture had failed.
+     */
+    public long getDropped() {
+        long dropped = mRetiredDropped + mRefused.get();
+        for (CaptureQueue queue : mQueues) {
+            dropped += queue.getDropped();
+        }
+        return dropped;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d lines, %d bytes (%.1fx) in %d flushes (mean %.2f ms, max %.2f ms), "
+                + "queue %d bytes, %d dropped%s", mLinesWritten, mBytesWritten,
+                getCompressionRatio(), mFlushes,
+                getMeanFlushNanos() / 1e6, mFlushNanosMax / 1e6, getQueueDepth(), getDropped(),
+                mFailure != null ? ", failed: " + mFailure.getMessage() : "");
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.Pipe;
+import java.nio.channels.ScatteringByteChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * {@link Transport} over NIO channels: a TCP connection to a serial
+ * bridge such as ser2net, or an in-process loopback made of two pipes.
+ *
+ * Reads scatter into a pair of direct buffers, so one system call can
+ * take a backlog larger than the first buffer, and are then copied out to
+ * the caller. Writes go through a direct buffer. Nothing is allocated per
+ * read or write.
+ *
+ * close() aborts a TCP connect in progress as well as a blocked read or
+ * write, and a connect that gets no answer gives up after
+ * {@value #CONNECT_TIMEOUT_MS} ms. Has no Android dependencies.
+ */
+public class ChannelTransport implements Transport {
+
+    private static final int BUFFER_BYTES = 8 * 1024;
+
+    public static final int CONNECT_TIMEOUT_MS = 10000;
+
+    private final String mName;
+    private final InetSocketAddress mAddress;
+    // Published before a connect so that close() can abort it
+    private volatile ScatteringByteChannel mSource;
+    private volatile GatheringByteChannel mSink;
+    private volatile boolean mClosed;
+    private final Object mWriteLock = new Object();
+    private final ByteBuffer[] mReadBuffers = {
+            ByteBuffer.allocateDirect(BUFFER_BYTES), ByteBuffer.allocateDirect(BUFFER_BYTES) };
+    private final ByteBuffer mWriteBuffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private int mReadIndex; // buffer being copied out, or -1 when both are drained
+
+    private ChannelTransport(String name, InetSocketAddress address,
+            ScatteringByteChannel source, GatheringByteChannel sink) {
+        mName = name;
+        mAddress = address;
+        mSource = source;
+        mSink = sink;
+        mReadIndex = -1;
+    }
+
+    /** A transport that connects to a TCP serial bridge. */
+    public static ChannelTransport tcp(String host, int port) {
+        return new ChannelTransport(host + ":" + port,
+                InetSocketAddress.createUnresolved(host, port), null, null);
+    }
+
+    /**
+     * Two connected transports; whatever is written to one is read from
+     * the other. Element 0 is the app's end, element 1 the device's.
+     */
+    public static ChannelTransport[] loopback() throws IOException {
+        Pipe toApp = Pipe.open();
+        Pipe toDevice = Pipe.open();
+        return new ChannelTransport[] {
+                new ChannelTransport("loopback", null, toApp.source(), toDevice.sink()),
+                new ChannelTransport("loopback device", null, toDevice.source(), toApp.sink()) };
+    }
+
+    public void connect() throws IOException {
+        if (mAddress == null) return;
+        SocketChannel channel = SocketChannel.open();
+        mSource = channel;
+        mSink = channel;
+        try {
+            // close() may have run before the channel was published
+            if (mClosed) throw new IOException("closed");
+            channel.socket().setTcpNoDelay(true);
+            channel.socket().connect(
+                    new InetSocketAddress(mAddress.getHostName(), mAddress.getPort()),
+                    CONNECT_TIMEOUT_MS);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (mReadIndex < 0) {
+            mReadBuffers[0].clear();
+            mReadBuffers[1].clear();
+            long bytes = mSource.read(mReadBuffers);
+            if (bytes < 0) return -1;
+            mReadBuffers[0].flip();
+            mReadBuffers[1].flip();
+            mReadIndex = 0;
+        }
+        ByteBuffer current = mReadBuffers[mReadIndex];
+        int count = Math.min(length, current.remaining());
+        current.get(buffer, offset, count);
+        if (!current.hasRemaining()) {
+            mReadIndex = mReadIndex == 0 && mReadBuffers[1].hasRemaining() ? 1 : -1;
+        }
+        return count;
+    }
+
+    public void write(byte[] buffer, int offset, int length) throws IOException {
+        synchronized (mWriteLock) {
+            while (length > 0) {
+                int count = Math.min(length, mWriteBuffer.capacity());
+                mWriteBuffer.clear();
+                mWriteBuffer.put(buffer, offset, count);
+                mWriteBuffer.flip();
+                while (mWriteBuffer.hasRemaining()) {
+                    mSink.write(mWriteBuffer);
+                }
+                offset += count;
+                length -= count;
+            }
+        }
+    }
+
+    public void close() throws IOException {
+        // Not under the write lock, which a blocked write holds
+        mClosed = true;
+        ScatteringByteChannel source = mSource;
+        GatheringByteChannel sink = mSink;
+        if (source != null) source.close();
+        if (sink != null && sink != source) sink.close();
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    /** A TCP transport can be opened again; a loopback cannot. */
+    public Transport reopen() {
+        return mAddress != null ? new ChannelTransport(mName, mAddress, null, null) : null;
+    }
+
+    public String getAddress() {
+        // Every loopback pair is a different device
+        return mAddress != null ? mName
+                : mName + "@" + Integer.toHexString(System.identityHashCode(this));
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.util.Arrays;
+
+/**
+ * Describes the fields of a delimited numeric line, such as the CSV
+ * sensor lines most sketches print: which bytes separate the fields and
+ * whether each field is an integer, a decimal or text to be skipped.
+ * Immutable, so one schema can be shared by the parsers of every session.
+ */
+public final class ColumnSchema {
+
+    public static final int TYPE_SKIP = 0;
+    public static final int TYPE_LONG = 1;
+    public static final int TYPE_DOUBLE = 2;
+
+    private final boolean[] mSeparators = new boolean[256];
+    private final int[] mTypes;
+
+    /**
+     * @param separators  Bytes that end a field, for example ","
+     * @param types  Type of each field in order, TYPE_LONG, TYPE_DOUBLE
+     *               or TYPE_SKIP
+     */
+    public ColumnSchema(byte[] separators, int[] types) {
+        if (separators.length == 0) throw new IllegalArgumentException("no separators");
+        for (byte separator : separators) {
+            mSeparators[separator & 0xff] = true;
+        }
+        for (int type : types) {
+            if (type < TYPE_SKIP || type > TYPE_DOUBLE) {
+                throw new IllegalArgumentException("unknown column type " + type);
+            }
+        }
+        mTypes = types.clone();
+    }
+
+    /**
+     * Build a schema from a compact description, one letter per field:
+     * 'l' for an integer, 'd' for a decimal and '-' for a field to skip.
+     * @param separators  Characters that end a field, for example ",;"
+     * @param types  Field types, for example "ldd-"
+     */
+    public static ColumnSchema parse(String separators, String types) {
+        int[] parsed = new int[types.length()];
+        for (int i = 0; i < parsed.length; i++) {
+            switch (types.charAt(i)) {
+            case 'l':
+                parsed[i] = TYPE_LONG;
+                break;
+            case 'd':
+                parsed[i] = TYPE_DOUBLE;
+                break;
+            case '-':
+                parsed[i] = TYPE_SKIP;
+                break;
+            default:
+                throw new IllegalArgumentException("unknown column type '"
+                        + types.charAt(i) + "' in " + types);
+            }
+        }
+        byte[] bytes = new byte[separators.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) separators.charAt(i);
+        }
+        return new ColumnSchema(bytes, parsed);
+    }
+
+    /** Whether a byte ends a field. */
+    public boolean isSeparator(byte b) {
+        return mSeparators[b & 0xff];
+    }
+
+    /** Number of fields in a line, skipped ones included. */
+    public int getColumnCount() {
+        return mTypes.length;
+    }
+
+    public int getType(int column) {
+        return mTypes[column];
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnSchema" + Arrays.toString(mTypes);
+    }
+}
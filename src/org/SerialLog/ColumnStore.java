@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+/**
+ * The most recent parsed lines of one device, held column by column in
+ * primitive rings: a long[] for each integer column, a double[] for each
+ * decimal column and the receive time of every row. Nothing is boxed,
+ * so appending a row never allocates.
+ *
+ * Rows are numbered from 0 in the order they were added; only the last
+ * getCapacity() of them are kept. One thread, the parser's, adds rows;
+ * any thread may read them. A row is readable once getRowCount() has
+ * passed it, and a reader that falls a full ring behind sees it
+ * overwritten, so readers should keep well inside the capacity.
+ */
+public class ColumnStore {
+
+    private final ColumnSchema mSchema;
+    private final int mCapacity;
+    private final int mMask;
+    private final long[][] mLongs;
+    private final double[][] mDoubles;
+    private final long[] mTimestamps;
+    private volatile long mRows;
+    private int mSlot; // writer only, where the next row goes
+
+    /**
+     * @param schema  Columns to store; skipped fields get no storage
+     * @param capacity  Rows kept, rounded up to a power of two
+     */
+    public ColumnStore(ColumnSchema schema, int capacity) {
+        mSchema = schema;
+        mCapacity = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        mMask = mCapacity - 1;
+        int columns = schema.getColumnCount();
+        mLongs = new long[columns][];
+        mDoubles = new double[columns][];
+        for (int i = 0; i < columns; i++) {
+            switch (schema.getType(i)) {
+            case ColumnSchema.TYPE_LONG:
+                mLongs[i] = new long[mCapacity];
+                break;
+            case ColumnSchema.TYPE_DOUBLE:
+                mDoubles[i] = new double[mCapacity];
+                break;
+            }
+        }
+        mTimestamps = new long[mCapacity];
+    }
+
+    // Writer side: values for the next row are set in place, then the row
+    // is made visible by commit(). A row that is never committed is
+    // simply overwritten by the next one.
+
+    void setLong(int column, long value) {
+        mLongs[column][mSlot] = value;
+    }
+
+    void setDouble(int column, double value) {
+        mDoubles[column][mSlot] = value;
+    }
+
+    /** @return the number of the row */
+    long commit(long timestamp) {
+        mTimestamps[mSlot] = timestamp;
+        long row = mRows;
+        mSlot = (int) ((row + 1) & mMask);
+        mRows = row + 1;
+        return row;
+    }
+
+    public ColumnSchema getSchema() {
+        return mSchema;
+    }
+
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    /** Number of rows ever added; the newest is getRowCount() - 1. */
+    public long getRowCount() {
+        return mRows;
+    }
+
+    /** Number of the oldest row still held. */
+    public long getFirstRow() {
+        return Math.max(0, mRows - mCapacity);
+    }
+
+    /** Monotonic receive time of a row, System.nanoTime(). */
+    public long getTimestamp(long row) {
+        return mTimestamps[(int) (row & mMask)];
+    }
+
+    /** Value of an integer column. */
+    public long getLong(int column, long row) {
+        return mLongs[column][(int) (row & mMask)];
+    }
+
+    /** Value of any numeric column as a double. */
+    public double getDouble(int column, long row) {
+        double[] doubles = mDoubles[column];
+        return doubles != null ? doubles[(int) (row & mMask)]
+                : mLongs[column][(int) (row & mMask)];
+    }
+
+    /** Whether a column holds values, that is it is not skipped. */
+    public boolean isNumeric(int column) {
+        return mLongs[column] != null || mDoubles[column] != null;
+    }
+}
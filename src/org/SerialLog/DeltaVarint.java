@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.io.IOException;
+
+/**
+ * Cursor over a byte array that writes and reads integers as varints:
+ * seven bits per byte, least significant group first, the top bit set
+ * on every byte but the last. Signed values are zigzag mapped so that
+ * small negative numbers stay short, and a delta field stores each
+ * value as the difference from the previous one, which makes slowly
+ * changing columns such as timestamps take two or three bytes instead
+ * of eight.
+ *
+ * The previous value starts at zero on each reset(), so data written
+ * between two resets can be decoded without anything before it. Has no
+ * Android dependencies.
+ */
+public class DeltaVarint {
+
+    // Longest varint of a 64-bit value
+    public static final int MAX_VARINT_BYTES = 10;
+
+    private byte[] mData;
+    private int mPosition;
+    private int mLimit;
+    private long mPrevious;
+
+    /**
+     * Start reading or writing data from position up to limit.
+     */
+    public void reset(byte[] data, int position, int limit) {
+        mData = data;
+        mPosition = position;
+        mLimit = limit;
+        mPrevious = 0;
+    }
+
+    public int getPosition() {
+        return mPosition;
+    }
+
+    /** Last value written or read as a delta. */
+    public long getPrevious() {
+        return mPrevious;
+    }
+
+    /**
+     * Move back to a position saved earlier.
+     * @param position  Value of getPosition() then
+     * @param previous  Value of getPrevious() then
+     */
+    public void setPosition(int position, long previous) {
+        mPosition = position;
+        mPrevious = previous;
+    }
+
+    public boolean hasRemaining() {
+        return mPosition < mLimit;
+    }
+
+    public void putUnsigned(long value) {
+        while ((value & ~0x7fL) != 0) {
+            mData[mPosition++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        mData[mPosition++] = (byte) value;
+    }
+
+    public void putSigned(long value) {
+        putUnsigned((value << 1) ^ (value >> 63));
+    }
+
+    /** Write a value as its difference from the previous delta value. */
+    public void putDelta(long value) {
+        putSigned(value - mPrevious);
+        mPrevious = value;
+    }
+
+    public void putByte(int value) {
+        mData[mPosition++] = (byte) value;
+    }
+
+    public void putBytes(byte[] src, int offset, int length) {
+        System.arraycopy(src, offset, mData, mPosition, length);
+        mPosition += length;
+    }
+
+    /** @throws IOException  if the varint runs past the limit or 64 bits */
+    public long getUnsigned() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (mPosition >= mLimit) throw new IOException("varint runs past the end");
+            int b = mData[mPosition++];
+            value |= (long) (b & 0x7f) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IOException("varint longer than 64 bits");
+    }
+
+    public long getSigned() throws IOException {
+        long zigzag = getUnsigned();
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    /** Read a value written with putDelta(). */
+    public long getDelta() throws IOException {
+        mPrevious += getSigned();
+        return mPrevious;
+    }
+
+    public int getByte() throws IOException {
+        if (mPosition >= mLimit) throw new IOException("read past the end");
+        return mData[mPosition++];
+    }
+
+    public void getBytes(byte[] dst, int offset, int length) throws IOException {
+        if (length > mLimit - mPosition) throw new IOException("read past the end");
+        System.arraycopy(mData, mPosition, dst, offset, length);
+        mPosition += length;
+    }
+
+    /** Read a big endian value of 1 to 8 bytes. */
+    public long getFixed(int bytes) throws IOException {
+        if (bytes > mLimit - mPosition) throw new IOException("read past the end");
+        long value = 0;
+        for (int i = 0; i < bytes; i++) value = (value << 8) | (mData[mPosition++] & 0xff);
+        return value;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import android.content.Context;
+import android.text.format.DateUtils;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.TextView;
+
+/**
+ * Shows {@link DeviceCache} entries in a ListView, most likely first.
+ * Each device has one row, which is updated in place when the device is
+ * seen again. While there are no devices a single disabled row shows the
+ * empty text, if one is set.
+ */
+public class DeviceAdapter extends BaseAdapter {
+
+    private final Context mContext;
+    private final LayoutInflater mInflater;
+    private final List<DeviceCache.Device> mDevices = new ArrayList<DeviceCache.Device>();
+    private String mEmptyText;
+
+    public DeviceAdapter(Context context) {
+        mContext = context;
+        mInflater = LayoutInflater.from(context);
+    }
+
+    /** Set the text shown while there are no devices, or null for none. */
+    public void setEmptyText(String text) {
+        mEmptyText = text;
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Show a device, or show its row again if it is already listed, and
+     * move it to its place in the order.
+     */
+    public void update(DeviceCache.Device device) {
+        if (!mDevices.contains(device)) mDevices.add(device);
+        Collections.sort(mDevices, DeviceCache.byLikelihood(System.currentTimeMillis()));
+        notifyDataSetChanged();
+    }
+
+    public boolean contains(DeviceCache.Device device) {
+        return mDevices.contains(device);
+    }
+
+    /** The device shown at a position, or null for the empty text. */
+    public DeviceCache.Device getDevice(int position) {
+        return position < mDevices.size() ? mDevices.get(position) : null;
+    }
+
+    public int getCount() {
+        if (mDevices.isEmpty()) return mEmptyText != null ? 1 : 0;
+        return mDevices.size();
+    }
+
+    public Object getItem(int position) {
+        return getDevice(position);
+    }
+
+    public long getItemId(int position) {
+        return position;
+    }
+
+    @Override
+    public boolean areAllItemsEnabled() {
+        return !mDevices.isEmpty();
+    }
+
+    @Override
+    public boolean isEnabled(int position) {
+        return position < mDevices.size();
+    }
+
+    public View getView(int position, View convertView, ViewGroup parent) {
+        TextView view = (TextView) convertView;
+        if (view == null) {
+            view = (TextView) mInflater.inflate(R.layout.device_name, parent, false);
+        }
+        DeviceCache.Device device = getDevice(position);
+        view.setText(device != null ? getRowText(device) : mEmptyText);
+        return view;
+    }
+
+    private String getRowText(DeviceCache.Device device) {
+        StringBuilder text = new StringBuilder();
+        if (device.getName() != null) text.append(device.getName()).append('\n');
+        text.append(device.getAddress());
+        if (device.getConnects() > 0) {
+            text.append('\n').append(mContext.getString(R.string.device_last_connected,
+                    DateUtils.getRelativeTimeSpanString(device.getLastConnect(),
+                            System.currentTimeMillis(), DateUtils.MINUTE_IN_MILLIS)));
+        }
+        if (device.getRssi() != DeviceCache.RSSI_UNKNOWN) {
+            text.append(device.getConnects() > 0 ? ", " : "\n")
+                    .append(mContext.getString(R.string.device_rssi, device.getRssi()));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+/**
+ * Remembers every device that has been seen in a scan or connected to,
+ * keyed by address, so that the device list can show the usual devices
+ * straight away instead of after a full scan. For each device it keeps
+ * the name, when it was last seen and at what signal strength, and when
+ * and how often it was connected to.
+ *
+ * Entries live in SharedPreferences, one String per address. Updates are
+ * written back with apply(), off the calling thread. Each save rewrites
+ * a device's whole entry, so the app shares one cache, from
+ * {@link #getInstance(Context)}, and no copy can write back stale fields
+ * over another's. Not thread safe; use from the main thread.
+ */
+public class DeviceCache {
+
+	// Debugging
+    private static final String TAG = "DeviceCache";
+    private static final boolean D = true;
+
+    private static final String PREFS_NAME = "devices";
+
+    /** Signal strength of a device that has not been seen in a scan. */
+    public static final int RSSI_UNKNOWN = Short.MIN_VALUE;
+
+    // Devices neither seen nor connected to for this long are forgotten
+    private static final long MAX_AGE_MS = 90L * 24 * 60 * 60 * 1000;
+
+    // A connect counts for half as much towards the likelihood of the
+    // next one after this long
+    private static final double CONNECT_HALF_LIFE_MS = 7.0 * 24 * 60 * 60 * 1000;
+
+    /** What is known about one device. */
+    public static class Device {
+        private final String mmAddress;
+        private String mmName;
+        private long mmLastSeen;
+        private int mmRssi = RSSI_UNKNOWN;
+        private long mmLastConnect;
+        private int mmConnects;
+        private boolean mmBonded;
+
+        Device(String address) {
+            mmAddress = address;
+        }
+
+        public String getAddress() {
+            return mmAddress;
+        }
+
+        /** The device's name, or null if it has never been given. */
+        public String getName() {
+            return mmName;
+        }
+
+        /** Wall time, in ms, of the last scan that found the device, or 0. */
+        public long getLastSeen() {
+            return mmLastSeen;
+        }
+
+        /** Signal strength in dBm when last seen, or RSSI_UNKNOWN. */
+        public int getRssi() {
+            return mmRssi;
+        }
+
+        /** Wall time, in ms, of the last successful connect, or 0. */
+        public long getLastConnect() {
+            return mmLastConnect;
+        }
+
+        public int getConnects() {
+            return mmConnects;
+        }
+
+        /** Whether the device is paired. Not stored; set by the caller. */
+        public boolean isBonded() {
+            return mmBonded;
+        }
+
+        public void setBonded(boolean bonded) {
+            mmBonded = bonded;
+        }
+
+        /**
+         * How likely the device is to be the one wanted: each past
+         * connect counts for 1, halving every CONNECT_HALF_LIFE_MS.
+         * Recency decays only from the last connect, which is all that
+         * is stored.
+         * @param nowMs  Current wall time, System.currentTimeMillis()
+         */
+        public double getScore(long nowMs) {
+            if (mmConnects == 0) return 0;
+            long age = Math.max(0, nowMs - mmLastConnect);
+            return mmConnects * Math.pow(0.5, age / CONNECT_HALF_LIFE_MS);
+        }
+
+        private String encode() {
+            // The name goes last since it may hold any character
+            return mmLastSeen + "," + mmRssi + "," + mmLastConnect + "," + mmConnects
+                    + "," + (mmName != null ? mmName : "");
+        }
+
+        private static Device decode(String address, String value) {
+            String[] fields = value.split(",", 5);
+            if (fields.length != 5) return null;
+            Device device = new Device(address);
+            try {
+                device.mmLastSeen = Long.parseLong(fields[0]);
+                device.mmRssi = Integer.parseInt(fields[1]);
+                device.mmLastConnect = Long.parseLong(fields[2]);
+                device.mmConnects = Integer.parseInt(fields[3]);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            device.mmName = fields[4].length() > 0 ? fields[4] : null;
+            return device;
+        }
+    }
+
+    /**
+     * Orders devices from most to least likely to be connected to: by
+     * {@link Device#getScore(long)}, then paired before unpaired, then the
+     * most recently seen, then the strongest signal.
+     */
+    public static Comparator<Device> byLikelihood(final long nowMs) {
+        return new Comparator<Device>() {
+            public int compare(Device a, Device b) {
+                int c = Double.compare(b.getScore(nowMs), a.getScore(nowMs));
+                if (c != 0) return c;
+                if (a.mmBonded != b.mmBonded) return a.mmBonded ? -1 : 1;
+                if (a.mmLastSeen != b.mmLastSeen) return a.mmLastSeen > b.mmLastSeen ? -1 : 1;
+                return b.mmRssi - a.mmRssi;
+            }
+        };
+    }
+
+    private static DeviceCache sInstance;
+
+    private final SharedPreferences mPrefs;
+    private final Map<String, Device> mDevices = new HashMap<String, Device>();
+
+    /**
+     * The app's cache, loaded on first use.
+     * @param context  Any context; only the application's is kept
+     */
+    public static DeviceCache getInstance(Context context) {
+        if (sInstance == null) sInstance = new DeviceCache(context.getApplicationContext());
+        return sInstance;
+    }
+
+    /** Load the cache, dropping entries that have grown too old. */
+    private DeviceCache(Context context) {
+        mPrefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        long now = System.currentTimeMillis();
+        SharedPreferences.Editor stale = null;
+        for (Map.Entry<String, ?> entry : mPrefs.getAll().entrySet()) {
+            Object value = entry.getValue();
+            Device device = value instanceof String
+                    ? Device.decode(entry.getKey(), (String) value) : null;
+            if (device == null
+                    || now - Math.max(device.mmLastSeen, device.mmLastConnect) > MAX_AGE_MS) {
+                if (stale == null) stale = mPrefs.edit();
+                stale.remove(entry.getKey());
+                continue;
+            }
+            mDevices.put(device.mmAddress, device);
+        }
+        if (stale != null) stale.apply();
+        if (D) Log.d(TAG, mDevices.size() + " devices cached");
+    }
+
+    /** The entry for an address, or null if the device is not known. */
+    public Device get(String address) {
+        return mDevices.get(address);
+    }
+
+    /** The entry for an address, made if the device is not known yet. */
+    public Device getOrAdd(String address) {
+        Device device = mDevices.get(address);
+        if (device == null) {
+            device = new Device(address);
+            mDevices.put(address, device);
+        }
+        return device;
+    }
+
+    /** Every device that has been connected to, most likely first. */
+    public List<Device> getConnected() {
+        List<Device> devices = new ArrayList<Device>();
+        for (Device device : mDevices.values()) {
+            if (device.mmConnects > 0) devices.add(device);
+        }
+        Collections.sort(devices, byLikelihood(System.currentTimeMillis()));
+        return devices;
+    }
+
+    /**
+     * Note that a device is paired. Pairing is kept by the system, so
+     * this is not stored.
+     * @param name  Its name, or null to keep the one known
+     * @return The device's entry
+     */
+    public Device paired(String address, String name) {
+        Device device = getOrAdd(address);
+        if (name != null) device.mmName = name;
+        device.mmBonded = true;
+        return device;
+    }
+
+    /**
+     * Note that a scan found a device.
+     * @param name  Its name, or null to keep the one known
+     * @param rssi  Signal strength in dBm, or RSSI_UNKNOWN
+     * @return The device's entry
+     */
+    public Device seen(String address, String name, int rssi) {
+        Device device = getOrAdd(address);
+        if (name != null) device.mmName = name;
+        device.mmLastSeen = System.currentTimeMillis();
+        if (rssi != RSSI_UNKNOWN) device.mmRssi = rssi;
+        save(device);
+        return device;
+    }
+
+    /**
+     * Note that a device has been connected to.
+     * @param name  Its name, or null to keep the one known
+     * @return The device's entry
+     */
+    public Device connected(String address, String name) {
+        Device device = getOrAdd(address);
+        if (name != null) device.mmName = name;
+        device.mmLastConnect = System.currentTimeMillis();
+        device.mmConnects++;
+        save(device);
+        return device;
+    }
+
+    private void save(Device device) {
+        mPrefs.edit().putString(device.mmAddress, device.encode()).apply();
+    }
+}
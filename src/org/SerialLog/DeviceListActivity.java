@@ -33,17 +33,17 @@ import android.view.View;
 //import android.view.Window;
 import android.view.View.OnClickListener;
 import android.widget.AdapterView;
-import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.ListView;
-import android.widget.TextView;
 import android.widget.AdapterView.OnItemClickListener;
 
 /**
  * This Activity appears as a dialog. It lists any paired devices and
- * devices detected in the area after discovery. When a device is chosen
- * by the user, the MAC address of the device is sent back to the parent
- * Activity in the result Intent.
+ * devices connected to before, from the {@link DeviceCache}, most likely
+ * first, and devices detected in the area after discovery. Each device
+ * has one row, updated in place as discovery finds it. When a device is
+ * chosen by the user, the MAC address of the device is sent back to the
+ * parent Activity in the result Intent.
  */
 public class DeviceListActivity extends Activity {
     // Debugging
@@ -55,8 +55,9 @@ public class DeviceListActivity extends Activity {
 
     // Member fields
     private BluetoothAdapter mBtAdapter;
-    private ArrayAdapter<String> mPairedDevicesArrayAdapter;
-    private ArrayAdapter<String> mNewDevicesArrayAdapter;
+    private DeviceCache mDeviceCache;
+    private DeviceAdapter mPairedDevicesArrayAdapter;
+    private DeviceAdapter mNewDevicesArrayAdapter;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -78,10 +79,10 @@ public class DeviceListActivity extends Activity {
             }
         });
 
-        // Initialize array adapters. One for already paired devices and
-        // one for newly discovered devices
-        mPairedDevicesArrayAdapter = new ArrayAdapter<String>(this, R.layout.device_name);
-        mNewDevicesArrayAdapter = new ArrayAdapter<String>(this, R.layout.device_name);
+        // Initialize array adapters. One for paired and previously
+        // connected devices and one for newly discovered devices
+        mPairedDevicesArrayAdapter = new DeviceAdapter(this);
+        mNewDevicesArrayAdapter = new DeviceAdapter(this);
 
         // Find and set up the ListView for paired devices
         ListView pairedListView = (ListView) findViewById(R.id.paired_devices);
@@ -104,18 +105,26 @@ public class DeviceListActivity extends Activity {
         // Get the local Bluetooth adapter
         mBtAdapter = BluetoothAdapter.getDefaultAdapter();
 
+        // Devices connected to before are listed without waiting for a scan
+        mDeviceCache = DeviceCache.getInstance(this);
+        for (DeviceCache.Device known : mDeviceCache.getConnected()) {
+            mPairedDevicesArrayAdapter.update(known);
+        }
+
         // Get a set of currently paired devices
         Set<BluetoothDevice> pairedDevices = mBtAdapter.getBondedDevices();
+        for (BluetoothDevice device : pairedDevices) {
+            DeviceCache.Device known = mDeviceCache.paired(device.getAddress(),
+                    device.getName());
+            mPairedDevicesArrayAdapter.update(known);
+        }
 
-        // If there are paired devices, add each one to the ArrayAdapter
-        if (pairedDevices.size() > 0) {
+        // If there are known devices they are in the adapter already
+        if (mPairedDevicesArrayAdapter.getCount() > 0) {
             findViewById(R.id.title_paired_devices).setVisibility(View.VISIBLE);
-            for (BluetoothDevice device : pairedDevices) {
-                mPairedDevicesArrayAdapter.add(device.getName() + "\n" + device.getAddress());
-            }
         } else {
             String noDevices = getResources().getText(R.string.none_paired).toString();
-            mPairedDevicesArrayAdapter.add(noDevices);
+            mPairedDevicesArrayAdapter.setEmptyText(noDevices);
         }
     }
 
@@ -160,9 +169,10 @@ public class DeviceListActivity extends Activity {
             // Cancel discovery because it's costly and we're about to connect
             mBtAdapter.cancelDiscovery();
 
-            // Get the device MAC address, which is the last 17 chars in the View
-            String info = ((TextView) v).getText().toString();
-            String address = info.substring(info.length() - 17);
+            // Get the device MAC address from the row's entry
+            DeviceCache.Device device = (DeviceCache.Device) av.getItemAtPosition(arg2);
+            if (device == null) return;
+            String address = device.getAddress();
 
             // Create the result Intent and include the MAC address
             Intent intent = new Intent();
@@ -185,9 +195,16 @@ public class DeviceListActivity extends Activity {
             if (BluetoothDevice.ACTION_FOUND.equals(action)) {
                 // Get the BluetoothDevice object from the Intent
                 BluetoothDevice device = intent.getParcelableExtra(BluetoothDevice.EXTRA_DEVICE);
-                // If it's already paired, skip it, because it's been listed already
-                if (device.getBondState() != BluetoothDevice.BOND_BONDED) {
-                    mNewDevicesArrayAdapter.add(device.getName() + "\n" + device.getAddress());
+                int rssi = intent.getShortExtra(BluetoothDevice.EXTRA_RSSI,
+                        (short) DeviceCache.RSSI_UNKNOWN);
+                DeviceCache.Device found = mDeviceCache.seen(device.getAddress(),
+                        device.getName(), rssi);
+                found.setBonded(device.getBondState() == BluetoothDevice.BOND_BONDED);
+                // A device found again, or already listed as known, keeps its row
+                if (mPairedDevicesArrayAdapter.contains(found)) {
+                    mPairedDevicesArrayAdapter.update(found);
+                } else {
+                    mNewDevicesArrayAdapter.update(found);
                 }
             // When discovery is finished, change the Activity title
             } else if (BluetoothAdapter.ACTION_DISCOVERY_FINISHED.equals(action)) {
@@ -195,7 +212,7 @@ public class DeviceListActivity extends Activity {
                 setTitle(R.string.select_device);
                 if (mNewDevicesArrayAdapter.getCount() == 0) {
                     String noDevices = getResources().getText(R.string.none_found).toString();
-                    mNewDevicesArrayAdapter.add(noDevices);
+                    mNewDevicesArrayAdapter.setEmptyText(noDevices);
                 }
             }
         }
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import android.app.Activity;
+import android.app.ProgressDialog;
+import android.content.Context;
+import android.content.DialogInterface;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.AsyncTask;
+import android.util.Log;
+import android.widget.Toast;
+
+/**
+ * Runs a {@link SessionExporter} in the background behind a progress
+ * dialog that can cancel it. A canceled or failed export deletes its
+ * partial file. A finished one is offered for sharing if it was written
+ * to external storage, where other apps can read it.
+ *
+ * The export outlives the activity that started it. The activity hands
+ * the task on through onRetainNonConfigurationInstance() when it is
+ * recreated, detaching in onDestroy() and attaching the new instance in
+ * onCreate(); the dialog is shown again there. If the export ends while
+ * no activity is attached, the activity is gone for good and the result
+ * is only shown as a toast. Use from the main thread.
+ */
+public class ExportTask extends AsyncTask<Void, Integer, Boolean>
+        implements SessionExporter.Listener {
+
+	// Debugging
+    private static final String TAG = "ExportTask";
+    private static final boolean D = true;
+
+    private final Context mContext;
+    private final SessionExporter mExporter;
+    private final File mOutput;
+    private final boolean mShareable;
+    private Activity mActivity;
+    private ProgressDialog mProgress;
+    private volatile int mPercent = -1;
+    private IOException mError;
+    private boolean mFinished;
+
+    /**
+     * @param context  Any context; only the application's is kept
+     * @param exporter  Configured exporter to run
+     * @param output  File to write
+     * @param shareable  Whether other apps can read the output's directory
+     */
+    public ExportTask(Context context, SessionExporter exporter, File output,
+            boolean shareable) {
+        mContext = context.getApplicationContext();
+        mExporter = exporter;
+        mOutput = output;
+        mShareable = shareable;
+        exporter.setListener(this);
+    }
+
+    /** Show the progress, and later the result, in an activity. */
+    public void attach(Activity activity) {
+        mActivity = activity;
+        if (mFinished) return;
+        mProgress = new ProgressDialog(activity);
+        mProgress.setTitle(activity.getString(R.string.exporting));
+        mProgress.setMessage(mOutput.getName());
+        mProgress.setProgressStyle(ProgressDialog.STYLE_HORIZONTAL);
+        mProgress.setMax(100);
+        mProgress.setProgress(Math.max(mPercent, 0));
+        mProgress.setOnCancelListener(new DialogInterface.OnCancelListener() {
+            public void onCancel(DialogInterface dialog) {
+                stop();
+            }
+        });
+        mProgress.setButton(DialogInterface.BUTTON_NEGATIVE,
+                activity.getString(android.R.string.cancel),
+                new DialogInterface.OnClickListener() {
+                    public void onClick(DialogInterface dialog, int which) {
+                        stop();
+                    }
+                });
+        mProgress.show();
+    }
+
+    /** Let go of the activity, which is being destroyed. The export carries on. */
+    public void detach() {
+        if (mProgress != null) mProgress.dismiss();
+        mProgress = null;
+        mActivity = null;
+    }
+
+    /** Whether the export has ended, and the task can be forgotten. */
+    public boolean isFinished() {
+        return mFinished;
+    }
+
+    /** Cancel the export; the exporter stops at its next check. */
+    private void stop() {
+        mExporter.cancel();
+        cancel(false);
+    }
+
+    @Override
+    protected Boolean doInBackground(Void... params) {
+        try {
+            File dir = mOutput.getParentFile();
+            if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("cannot create " + dir);
+            OutputStream out = new FileOutputStream(mOutput);
+            try {
+                return mExporter.export(out);
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "export to " + mOutput + " failed", e);
+            mError = e;
+            return false;
+        }
+    }
+
+    public void onProgress(long bytesRead, long bytesTotal) {
+        int percent = bytesTotal > 0 ? (int) (bytesRead * 100 / bytesTotal) : 100;
+        if (percent == mPercent) return;
+        mPercent = percent;
+        publishProgress(percent);
+    }
+
+    @Override
+    protected void onProgressUpdate(Integer... values) {
+        if (mProgress != null) mProgress.setProgress(values[0]);
+    }
+
+    @Override
+    protected void onPostExecute(Boolean done) {
+        finish();
+        if (D) Log.d(TAG, "export: " + mExporter);
+        if (!done) {
+            mOutput.delete();
+            Toast.makeText(mContext, mError != null ? R.string.export_failed
+                    : R.string.export_canceled, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        Toast.makeText(mContext, mContext.getString(R.string.export_done,
+                mExporter.getRecords(), mOutput.getPath()), Toast.LENGTH_LONG).show();
+        // Only offer to share while the user is still in the app
+        if (!mShareable || mActivity == null) return;
+        Intent share = new Intent(Intent.ACTION_SEND);
+        share.setType(mOutput.getName().endsWith(".csv") ? "text/csv" : "text/plain");
+        share.putExtra(Intent.EXTRA_STREAM, Uri.fromFile(mOutput));
+        mActivity.startActivity(Intent.createChooser(share,
+                mActivity.getString(R.string.export_share)));
+    }
+
+    @Override
+    protected void onCancelled(Boolean done) {
+        // Runs once doInBackground() has returned, so the file is closed
+        finish();
+        mOutput.delete();
+        Toast.makeText(mContext, R.string.export_canceled, Toast.LENGTH_SHORT).show();
+    }
+
+    private void finish() {
+        mFinished = true;
+        if (mProgress != null) mProgress.dismiss();
+        mProgress = null;
+    }
+}
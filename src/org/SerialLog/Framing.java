@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+/**
+ * How a {@link LineFramer} finds the frames in the byte stream from a
+ * device, and what it does with a frame longer than the maximum. Text
+ * devices end each line with a delimiter; binary ones can send frames
+ * with a length prefix, or stuffed with COBS or SLIP so that a reserved
+ * byte marks the end of each frame.
+ *
+ * A Framing only describes the framing and never changes, so one can be
+ * shared by any number of framers. Has no Android dependencies.
+ */
+public class Framing {
+
+    // Framing modes
+    public static final int MODE_DELIMITED = 0;       // frames end with a delimiter byte
+    public static final int MODE_LENGTH_PREFIXED = 1; // a byte count goes before each frame
+    public static final int MODE_COBS = 2;            // consistent overhead byte stuffing, 0 ends a frame
+    public static final int MODE_SLIP = 3;            // RFC 1055, END ends a frame
+
+    // What happens to a frame longer than the maximum
+    public static final int OVERFLOW_TRUNCATE = 0; // keep the start, drop the rest
+    public static final int OVERFLOW_SPLIT = 1;    // deliver it in pieces of the maximum size
+    public static final int OVERFLOW_DISCARD = 2;  // drop the whole frame
+
+    public static final int DEFAULT_MAX_FRAME_BYTES = 64 * 1024;
+
+    private final int mMode;
+    private final byte[] mDelimiters;
+    private final int mPrefixBytes;
+    private final boolean mBigEndian;
+    private final int mMaxFrameBytes;
+    private final int mOverflow;
+
+    private Framing(int mode, byte[] delimiters, int prefixBytes, boolean bigEndian,
+            int maxFrameBytes, int overflow) {
+        mMode = mode;
+        mDelimiters = delimiters;
+        mPrefixBytes = prefixBytes;
+        mBigEndian = bigEndian;
+        mMaxFrameBytes = maxFrameBytes;
+        mOverflow = overflow;
+    }
+
+    /**
+     * Frames that end with any of the given bytes. Where there is more
+     * than one, a pair of different delimiters such as CR LF ends a single
+     * frame, so blank lines still come through as empty frames.
+     */
+    public static Framing delimited(byte... delimiters) {
+        if (delimiters.length == 0) throw new IllegalArgumentException("no delimiter");
+        return new Framing(MODE_DELIMITED, delimiters.clone(), 0, false,
+                DEFAULT_MAX_FRAME_BYTES, OVERFLOW_TRUNCATE);
+    }
+
+    /** Text lines ending in LF, CR or CR LF. */
+    public static Framing lines() {
+        return delimited((byte) '\r', (byte) '\n');
+    }
+
+    /**
+     * Frames that start with their length in bytes, not counting the
+     * prefix itself.
+     * @param prefixBytes  Size of the prefix: 1, 2 or 4
+     * @param bigEndian  True if the most significant byte comes first
+     */
+    public static Framing lengthPrefixed(int prefixBytes, boolean bigEndian) {
+        if (prefixBytes != 1 && prefixBytes != 2 && prefixBytes != 4) {
+            throw new IllegalArgumentException("prefix of " + prefixBytes + " bytes");
+        }
+        return new Framing(MODE_LENGTH_PREFIXED, null, prefixBytes, bigEndian,
+                DEFAULT_MAX_FRAME_BYTES, OVERFLOW_TRUNCATE);
+    }
+
+    /** COBS encoded frames, each followed by a zero byte. */
+    public static Framing cobs() {
+        return new Framing(MODE_COBS, null, 0, false, DEFAULT_MAX_FRAME_BYTES,
+                OVERFLOW_TRUNCATE);
+    }
+
+    /** SLIP encoded frames, each ended by an END byte. */
+    public static Framing slip() {
+        return new Framing(MODE_SLIP, null, 0, false, DEFAULT_MAX_FRAME_BYTES,
+                OVERFLOW_TRUNCATE);
+    }
+
+    /**
+     * The same framing with another size limit.
+     * @param maxFrameBytes  Longest frame delivered whole
+     * @param overflow  One of the OVERFLOW_ constants
+     */
+    public Framing withMaxFrame(int maxFrameBytes, int overflow) {
+        if (maxFrameBytes < 1) throw new IllegalArgumentException("max frame " + maxFrameBytes);
+        return new Framing(mMode, mDelimiters, mPrefixBytes, mBigEndian, maxFrameBytes, overflow);
+    }
+
+    public int getMode() {
+        return mMode;
+    }
+
+    /** Delimiter bytes for MODE_DELIMITED; do not change the array. */
+    byte[] getDelimiters() {
+        return mDelimiters;
+    }
+
+    public int getPrefixBytes() {
+        return mPrefixBytes;
+    }
+
+    public boolean isBigEndian() {
+        return mBigEndian;
+    }
+
+    public int getMaxFrameBytes() {
+        return mMaxFrameBytes;
+    }
+
+    public int getOverflow() {
+        return mOverflow;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        switch (mMode) {
+        case MODE_DELIMITED:
+            text.append("delimited by");
+            for (byte delimiter : mDelimiters) {
+                text.append(String.format(" 0x%02x", delimiter & 0xff));
+            }
+            break;
+        case MODE_LENGTH_PREFIXED:
+            text.append(mPrefixBytes * 8).append(" bit ")
+                    .append(mBigEndian ? "big" : "little").append(" endian length prefix");
+            break;
+        case MODE_COBS:
+            text.append("COBS");
+            break;
+        default:
+            text.append("SLIP");
+            break;
+        }
+        return text.append(", max ").append(mMaxFrameBytes).append(" bytes").toString();
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.io.IOException;
+
+/**
+ * The receive loop: blocks on {@link Transport#read} into a buffer reused
+ * for the whole connection and feeds what arrives to a
+ * {@link LineFramer}. The thread sleeps while the device is idle and the
+ * loop ends when the transport is closed by {@link #cancel()} or fails.
+ *
+ * Has no Android dependencies; override {@link #threadCpuNanos()} to
+ * include CPU time in the {@link IngestStats}.
+ */
+public class IngestLoop implements Runnable {
+
+    /** Told when the link ends without cancel() having been called. */
+    public interface Listener {
+        /**
+         * @param e  The read failure, or null at end of stream
+         */
+        void onDisconnected(IOException e);
+    }
+
+    private final Transport mTransport;
+    private final LineFramer mFramer;
+    private final Listener mListener;
+    private final byte[] mBuffer;
+    private final IngestStats mStats = new IngestStats();
+    private volatile boolean mCanceled;
+
+    public IngestLoop(Transport transport, LineFramer framer, int bufferBytes,
+            Listener listener) {
+        mTransport = transport;
+        mFramer = framer;
+        mListener = listener;
+        mBuffer = new byte[bufferBytes];
+    }
+
+    public void run() {
+        mStats.start(System.nanoTime(), threadCpuNanos());
+        try {
+            while (true) {
+                int bytes;
+                try {
+                    // Block until the device sends something. Closing the
+                    // transport in cancel() is what wakes us up to shut down.
+                    bytes = mTransport.read(mBuffer, 0, mBuffer.length);
+                } catch (IOException e) {
+                    if (!mCanceled) mListener.onDisconnected(e);
+                    return;
+                }
+                if (bytes < 0) {
+                    // End of stream, the remote side closed the link
+                    if (!mCanceled) mListener.onDisconnected(null);
+                    return;
+                }
+                mStats.record(bytes, System.nanoTime(), threadCpuNanos());
+                mFramer.feed(mBuffer, 0, bytes);
+            }
+        } finally {
+            mFramer.reset();
+        }
+    }
+
+    /** Stop the loop by closing the transport. */
+    public void cancel() throws IOException {
+        mCanceled = true;
+        mTransport.close();
+    }
+
+    public boolean isCanceled() {
+        return mCanceled;
+    }
+
+    public IngestStats getStats() {
+        return mStats;
+    }
+
+    /** CPU time used so far by the calling thread; 0 if not available. */
+    protected long threadCpuNanos() {
+        return 0;
+    }
+}
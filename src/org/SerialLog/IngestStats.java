@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+/**
+ * Counters kept by the receive loop so that the CPU it burns can be
+ * compared against the data it moves. A blocking loop should show a cpu
+ * load close to zero while the device is idle and many bytes per wakeup
+ * under load; a loop that has fallen back to spinning shows the opposite.
+ *
+ * Only the receive thread writes; any thread may read.
+ */
+public class IngestStats {
+
+    private volatile long mStartNanos;
+    private volatile long mLastNanos;
+    private volatile long mStartCpuNanos;
+    private volatile long mLastCpuNanos;
+    private volatile long mReads;
+    private volatile long mBytes;
+
+    /**
+     * Mark the start of a measurement.
+     * @param nanos  Current System.nanoTime()
+     * @param cpuNanos  CPU time consumed so far by the receive thread
+     */
+    public void start(long nanos, long cpuNanos) {
+        mStartNanos = nanos;
+        mLastNanos = nanos;
+        mStartCpuNanos = cpuNanos;
+        mLastCpuNanos = cpuNanos;
+        mReads = 0;
+        mBytes = 0;
+    }
+
+    /**
+     * Record one wakeup of the receive loop.
+     * @param bytes  Number of bytes the read returned
+     * @param nanos  Current System.nanoTime()
+     * @param cpuNanos  CPU time consumed so far by the receive thread
+     */
+    public void record(int bytes, long nanos, long cpuNanos) {
+        mReads++;
+        mBytes += bytes;
+        mLastNanos = nanos;
+        mLastCpuNanos = cpuNanos;
+    }
+
+    public long getReads() {
+        return mReads;
+    }
+
+    public long getBytes() {
+        return mBytes;
+    }
+
+    /** Wall time covered by the measurement, in nanoseconds. */
+    public long getElapsedNanos() {
+        return mLastNanos - mStartNanos;
+    }
+
+    public double getBytesPerSecond() {
+        long elapsed = getElapsedNanos();
+        return elapsed > 0 ? mBytes * 1e9 / elapsed : 0;
+    }
+
+    /** Average number of bytes delivered by each wakeup of the loop. */
+    public double getBytesPerRead() {
+        long reads = mReads;
+        return reads > 0 ? (double) mBytes / reads : 0;
+    }
+
+    /** Fraction of one core used by the receive thread, 0 to 1. */
+    public double getCpuLoad() {
+        long elapsed = getElapsedNanos();
+        return elapsed > 0 ? (double) (mLastCpuNanos - mStartCpuNanos) / elapsed : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d bytes in %d reads over %.1f s: %.0f B/s, %.1f B/read, cpu %.2f%%",
+                mBytes, mReads, getElapsedNanos() / 1e9, getBytesPerSecond(),
+                getBytesPerRead(), getCpuLoad() * 100);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of durations in power of two buckets. Recording is a couple
+ * of atomic increments with no locks, so it can sit on the receive path;
+ * percentiles are reported as the upper bound of their bucket, which is
+ * within a factor of two of the true value.
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray mCounts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong mCount = new AtomicLong();
+    private final AtomicLong mSum = new AtomicLong();
+    private final AtomicLong mMax = new AtomicLong();
+
+    /** Record one duration in nanoseconds; negative values count as 0. */
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        mCounts.incrementAndGet(64 - Long.numberOfLeadingZeros(nanos));
+        mCount.incrementAndGet();
+        mSum.addAndGet(nanos);
+        long max;
+        while (nanos > (max = mMax.get()) && !mMax.compareAndSet(max, nanos)) {
+        }
+    }
+
+    public long getCount() {
+        return mCount.get();
+    }
+
+    public long getMeanNanos() {
+        long count = mCount.get();
+        return count > 0 ? mSum.get() / count : 0;
+    }
+
+    public long getMaxNanos() {
+        return mMax.get();
+    }
+
+    /**
+     * Upper bound of the bucket holding the given fraction of samples.
+     * @param fraction  0 to 1, e.g. 0.99
+     */
+    public long getPercentileNanos(double fraction) {
+        long count = mCount.get();
+        if (count == 0) return 0;
+        long rank = (long) Math.ceil(fraction * count);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += mCounts.get(i);
+            if (seen >= rank) return i == 0 ? 0 : Math.min((1L << i) - 1, mMax.get());
+        }
+        return mMax.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            mCounts.set(i, 0);
+        }
+        mCount.set(0);
+        mSum.set(0);
+        mMax.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("n=%d mean=%.3f ms p50=%.3f ms p99=%.3f ms max=%.3f ms",
+                getCount(), getMeanNanos() / 1e6, getPercentileNanos(0.5) / 1e6,
+                getPercentileNanos(0.99) / 1e6, getMaxNanos() / 1e6);
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.util.ArrayList;
+
+import android.os.Handler;
+
+/**
+ * Coalesces received lines so the UI thread sees at most one message per
+ * display interval instead of one per line. Lines collect in a pending
+ * ring; the first line of a batch schedules a single
+ * {@link BTcom#MESSAGE_READ_BATCH} message after the configured latency,
+ * or straight away once the batch reaches its size limit. The Handler
+ * then calls {@link #take()} to swap the lines out, applies them as one
+ * update and hands the list back with {@link #recycle(ArrayList)}.
+ *
+ * The ring is bounded, so a UI that falls behind cannot make lines pile
+ * up without limit. What happens to a line that finds the ring full is
+ * the overload policy: the sender waits, the oldest or the newest line
+ * is dropped, or only one line in N is queued at all. This stage only
+ * feeds the display; capture and parsing have already seen every line.
+ * Lines that are not shown are counted here and in {@link Metrics}.
+ */
+public class LineBatcher implements LineFramer.Listener {
+
+    // Overload policies
+    public static final int POLICY_BLOCK = 0;        // the receive thread waits for room
+    public static final int POLICY_DROP_OLDEST = 1;  // make room by dropping the oldest line
+    public static final int POLICY_DROP_NEWEST = 2;  // drop the line that does not fit
+    public static final int POLICY_SAMPLE = 3;       // queue one line in N, drop the rest if full
+
+    // Longest a line waits for room under POLICY_BLOCK before it is
+    // dropped, so that a stalled UI cannot hang a session for good
+    private static final long BLOCK_TIMEOUT_MS = 1000;
+
+    private final Handler mHandler;
+    private final int mMaxLines;
+    private final long mMaxLatencyMs;
+    private final int mPolicy;
+    private final int mSampleInterval;
+    private final Metrics mMetrics;
+    private final LineBuffer[] mRing;
+    private int mHead;
+    private int mCount;
+    private ArrayList<LineBuffer> mSpare;
+    private boolean mScheduled;
+    private boolean mUrgent;
+    private long mSampleCount;
+
+    // Written under the lock
+    private volatile long mDropped;
+    private volatile long mSampledOut;
+    private long mDroppedSinceTake;
+
+    /**
+     * @param handler  Handler that receives MESSAGE_READ_BATCH
+     * @param maxLines  Batch size at which delivery is not delayed further
+     * @param maxLatencyMs  Longest time a line waits before delivery
+     * @param capacity  Most lines that may wait for the Handler
+     * @param policy  What to do with a line that finds the ring full
+     * @param sampleInterval  N for POLICY_SAMPLE, one line in N is shown
+     * @param metrics  Counts dropped and sampled out lines, or null
+     */
+    public LineBatcher(Handler handler, int maxLines, long maxLatencyMs, int capacity,
+            int policy, int sampleInterval, Metrics metrics) {
+        mHandler = handler;
+        mMaxLines = Math.min(maxLines, capacity);
+        mMaxLatencyMs = maxLatencyMs;
+        mPolicy = policy;
+        mSampleInterval = Math.max(sampleInterval, 1);
+        mMetrics = metrics;
+        mRing = new LineBuffer[capacity];
+        mSpare = new ArrayList<LineBuffer>(capacity);
+    }
+
+    public void onLine(LineBuffer line) {
+        synchronized (this) {
+            if (mPolicy == POLICY_SAMPLE && mSampleCount++ % mSampleInterval != 0) {
+                line.release();
+                mSampledOut++;
+                if (mMetrics != null) mMetrics.increment(Metrics.LINES_SAMPLED_OUT);
+                return;
+            }
+            if (mCount == mRing.length && !makeRoom()) {
+                line.release();
+                dropped();
+                return;
+            }
+            mRing[(mHead + mCount) % mRing.length] = line;
+            mCount++;
+            if (mCount >= mMaxLines) {
+                if (mUrgent) return;
+                // Replace the delayed delivery with an immediate one
+                mUrgent = true;
+                mScheduled = true;
+                mHandler.removeMessages(BTcom.MESSAGE_READ_BATCH, this);
+                mHandler.obtainMessage(BTcom.MESSAGE_READ_BATCH, this).sendToTarget();
+            } else if (!mScheduled) {
+                mScheduled = true;
+                mHandler.sendMessageDelayed(
+                        mHandler.obtainMessage(BTcom.MESSAGE_READ_BATCH, this), mMaxLatencyMs);
+            }
+        }
+    }
+
+    /**
+     * Free a slot in the full ring as the policy says. Called with the
+     * lock held.
+     * @return false if the new line is to be dropped instead
+     */
+    private boolean makeRoom() {
+        switch (mPolicy) {
+        case POLICY_BLOCK:
+            long deadline = System.nanoTime() + BLOCK_TIMEOUT_MS * 1000000L;
+            try {
+                while (mCount == mRing.length) {
+                    long remaining = (deadline - System.nanoTime()) / 1000000L;
+                    if (remaining <= 0) return false;
+                    wait(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            return true;
+        case POLICY_DROP_OLDEST:
+            mRing[mHead].release();
+            mRing[mHead] = null;
+            mHead = (mHead + 1) % mRing.length;
+            mCount--;
+            dropped();
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    private void dropped() {
+        mDropped++;
+        mDroppedSinceTake++;
+        if (mMetrics != null) mMetrics.increment(Metrics.LINES_DROPPED);
+    }
+
+    /**
+     * Take every line waiting, oldest first. The caller owns the lines
+     * and must release them, then return the list with recycle().
+     */
+    public synchronized ArrayList<LineBuffer> take() {
+        ArrayList<LineBuffer> batch = mSpare != null ? mSpare : new ArrayList<LineBuffer>(mCount);
+        mSpare = null;
+        for (int i = 0; i < mCount; i++) {
+            int slot = (mHead + i) % mRing.length;
+            batch.add(mRing[slot]);
+            mRing[slot] = null;
+        }
+        mHead = 0;
+        mCount = 0;
+        mScheduled = false;
+        mUrgent = false;
+        // Wake a receive thread waiting for room
+        notifyAll();
+        return batch;
+    }
+
+    /**
+     * Number of lines dropped since the last call, so the display can
+     * mark where it skipped lines.
+     */
+    public synchronized long takeDropped() {
+        long dropped = mDroppedSinceTake;
+        mDroppedSinceTake = 0;
+        return dropped;
+    }
+
+    /** Give back a list returned by take() once its lines are released. */
+    public synchronized void recycle(ArrayList<LineBuffer> batch) {
+        batch.clear();
+        mSpare = batch;
+    }
+
+    public int getMaxLines() {
+        return mMaxLines;
+    }
+
+    public long getMaxLatencyMs() {
+        return mMaxLatencyMs;
+    }
+
+    public int getCapacity() {
+        return mRing.length;
+    }
+
+    public int getPolicy() {
+        return mPolicy;
+    }
+
+    /** Lines waiting for the Handler. */
+    public synchronized int getDepth() {
+        return mCount;
+    }
+
+    /** Lines dropped because the ring was full. */
+    public long getDropped() {
+        return mDropped;
+    }
+
+    /** Lines left out by POLICY_SAMPLE. */
+    public long getSampledOut() {
+        return mSampledOut;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+/**
+ * One received line. Buffers come from a {@link LineBufferPool} and are
+ * handed to exactly one consumer, which owns the bytes until it calls
+ * {@link #release()}. After that the buffer is reused for a later line
+ * and must not be touched again.
+ */
+public class LineBuffer {
+
+    private final LineBufferPool mPool;
+    // Grown by the framer for a frame longer than the pool's buffers
+    byte[] mData;
+    int mLength;
+    long mTimestamp;
+    int mTag;
+
+    LineBuffer(LineBufferPool pool, int capacity) {
+        mPool = pool;
+        mData = new byte[capacity];
+    }
+
+    /** The line bytes; only the first {@link #getLength()} are valid. */
+    public byte[] getData() {
+        return mData;
+    }
+
+    public int getLength() {
+        return mLength;
+    }
+
+    /** Identifies the device session the line came from. */
+    public int getTag() {
+        return mTag;
+    }
+
+    /** Monotonic time, System.nanoTime(), at which the line was completed. */
+    public long getTimestamp() {
+        return mTimestamp;
+    }
+
+    /** Hand the buffer back to its pool once the bytes have been used. */
+    public void release() {
+        mLength = 0;
+        mPool.release(this);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fixed set of preallocated {@link LineBuffer}s shared between the
+ * receive thread, which takes them, and the consumers, which give them
+ * back. The free list is an array backed ring so neither side allocates
+ * while the pool has buffers to spare. If consumers hold on to more than
+ * the pool owns a new buffer is created and counted, so the allocation
+ * count stays at zero for a pipeline that keeps up.
+ */
+public class LineBufferPool {
+
+    private final ArrayBlockingQueue<LineBuffer> mFree;
+    private final int mLineCapacity;
+    // Every receive thread may allocate; a rare path, so one atomic will do
+    private final AtomicInteger mAllocations = new AtomicInteger();
+
+    /**
+     * @param size  Number of buffers to preallocate
+     * @param lineCapacity  Size in bytes of each buffer
+     */
+    public LineBufferPool(int size, int lineCapacity) {
+        mFree = new ArrayBlockingQueue<LineBuffer>(size);
+        mLineCapacity = lineCapacity;
+        for (int i = 0; i < size; i++) {
+            mFree.offer(new LineBuffer(this, lineCapacity));
+        }
+    }
+
+    /** Take a buffer, creating one only if the pool has run dry. */
+    public LineBuffer acquire() {
+        LineBuffer line = mFree.poll();
+        if (line == null) {
+            mAllocations.incrementAndGet();
+            line = new LineBuffer(this, mLineCapacity);
+        }
+        return line;
+    }
+
+    void release(LineBuffer line) {
+        // A buffer grown for a long frame is left to the GC rather than
+        // kept, as is an extra buffer when the pool is already full
+        if (line.mData.length > mLineCapacity) return;
+        mFree.offer(line);
+    }
+
+    /** Buffers created after construction because the pool was empty. */
+    public int getAllocations() {
+        return mAllocations.get();
+    }
+
+    /** Buffers currently waiting in the pool. */
+    public int getAvailable() {
+        return mFree.size();
+    }
+
+    public int getLineCapacity() {
+        return mLineCapacity;
+    }
+}
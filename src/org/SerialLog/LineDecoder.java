@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Turns received lines into text, appending to a StringBuilder, with one
+ * reused decoder and char buffer instead of a new String per line.
+ * Malformed input is replaced rather than thrown.
+ *
+ * Lines from serial devices are almost always plain ASCII. When the
+ * charset agrees with ASCII such lines skip the decoder: one pass checks
+ * for high bits and a second widens the bytes to chars, both simple loops
+ * a compiler can vectorize. The char buffer grows to the longest line
+ * seen, so long lines take the same path.
+ *
+ * Not thread safe. Has no Android dependencies.
+ */
+public class LineDecoder {
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final Charset mCharset;
+    private final CharsetDecoder mDecoder;
+    private final boolean mAscii;
+    private char[] mChars = new char[256];
+    private CharBuffer mOut = CharBuffer.wrap(mChars);
+    // Wraps the array last decoded from, kept since it is usually the log's arena
+    private ByteBuffer mIn;
+
+    public LineDecoder(Charset charset) {
+        mCharset = charset;
+        mDecoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        mAscii = decodesAscii(charset);
+    }
+
+    public Charset getCharset() {
+        return mCharset;
+    }
+
+    /** Whether bytes below 0x80 decode to the same chars, as in ASCII. */
+    public boolean isAsciiCompatible() {
+        return mAscii;
+    }
+
+    /** Decode a whole line. */
+    public void decode(byte[] data, int offset, int length, StringBuilder out) {
+        if (mAscii) {
+            int end = offset + length;
+            int bits = 0;
+            for (int i = offset; i < end; i++) {
+                bits |= data[i];
+            }
+            if (bits >= 0) {
+                // No byte has its high bit set
+                if (length > mChars.length) growChars(length);
+                char[] chars = mChars;
+                for (int i = 0; i < length; i++) {
+                    chars[i] = (char) data[offset + i];
+                }
+                out.append(chars, 0, length);
+                return;
+            }
+        }
+        ByteBuffer in = mIn;
+        if (in == null || in.array() != data) {
+            in = ByteBuffer.wrap(data);
+            mIn = in;
+        }
+        in.limit(offset + length).position(offset);
+        for (;;) {
+            mOut.clear();
+            CoderResult result = mDecoder.decode(in, mOut, true);
+            if (result.isUnderflow()) result = mDecoder.flush(mOut);
+            out.append(mChars, 0, mOut.position());
+            if (!result.isOverflow()) break;
+            growChars(mChars.length * 2);
+        }
+        mDecoder.reset();
+    }
+
+    private void growChars(int size) {
+        mChars = new char[Math.max(size, mChars.length * 2)];
+        mOut = CharBuffer.wrap(mChars);
+    }
+
+    /**
+     * Append bytes as a hex dump for binary devices: two hex digits per
+     * byte separated by spaces, then the bytes again with anything other
+     * than printable ASCII shown as a dot.
+     */
+    public static void appendHex(byte[] data, int offset, int length, StringBuilder out) {
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            int b = data[i] & 0xff;
+            if (i > offset) out.append(' ');
+            out.append(HEX[b >> 4]).append(HEX[b & 0xf]);
+        }
+        out.append("  ");
+        for (int i = offset; i < end; i++) {
+            int b = data[i] & 0xff;
+            out.append(b >= 0x20 && b < 0x7f ? (char) b : '.');
+        }
+    }
+
+    /** Whether the charset decodes every byte below 0x80 to the same char. */
+    private static boolean decodesAscii(Charset charset) {
+        byte[] ascii = new byte[0x80];
+        for (int i = 0; i < ascii.length; i++) {
+            ascii[i] = (byte) i;
+        }
+        CharBuffer chars;
+        try {
+            chars = charset.newDecoder().decode(ByteBuffer.wrap(ascii));
+        } catch (CharacterCodingException e) {
+            return false;
+        }
+        if (chars.remaining() != ascii.length) return false;
+        for (int i = 0; i < ascii.length; i++) {
+            if (chars.get(i) != i) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,377 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.util.Arrays;
+
+/**
+ * Splits the raw byte stream from the device into frames, lines for a
+ * text device, as its {@link Framing} describes. Bytes are written
+ * straight into a pooled {@link LineBuffer}; when a frame ends the buffer
+ * is stamped with the monotonic time, handed to the {@link Listener} and a fresh
+ * one is taken, so nothing is allocated or copied twice on the receive
+ * path.
+ *
+ * A frame longer than the pool's buffers grows its buffer up to the
+ * framing's maximum frame size. Past that the frame is truncated, split
+ * or discarded as the framing says, and counted as an overrun. Frames the
+ * decoder cannot make sense of are dropped and counted as errors. Not
+ * thread safe; feed it from the receive thread only. Bytes, frames,
+ * overruns and errors are also added to a shared {@link Metrics} when one
+ * is set.
+ */
+public class LineFramer {
+
+    /** Receives each completed line and becomes its owner. */
+    public interface Listener {
+        void onLine(LineBuffer line);
+    }
+
+    // SLIP special bytes
+    private static final byte SLIP_END = (byte) 0xc0;
+    private static final byte SLIP_ESC = (byte) 0xdb;
+    private static final byte SLIP_ESC_END = (byte) 0xdc;
+    private static final byte SLIP_ESC_ESC = (byte) 0xdd;
+
+    private final LineBufferPool mPool;
+    private final Framing mFraming;
+    private final Listener mListener;
+    private final int mMode;
+    private final int mMaxFrame;
+    private final int mOverflow;
+    private final boolean[] mDelimiter = new boolean[256];
+    private final boolean mDelimiterPairs;
+    private final byte[] mOne = new byte[1];
+    private int mTag;
+    private Metrics mMetrics;
+    private LineBuffer mLine;
+    private long mLines;
+    private long mLastTimestamp; // of the last frame delivered, or 0
+    private long mOverruns;
+    private long mErrors;
+    private boolean mOverrun;  // the frame has gone past the maximum
+    private boolean mDiscard;  // the frame is dropped when it ends
+    private boolean mBad;      // the frame cannot be decoded
+    // Delimited: the delimiter that ended the last frame, if nothing
+    // has come since
+    private int mLastDelimiter = -1;
+    // Length prefixed: prefix bytes read and their value, then the
+    // payload bytes still to come
+    private boolean mInPayload;
+    private int mPrefixCount;
+    private long mPrefixValue;
+    private long mPayloadRemaining;
+    // COBS: a code byte has been read, data bytes left in its block and
+    // whether a zero goes before the next block
+    private boolean mCobsStarted;
+    private int mCobsRemaining;
+    private boolean mCobsZero;
+    // SLIP: the last byte was an escape
+    private boolean mSlipEscape;
+
+    /** Frame lines that end with the delimiter. */
+    public LineFramer(LineBufferPool pool, byte delimiter, Listener listener) {
+        this(pool, Framing.delimited(delimiter), listener);
+    }
+
+    public LineFramer(LineBufferPool pool, Framing framing, Listener listener) {
+        mPool = pool;
+        mFraming = framing;
+        mListener = listener;
+        mMode = framing.getMode();
+        mMaxFrame = framing.getMaxFrameBytes();
+        mOverflow = framing.getOverflow();
+        byte[] delimiters = framing.getDelimiters();
+        if (delimiters != null) {
+            for (byte delimiter : delimiters) {
+                mDelimiter[delimiter & 0xff] = true;
+            }
+        }
+        mDelimiterPairs = delimiters != null && delimiters.length > 1;
+    }
+
+    /**
+     * Consume bytes read from the device.
+     * @param buffer  The bytes read
+     * @param offset  Start of the valid bytes
+     * @param count  Number of valid bytes
+     */
+    public void feed(byte[] buffer, int offset, int count) {
+        if (mLine == null) mLine = mPool.acquire();
+        Metrics metrics = mMetrics;
+        if (metrics != null) metrics.add(Metrics.BYTES_IN, count);
+
+        int end = offset + count;
+        switch (mMode) {
+        case Framing.MODE_LENGTH_PREFIXED:
+            feedLengthPrefixed(buffer, offset, end);
+            break;
+        case Framing.MODE_COBS:
+            feedCobs(buffer, offset, end);
+            break;
+        case Framing.MODE_SLIP:
+            feedSlip(buffer, offset, end);
+            break;
+        default:
+            feedDelimited(buffer, offset, end);
+            break;
+        }
+    }
+
+    /**
+     * Deliver a frame that is already known to be whole, such as one read
+     * back from a capture, without decoding it. Only for a framer that is
+     * not also fed.
+     */
+    public void frame(byte[] data, int offset, int length) {
+        if (mLine == null) mLine = mPool.acquire();
+        Metrics metrics = mMetrics;
+        if (metrics != null) metrics.add(Metrics.BYTES_IN, length);
+        append(data, offset, length);
+        endFrame();
+    }
+
+    private void feedDelimited(byte[] buffer, int offset, int end) {
+        boolean[] delimiter = mDelimiter;
+        int start = offset;
+        for (int i = offset; i < end; i++) {
+            int b = buffer[i] & 0xff;
+            if (!delimiter[b]) continue;
+            if (i == start && mLastDelimiter >= 0 && mLastDelimiter != b) {
+                // The second half of a CR LF pair
+                mLastDelimiter = -1;
+                start = i + 1;
+                continue;
+            }
+            append(buffer, start, i - start);
+            endFrame();
+            if (mDelimiterPairs) mLastDelimiter = b;
+            start = i + 1;
+        }
+        if (start < end) {
+            append(buffer, start, end - start);
+            mLastDelimiter = -1;
+        }
+    }
+
+    private void feedLengthPrefixed(byte[] buffer, int offset, int end) {
+        int prefixBytes = mFraming.getPrefixBytes();
+        while (offset < end) {
+            if (!mInPayload) {
+                long b = buffer[offset++] & 0xff;
+                if (mFraming.isBigEndian()) {
+                    mPrefixValue = (mPrefixValue << 8) | b;
+                } else {
+                    mPrefixValue |= b << (8 * mPrefixCount);
+                }
+                if (++mPrefixCount < prefixBytes) continue;
+                mPayloadRemaining = mPrefixValue;
+                mPrefixValue = 0;
+                mPrefixCount = 0;
+                if (mPayloadRemaining == 0) {
+                    endFrame();
+                } else {
+                    mInPayload = true;
+                }
+                continue;
+            }
+            int length = (int) Math.min(mPayloadRemaining, end - offset);
+            append(buffer, offset, length);
+            offset += length;
+            mPayloadRemaining -= length;
+            if (mPayloadRemaining == 0) {
+                mInPayload = false;
+                endFrame();
+            }
+        }
+    }
+
+    private void feedCobs(byte[] buffer, int offset, int end) {
+        for (int i = offset; i < end; i++) {
+            byte b = buffer[i];
+            if (b == 0) {
+                if (mCobsRemaining > 0) {
+                    // The frame ended inside a block
+                    dropFrame();
+                } else if (mCobsStarted) {
+                    endFrame();
+                }
+                mCobsStarted = false;
+                mCobsRemaining = 0;
+                mCobsZero = false;
+            } else if (mCobsRemaining == 0) {
+                int code = b & 0xff;
+                if (mCobsZero) put((byte) 0);
+                mCobsStarted = true;
+                mCobsRemaining = code - 1;
+                mCobsZero = code != 0xff;
+            } else {
+                put(b);
+                mCobsRemaining--;
+            }
+        }
+    }
+
+    private void feedSlip(byte[] buffer, int offset, int end) {
+        for (int i = offset; i < end; i++) {
+            byte b = buffer[i];
+            if (mSlipEscape) {
+                mSlipEscape = false;
+                if (b == SLIP_ESC_END) {
+                    put(SLIP_END);
+                    continue;
+                } else if (b == SLIP_ESC_ESC) {
+                    put(SLIP_ESC);
+                    continue;
+                }
+                mBad = true;
+            }
+            if (b == SLIP_END) {
+                if (mBad) {
+                    dropFrame();
+                } else if (mLine.mLength > 0 || mOverrun) {
+                    // Empty frames only flush the line
+                    endFrame();
+                }
+            } else if (b == SLIP_ESC) {
+                mSlipEscape = true;
+            } else {
+                put(b);
+            }
+        }
+    }
+
+    /** Add one decoded byte to the frame. */
+    private void put(byte b) {
+        LineBuffer line = mLine;
+        int length = line.mLength;
+        if (length < line.mData.length && length < mMaxFrame) {
+            line.mData[length] = b;
+            line.mLength = length + 1;
+        } else {
+            mOne[0] = b;
+            append(mOne, 0, 1);
+        }
+    }
+
+    /** Add decoded bytes to the frame, growing it up to the maximum. */
+    private void append(byte[] buffer, int offset, int length) {
+        while (length > 0 && !mDiscard) {
+            LineBuffer line = mLine;
+            int position = line.mLength;
+            int copy = Math.min(length, mMaxFrame - position);
+            if (position + copy > line.mData.length) {
+                int capacity = Math.max(position + copy, line.mData.length * 2);
+                line.mData = Arrays.copyOf(line.mData, Math.min(capacity, mMaxFrame));
+            }
+            System.arraycopy(buffer, offset, line.mData, position, copy);
+            line.mLength = position + copy;
+            offset += copy;
+            length -= copy;
+            if (length == 0) return;
+
+            mOverrun = true;
+            if (mOverflow == Framing.OVERFLOW_SPLIT) {
+                deliver();
+            } else {
+                if (mOverflow == Framing.OVERFLOW_DISCARD) mDiscard = true;
+                return;
+            }
+        }
+    }
+
+    /** The frame is complete; deliver it unless it is being discarded. */
+    private void endFrame() {
+        if (mOverrun) {
+            mOverruns++;
+            if (mMetrics != null) mMetrics.increment(Metrics.OVERRUNS);
+            mOverrun = false;
+        }
+        if (mDiscard) {
+            mDiscard = false;
+            mLine.mLength = 0;
+            return;
+        }
+        deliver();
+    }
+
+    private void deliver() {
+        LineBuffer line = mLine;
+        long now = System.nanoTime();
+        line.mTimestamp = now;
+        line.mTag = mTag;
+        mLines++;
+        if (mMetrics != null) {
+            mMetrics.increment(Metrics.LINES_IN);
+            if (mLastTimestamp != 0) mMetrics.recordInterArrival(now - mLastTimestamp);
+        }
+        mLastTimestamp = now;
+        mListener.onLine(line);
+        mLine = mPool.acquire();
+    }
+
+    /** Throw away a frame that could not be decoded. */
+    private void dropFrame() {
+        mErrors++;
+        if (mMetrics != null) mMetrics.increment(Metrics.FRAME_ERRORS);
+        mLine.mLength = 0;
+        mOverrun = false;
+        mDiscard = false;
+        mBad = false;
+    }
+
+    /** Set the device tag stamped on every line from now on. */
+    public void setTag(int tag) {
+        mTag = tag;
+    }
+
+    /** Count bytes, lines and overruns in metrics as well, or stop with null. */
+    public void setMetrics(Metrics metrics) {
+        mMetrics = metrics;
+    }
+
+    public Framing getFraming() {
+        return mFraming;
+    }
+
+    /** Return any partly received line to the pool and start afresh. */
+    public void reset() {
+        if (mLine != null) {
+            mLine.release();
+            mLine = null;
+        }
+        mOverrun = false;
+        mDiscard = false;
+        mBad = false;
+        mLastTimestamp = 0;
+        mLastDelimiter = -1;
+        mInPayload = false;
+        mPrefixCount = 0;
+        mPrefixValue = 0;
+        mPayloadRemaining = 0;
+        mCobsStarted = false;
+        mCobsRemaining = 0;
+        mCobsZero = false;
+        mSlipEscape = false;
+    }
+
+    /** Number of complete lines delivered so far. */
+    public long getLines() {
+        return mLines;
+    }
+
+    /** Number of frames longer than the maximum frame size. */
+    public long getOverruns() {
+        return mOverruns;
+    }
+
+    /** Number of frames dropped because they could not be decoded. */
+    public long getErrors() {
+        return mErrors;
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.nio.charset.Charset;
+import java.util.Calendar;
+
+import android.content.Context;
+import android.util.SparseArray;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.TextView;
+
+/**
+ * Shows a {@link LogModel} in a ListView. Row text is only built when a
+ * row is bound, so the only Strings alive are those of visible rows.
+ *
+ * While filtered only the lines named by addMatches() are shown. Matches
+ * are held as line sequence numbers and drop out as the model evicts
+ * their lines.
+ *
+ * The service appends to the model before its message saying so reaches
+ * the activity, so rows are counted and placed from a snapshot taken in
+ * notifyDataSetChanged(), never from the live model. The ListView then
+ * sees the count change only when it is told. A row whose line has been
+ * evicted since the snapshot shows empty until the next notification.
+ *
+ * Lines are decoded with a {@link LineDecoder} into one reused
+ * StringBuilder, or shown as a hex dump for binary devices. Each row can
+ * start with the line's time, either the wall clock time or the time
+ * since the line before it.
+ */
+public class LogAdapter extends BaseAdapter {
+
+    // What time, if any, rows start with
+    public static final int TIME_NONE = 0;
+    public static final int TIME_DELTA = 1; // ms since the device's previous line
+    public static final int TIME_WALL = 2;  // wall clock time of day
+
+    private final LayoutInflater mInflater;
+    private final LogModel mModel;
+    private final SparseArray<String> mDeviceNames = new SparseArray<String>();
+    private LineDecoder mDecoder = new LineDecoder(Charset.forName("UTF-8"));
+    private boolean mHexDump;
+    private int mTimeMode = TIME_NONE;
+    private final Calendar mCalendar = Calendar.getInstance();
+    private final StringBuilder mRowText = new StringBuilder();
+
+    // Sequence numbers of the lines shown while filtered, oldest first
+    private boolean mFiltered;
+    private long[] mMatches = new long[64];
+    private int mMatchStart;
+    private int mMatchEnd;
+
+    // The rows as of the last notifyDataSetChanged()
+    private int mCount;
+    private long mFirstSequence;
+
+    public LogAdapter(Context context, LogModel model) {
+        mInflater = LayoutInflater.from(context);
+        mModel = model;
+        mFirstSequence = model.getFirstSequence();
+        mCount = model.size();
+    }
+
+    /** Set the name shown in front of lines from the device with a tag. */
+    public void setDeviceName(int tag, String name) {
+        mDeviceNames.put(tag, name);
+    }
+
+    /**
+     * Show only matching lines, or every line again. Either way the
+     * matches found so far are forgotten. Call notifyDataSetChanged()
+     * afterwards.
+     */
+    public void setFiltered(boolean filtered) {
+        mFiltered = filtered;
+        mMatchStart = 0;
+        mMatchEnd = 0;
+    }
+
+    public boolean isFiltered() {
+        return mFiltered;
+    }
+
+    /**
+     * Set the charset received and sent lines are decoded with. Call
+     * notifyDataSetChanged() afterwards.
+     */
+    public void setCharset(Charset charset) {
+        mDecoder = new LineDecoder(charset);
+    }
+
+    public Charset getCharset() {
+        return mDecoder.getCharset();
+    }
+
+    /**
+     * Show the bytes of received and sent lines in hex rather than as
+     * text. Call notifyDataSetChanged() afterwards.
+     */
+    public void setHexDump(boolean hexDump) {
+        mHexDump = hexDump;
+    }
+
+    public boolean isHexDump() {
+        return mHexDump;
+    }
+
+    /**
+     * Choose the time rows start with: TIME_NONE, TIME_DELTA or
+     * TIME_WALL. Call notifyDataSetChanged() afterwards.
+     */
+    public void setTimeMode(int mode) {
+        mTimeMode = mode;
+    }
+
+    public int getTimeMode() {
+        return mTimeMode;
+    }
+
+    /**
+     * Add lines to those shown while filtered. Call notifyDataSetChanged()
+     * afterwards.
+     * @param lines  Ascending sequence numbers, after any added before
+     */
+    public void addMatches(long[] lines) {
+        int live = mMatchEnd - mMatchStart;
+        if (mMatchEnd + lines.length > mMatches.length) {
+            long[] matches = mMatches;
+            if (live + lines.length > mMatches.length) {
+                matches = new long[Math.max(mMatches.length * 2, live + lines.length)];
+            }
+            System.arraycopy(mMatches, mMatchStart, matches, 0, live);
+            mMatches = matches;
+            mMatchStart = 0;
+            mMatchEnd = live;
+        }
+        System.arraycopy(lines, 0, mMatches, mMatchEnd, lines.length);
+        mMatchEnd += lines.length;
+    }
+
+    /** Number of matches still held by the model. */
+    public int getMatchCount() {
+        return mMatchEnd - mMatchStart;
+    }
+
+    @Override
+    public void notifyDataSetChanged() {
+        // Forget matches whose lines have been evicted
+        long first = mModel.getFirstSequence();
+        while (mMatchStart < mMatchEnd && mMatches[mMatchStart] < first) mMatchStart++;
+        mFirstSequence = first;
+        mCount = mFiltered ? mMatchEnd - mMatchStart : mModel.size();
+        super.notifyDataSetChanged();
+    }
+
+    public int getCount() {
+        return mCount;
+    }
+
+    public Object getItem(int position) {
+        return getRowText(position).toString();
+    }
+
+    public long getItemId(int position) {
+        return sequenceAt(position);
+    }
+
+    /** Sequence number of the line shown at a position. */
+    private long sequenceAt(int position) {
+        return mFiltered ? mMatches[mMatchStart + position] : mFirstSequence + position;
+    }
+
+    /**
+     * Index in the model of the line shown at a position, or -1 if the
+     * model no longer holds it.
+     */
+    private int lineAt(int position) {
+        long index = sequenceAt(position) - mModel.getFirstSequence();
+        return index >= 0 && index < mModel.size() ? (int) index : -1;
+    }
+
+    public View getView(int position, View convertView, ViewGroup parent) {
+        TextView view = (TextView) convertView;
+        if (view == null) {
+            view = (TextView) mInflater.inflate(R.layout.message, parent, false);
+        }
+        view.setText(getRowText(position));
+        return view;
+    }
+
+    /** The row's text, valid until the next row is built. */
+    private CharSequence getRowText(int position) {
+        int line = lineAt(position);
+        StringBuilder text = mRowText;
+        text.setLength(0);
+        if (line < 0) return text;
+        String name = mDeviceNames.get(mModel.getTag(line));
+        if (mTimeMode != TIME_NONE) appendTime(line, text);
+        int direction = mModel.getDirection(line);
+        if (direction == LogModel.DIR_NOTE) {
+            // Notes are ours, never device data
+        } else if (direction != LogModel.DIR_OUT) {
+            text.append(name).append(":  ");
+        } else if (mDeviceNames.size() > 1) {
+            // Say which device a command went to once there is a choice
+            text.append("Out to ").append(name).append(":  ");
+        } else {
+            text.append("Out:  ");
+        }
+        if (mHexDump && direction != LogModel.DIR_NOTE) {
+            LineDecoder.appendHex(mModel.getArena(), mModel.getOffset(line),
+                    mModel.getLength(line), text);
+        } else {
+            mDecoder.decode(mModel.getArena(), mModel.getOffset(line),
+                    mModel.getLength(line), text);
+        }
+        return text;
+    }
+
+    private void appendTime(int line, StringBuilder text) {
+        if (mTimeMode == TIME_WALL) {
+            Calendar calendar = mCalendar;
+            calendar.setTimeInMillis(mModel.getWallTime(line));
+            appendDigits(text, calendar.get(Calendar.HOUR_OF_DAY), 2);
+            text.append(':');
+            appendDigits(text, calendar.get(Calendar.MINUTE), 2);
+            text.append(':');
+            appendDigits(text, calendar.get(Calendar.SECOND), 2);
+            text.append('.');
+            appendDigits(text, calendar.get(Calendar.MILLISECOND), 3);
+        } else {
+            long gap = mModel.getGap(line);
+            if (gap == LogModel.NO_GAP) return;
+            long micros = gap / 1000;
+            text.append('+').append(micros / 1000).append('.');
+            appendDigits(text, (int) (micros % 1000), 3);
+        }
+        text.append("  ");
+    }
+
+    /** Append a value zero padded to a number of digits. */
+    private static void appendDigits(StringBuilder text, int value, int digits) {
+        int scale = 1;
+        for (int i = 1; i < digits; i++) scale *= 10;
+        for (; scale > 1 && value < scale; scale /= 10) {
+            text.append('0');
+        }
+        text.append(value);
+    }
+}
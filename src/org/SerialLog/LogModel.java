@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.util.Arrays;
+
+/**
+ * The session log shown in the main list. Line bytes are kept in one
+ * preallocated arena used as a ring, indexed by parallel primitive
+ * arrays, so memory use is fixed when the model is created and does not
+ * grow with the length of a session. When either the arena or the index
+ * is full the oldest lines are evicted to make room.
+ *
+ * Lines never wrap around the end of the arena; if a line does not fit
+ * in the space left at the end, writing starts again at the front.
+ *
+ * Each line carries the monotonic time it was received, kept in a long[]
+ * beside the index. Wall clock times are worked out from it with the
+ * offset between the two clocks when the model was made, so they stay
+ * evenly spaced if the wall clock is stepped during a session.
+ *
+ * With it is kept the gap since the previous line in the same direction
+ * from or to the same device, worked out as the line is appended, so
+ * that the gaps of one device are not cut short by lines from another
+ * and stay right however the log is filtered.
+ *
+ * Lines are also numbered in the order they were appended, from zero
+ * for the first line of the model's life, so that another thread can
+ * name a line and find it again after older lines are evicted.
+ *
+ * Only the UI thread may change the model. Other threads must hold the
+ * model's lock while they read it; append() and clear() take it.
+ */
+public class LogModel {
+
+    // Line directions, the same values as CaptureFormat. A note is text
+    // from the app itself, such as a mark where lines were not shown
+    public static final int DIR_IN = 0;
+    public static final int DIR_OUT = 1;
+    public static final int DIR_NOTE = 2;
+
+    /** Gap of a note, or of the first line from or to a device. */
+    public static final long NO_GAP = -1;
+
+    private final byte[] mArena;
+    private final int[] mOffsets;
+    private final int[] mLengths;
+    private final byte[] mDirections;
+    private final short[] mTags;
+    private final long[] mTimes;
+    private final long[] mGaps;
+    // Time of the last line in and out for each tag, at tag * 2 + direction
+    private long[] mLastTimes = new long[0];
+    // Wall clock time, in ms, at monotonic time mClockNanos
+    private final long mClockMillis;
+    private final long mClockNanos;
+
+    private int mFirst;       // index slot of the oldest line
+    private int mCount;       // number of lines held
+    private int mHead;        // arena position of the next write
+    private boolean mWrapped; // the newest lines sit in front of the oldest
+    private long mEvicted;
+    private long mFirstSequence; // number of the oldest line held
+
+    /**
+     * @param arenaBytes  Bytes reserved for line contents
+     * @param maxLines  Most lines held at once
+     */
+    public LogModel(int arenaBytes, int maxLines) {
+        mArena = new byte[arenaBytes];
+        mOffsets = new int[maxLines];
+        mLengths = new int[maxLines];
+        mDirections = new byte[maxLines];
+        mTags = new short[maxLines];
+        mTimes = new long[maxLines];
+        mGaps = new long[maxLines];
+        mClockMillis = System.currentTimeMillis();
+        mClockNanos = System.nanoTime();
+    }
+
+    /**
+     * Append a line, evicting the oldest lines if needed. A line longer
+     * than the whole arena is truncated.
+     * @param data  Buffer holding the line
+     * @param offset  Start of the line in data
+     * @param length  Length of the line
+     * @param direction  DIR_IN, DIR_OUT or DIR_NOTE
+     * @param tag  Device the line came from or was sent to
+     * @param nanos  Time it was received or sent, System.nanoTime()
+     */
+    public synchronized void append(byte[] data, int offset, int length, int direction, int tag,
+            long nanos) {
+        if (length > mArena.length) length = mArena.length;
+        if (mCount == mOffsets.length) evictOldest();
+        makeRoom(length);
+
+        int slot = slot(mCount);
+        System.arraycopy(data, offset, mArena, mHead, length);
+        mOffsets[slot] = mHead;
+        mLengths[slot] = length;
+        mDirections[slot] = (byte) direction;
+        mTags[slot] = (short) tag;
+        mTimes[slot] = nanos;
+        mGaps[slot] = gapFor(direction, tag, nanos);
+        mHead += length;
+        mCount++;
+    }
+
+    /** Note the time of a line and return the gap since the last like it. */
+    private long gapFor(int direction, int tag, long nanos) {
+        if (direction == DIR_NOTE) return NO_GAP;
+        int index = tag * 2 + direction;
+        if (index >= mLastTimes.length) {
+            int size = Math.max(index + 1, mLastTimes.length * 2);
+            long[] times = new long[size];
+            System.arraycopy(mLastTimes, 0, times, 0, mLastTimes.length);
+            Arrays.fill(times, mLastTimes.length, size, Long.MIN_VALUE);
+            mLastTimes = times;
+        }
+        long last = mLastTimes[index];
+        mLastTimes[index] = nanos;
+        return last != Long.MIN_VALUE ? Math.max(nanos - last, 0) : NO_GAP;
+    }
+
+    /** Move the write position to where length bytes are free. */
+    private void makeRoom(int length) {
+        while (mCount > 0) {
+            int tail = mOffsets[mFirst];
+            if (!mWrapped) {
+                if (mHead + length <= mArena.length) return;
+                if (length <= tail) {
+                    mHead = 0;
+                    mWrapped = true;
+                    return;
+                }
+            } else if (mHead + length <= tail) {
+                return;
+            }
+            evictOldest();
+        }
+        mHead = 0;
+        mWrapped = false;
+    }
+
+    private void evictOldest() {
+        int tail = mOffsets[mFirst];
+        mFirst = (mFirst + 1) % mOffsets.length;
+        mCount--;
+        mEvicted++;
+        mFirstSequence++;
+        // Once the oldest line is back at the front nothing is wrapped
+        if (mCount > 0 && mOffsets[mFirst] < tail) mWrapped = false;
+    }
+
+    private int slot(int index) {
+        return (mFirst + index) % mOffsets.length;
+    }
+
+    public synchronized void clear() {
+        mFirstSequence += mCount;
+        mFirst = 0;
+        mCount = 0;
+        mHead = 0;
+        mWrapped = false;
+    }
+
+    /** Number of lines held. */
+    public int size() {
+        return mCount;
+    }
+
+    /** Sequence number of the oldest line held, the one at index 0. */
+    public long getFirstSequence() {
+        return mFirstSequence;
+    }
+
+    /** The arena holding line bytes; see getOffset() and getLength(). */
+    public byte[] getArena() {
+        return mArena;
+    }
+
+    /** Arena position of a line, 0 being the oldest line held. */
+    public int getOffset(int index) {
+        return mOffsets[slot(index)];
+    }
+
+    public int getLength(int index) {
+        return mLengths[slot(index)];
+    }
+
+    public int getDirection(int index) {
+        return mDirections[slot(index)];
+    }
+
+    public int getTag(int index) {
+        return mTags[slot(index)];
+    }
+
+    /** Monotonic time of a line, System.nanoTime(). */
+    public long getTimestamp(int index) {
+        return mTimes[slot(index)];
+    }
+
+    /**
+     * Nanoseconds since the previous line in the same direction from or
+     * to the same device, even one since evicted or cleared, or NO_GAP.
+     */
+    public long getGap(int index) {
+        return mGaps[slot(index)];
+    }
+
+    /** Wall clock time of a line, in ms since the epoch. */
+    public long getWallTime(int index) {
+        return toWallTime(mTimes[slot(index)]);
+    }
+
+    /** Convert a monotonic time to wall clock ms, as getWallTime() does. */
+    public long toWallTime(long nanos) {
+        return mClockMillis + (nanos - mClockNanos) / 1000000;
+    }
+
+    /** Total number of lines evicted to respect the limits. */
+    public long getEvicted() {
+        return mEvicted;
+    }
+
+    /** Fixed number of bytes held by the arena and index. */
+    public int getCapacityBytes() {
+        return mArena.length + mOffsets.length * 27;
+    }
+}
@@ -0,0 +1,486 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.util.ArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Message;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Filters the session log on a thread of its own so that a search over
+ * the whole history never stalls the UI. Matches are sent to the UI
+ * handler in chunks as the scan goes, and once the history is done each
+ * new line is matched as it is appended, so the log is never scanned
+ * twice for the same query. A new query aborts the one in progress.
+ *
+ * The thread reads the {@link LogModel} under the model's lock a block
+ * of lines at a time, which bounds how long an append on the UI thread
+ * can wait. Lines are named by their sequence number in the model, so
+ * matches stay valid while older lines are evicted.
+ *
+ * Word searches can be answered from a {@link TokenIndex}, kept up to
+ * date as lines arrive while indexing is on; other searches read every
+ * line.
+ */
+public class LogSearch {
+
+    // Debugging
+    private static final String TAG = "LogSearch";
+    private static final boolean D = true;
+
+    // Messages sent to the UI handler; arg1 is the query's generation
+    public static final int MESSAGE_MATCHES = 20; // obj is a long[] of line numbers
+    public static final int MESSAGE_DONE = 21;    // arg2 is the time taken on the history in ms
+
+    // Kinds of query
+    public static final int MODE_TEXT = 0;   // substring, ignoring ASCII case
+    public static final int MODE_WORDS = 1;  // lines holding every word
+    public static final int MODE_REGEX = 2;  // java.util.regex, found anywhere in the line
+
+    // Messages to the search thread
+    private static final int MSG_QUERY = 1;
+    private static final int MSG_APPENDED = 2;
+    private static final int MSG_INDEX = 3;
+
+    // Lines read per hold of the model's lock
+    private static final int LINES_PER_LOCK = 1024;
+    // Matches found during a long scan reach the UI at least this often
+    private static final long PUBLISH_INTERVAL_MS = 50;
+
+    /** Decides whether one line matches. */
+    interface LineMatcher {
+        boolean matches(byte[] data, int offset, int length);
+    }
+
+    private final LogModel mModel;
+    private final Handler mUiHandler;
+    private HandlerThread mThread;
+    private Handler mWorker;
+
+    // Written by the UI thread; the search thread drops work for older queries
+    private volatile int mGeneration;
+    private boolean mFiltering;
+    private boolean mIndexing;
+
+    // Owned by the search thread
+    private LineMatcher mMatcher;
+    private int mQueryGeneration;
+    private long mNextLine;
+    private TokenIndex mIndex;
+    private long[] mPending = new long[64];
+    private int mPendingCount;
+    private long mLastPublish;
+
+    /**
+     * @param model  The log to search, written only by the UI thread
+     * @param uiHandler  Receives MESSAGE_MATCHES and MESSAGE_DONE
+     */
+    public LogSearch(LogModel model, Handler uiHandler) {
+        mModel = model;
+        mUiHandler = uiHandler;
+    }
+
+    public synchronized void start() {
+        if (mThread != null) return;
+        mThread = new HandlerThread(TAG);
+        mThread.start();
+        mWorker = new Handler(mThread.getLooper()) {
+            @Override
+            public void handleMessage(Message msg) {
+                switch (msg.what) {
+                case MSG_QUERY:
+                    runQuery((LineMatcher) msg.obj, msg.arg1, msg.arg2);
+                    break;
+                case MSG_APPENDED:
+                    if (mIndex != null) updateIndex();
+                    if (mMatcher != null) scan();
+                    break;
+                case MSG_INDEX:
+                    if (msg.arg1 != 0) {
+                        mIndex = new TokenIndex();
+                        mIndex.evictBefore(firstLine());
+                        updateIndex();
+                    } else {
+                        mIndex = null;
+                    }
+                    break;
+                }
+            }
+        };
+    }
+
+    public synchronized void stop() {
+        if (mThread == null) return;
+        mGeneration++;
+        mThread.quit();
+        mThread = null;
+        mWorker = null;
+    }
+
+    /**
+     * Start a new search, replacing the current one. An empty query
+     * stops filtering. Call from the UI thread.
+     * @param query  Text, words or pattern to look for
+     * @param mode  MODE_TEXT, MODE_WORDS or MODE_REGEX
+     * @return  The generation that matches for this query will carry
+     * @throws java.util.regex.PatternSyntaxException  if the pattern is invalid
+     */
+    public int setQuery(String query, int mode) {
+        LineMatcher matcher = null;
+        if (query.length() > 0) {
+            switch (mode) {
+            case MODE_WORDS:
+                WordsMatcher words = new WordsMatcher(query);
+                if (words.isEmpty()) break;
+                matcher = words;
+                break;
+            case MODE_REGEX:
+                matcher = new RegexMatcher(Pattern.compile(query));
+                break;
+            default:
+                matcher = new TextMatcher(query);
+                break;
+            }
+        }
+        int generation = ++mGeneration;
+        mFiltering = matcher != null;
+        Handler worker = mWorker;
+        if (worker != null) {
+            worker.removeMessages(MSG_QUERY);
+            worker.sendMessage(worker.obtainMessage(MSG_QUERY, generation, mode, matcher));
+        }
+        return generation;
+    }
+
+    /** True while a non-empty query is set. */
+    public boolean isFiltering() {
+        return mFiltering;
+    }
+
+    /** Generation of the latest query; matches for older ones are stale. */
+    public int getGeneration() {
+        return mGeneration;
+    }
+
+    /**
+     * Keep a word index of the log so that word searches need not read
+     * every line. Costs a few bytes per word of each line held.
+     */
+    public void setIndexing(boolean indexing) {
+        mIndexing = indexing;
+        Handler worker = mWorker;
+        if (worker != null) worker.sendMessage(worker.obtainMessage(MSG_INDEX, indexing ? 1 : 0, 0));
+    }
+
+    public boolean isIndexing() {
+        return mIndexing;
+    }
+
+    /** Tell the search that lines were appended to the model. Call from the UI thread. */
+    public void onAppended() {
+        if (!mFiltering && !mIndexing) return;
+        Handler worker = mWorker;
+        if (worker != null && !worker.hasMessages(MSG_APPENDED)) {
+            worker.sendEmptyMessage(MSG_APPENDED);
+        }
+    }
+
+    private long firstLine() {
+        synchronized (mModel) {
+            return mModel.getFirstSequence();
+        }
+    }
+
+    private void runQuery(LineMatcher matcher, int generation, int mode) {
+        mMatcher = matcher;
+        mQueryGeneration = generation;
+        mPendingCount = 0;
+        if (matcher == null) return;
+        long started = SystemClock.uptimeMillis();
+        mLastPublish = started;
+        if (mode == MODE_WORDS && mIndex != null) {
+            updateIndex();
+            long[] hashes = ((WordsMatcher) matcher).getIndexedHashes();
+            if (hashes.length > 0) {
+                searchIndex(hashes);
+                publish();
+                done(started, true);
+                return;
+            }
+        }
+        mNextLine = 0;
+        if (scan()) done(started, false);
+    }
+
+    private void done(long started, boolean indexed) {
+        int elapsed = (int) (SystemClock.uptimeMillis() - started);
+        if (D) Log.d(TAG, "query " + mQueryGeneration + " took " + elapsed + " ms"
+                + (indexed ? " using the index" : ""));
+        mUiHandler.obtainMessage(MESSAGE_DONE, mQueryGeneration, elapsed).sendToTarget();
+    }
+
+    /**
+     * Match the lines from mNextLine to the end of the log.
+     * @return  false if a newer query interrupted the scan
+     */
+    private boolean scan() {
+        LineMatcher matcher = mMatcher;
+        while (true) {
+            if (mQueryGeneration != mGeneration) return false;
+            boolean done;
+            synchronized (mModel) {
+                long first = mModel.getFirstSequence();
+                long end = first + mModel.size();
+                if (mNextLine < first) mNextLine = first;
+                long stop = Math.min(end, mNextLine + LINES_PER_LOCK);
+                byte[] arena = mModel.getArena();
+                for (; mNextLine < stop; mNextLine++) {
+                    int index = (int) (mNextLine - first);
+                    if (matcher.matches(arena, mModel.getOffset(index), mModel.getLength(index))) {
+                        addMatch(mNextLine);
+                    }
+                }
+                done = mNextLine == end;
+            }
+            if (done) {
+                publish();
+                return true;
+            }
+            if (SystemClock.uptimeMillis() - mLastPublish >= PUBLISH_INTERVAL_MS) publish();
+        }
+    }
+
+    /** Match the candidates the index gives, then carry on from the end of the log. */
+    private void searchIndex(long[] hashes) {
+        long[] candidates = mIndex.candidates(hashes);
+        LineMatcher matcher = mMatcher;
+        int next = 0;
+        while (next < candidates.length) {
+            if (mQueryGeneration != mGeneration) return;
+            synchronized (mModel) {
+                long first = mModel.getFirstSequence();
+                int stop = Math.min(candidates.length, next + LINES_PER_LOCK);
+                byte[] arena = mModel.getArena();
+                for (; next < stop; next++) {
+                    int index = (int) (candidates[next] - first);
+                    if (index < 0) continue;
+                    if (matcher.matches(arena, mModel.getOffset(index), mModel.getLength(index))) {
+                        addMatch(candidates[next]);
+                    }
+                }
+            }
+        }
+        // updateIndex() has just run, so the index covers the log up to here
+        mNextLine = mIndex.getNextLine();
+    }
+
+    /** Index the lines appended since the last call. */
+    private void updateIndex() {
+        while (true) {
+            synchronized (mModel) {
+                long first = mModel.getFirstSequence();
+                long end = first + mModel.size();
+                mIndex.evictBefore(first);
+                long line = mIndex.getNextLine();
+                long stop = Math.min(end, line + LINES_PER_LOCK);
+                byte[] arena = mModel.getArena();
+                for (; line < stop; line++) {
+                    int index = (int) (line - first);
+                    mIndex.add(line, arena, mModel.getOffset(index), mModel.getLength(index));
+                }
+                if (line == end) return;
+            }
+        }
+    }
+
+    private void addMatch(long line) {
+        if (mPendingCount == mPending.length) {
+            long[] grown = new long[mPending.length * 2];
+            System.arraycopy(mPending, 0, grown, 0, mPendingCount);
+            mPending = grown;
+        }
+        mPending[mPendingCount++] = line;
+    }
+
+    /** Send the matches found so far to the UI. */
+    private void publish() {
+        mLastPublish = SystemClock.uptimeMillis();
+        if (mPendingCount == 0) return;
+        long[] lines = new long[mPendingCount];
+        System.arraycopy(mPending, 0, lines, 0, mPendingCount);
+        mPendingCount = 0;
+        mUiHandler.obtainMessage(MESSAGE_MATCHES, mQueryGeneration, 0, lines).sendToTarget();
+    }
+
+    /** Substring match ignoring ASCII case. */
+    static class TextMatcher implements LineMatcher {
+        private final byte[] mmLower;
+        private final byte[] mmUpper;
+
+        TextMatcher(String text) {
+            byte[] bytes = text.getBytes();
+            mmLower = new byte[bytes.length];
+            mmUpper = new byte[bytes.length];
+            for (int i = 0; i < bytes.length; i++) {
+                mmLower[i] = TokenIndex.fold(bytes[i]);
+                mmUpper[i] = bytes[i] >= 'a' && bytes[i] <= 'z'
+                        ? (byte) (bytes[i] - ('a' - 'A')) : mmLower[i];
+            }
+        }
+
+        public boolean matches(byte[] data, int offset, int length) {
+            return indexOf(data, offset, length, mmLower, mmUpper) >= 0;
+        }
+    }
+
+    /** Lines holding every word of the query as a whole word, ignoring ASCII case. */
+    static class WordsMatcher implements LineMatcher {
+        private final byte[][] mmLower;
+        private final byte[][] mmUpper;
+        private final long[] mmIndexedHashes;
+
+        WordsMatcher(String query) {
+            byte[] bytes = query.getBytes();
+            ArrayList<byte[]> words = new ArrayList<byte[]>();
+            ArrayList<Long> hashes = new ArrayList<Long>();
+            int i = 0;
+            while (i < bytes.length) {
+                while (i < bytes.length && !TokenIndex.isWordByte(bytes[i])) i++;
+                int start = i;
+                while (i < bytes.length && TokenIndex.isWordByte(bytes[i])) i++;
+                if (i == start) continue;
+                byte[] word = new byte[i - start];
+                System.arraycopy(bytes, start, word, 0, word.length);
+                words.add(word);
+                if (TokenIndex.isIndexed(word, 0, word.length)) {
+                    hashes.add(TokenIndex.hash(word, 0, word.length));
+                }
+            }
+            mmLower = new byte[words.size()][];
+            mmUpper = new byte[words.size()][];
+            for (int w = 0; w < mmLower.length; w++) {
+                TextMatcher text = new TextMatcher(new String(words.get(w)));
+                mmLower[w] = text.mmLower;
+                mmUpper[w] = text.mmUpper;
+            }
+            mmIndexedHashes = new long[hashes.size()];
+            for (int h = 0; h < mmIndexedHashes.length; h++) mmIndexedHashes[h] = hashes.get(h);
+        }
+
+        boolean isEmpty() {
+            return mmLower.length == 0;
+        }
+
+        /** Hashes of the words a {@link TokenIndex} holds. */
+        long[] getIndexedHashes() {
+            return mmIndexedHashes;
+        }
+
+        public boolean matches(byte[] data, int offset, int length) {
+            for (int w = 0; w < mmLower.length; w++) {
+                if (!containsWord(data, offset, length, mmLower[w], mmUpper[w])) return false;
+            }
+            return true;
+        }
+
+        private static boolean containsWord(byte[] data, int offset, int length,
+                byte[] lower, byte[] upper) {
+            int end = offset + length;
+            int from = offset;
+            while (from < end) {
+                int at = indexOf(data, from, end - from, lower, upper);
+                if (at < 0) return false;
+                int after = at + lower.length;
+                if ((at == offset || !TokenIndex.isWordByte(data[at - 1]))
+                        && (after == end || !TokenIndex.isWordByte(data[after]))) {
+                    return true;
+                }
+                from = at + 1;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Regular expression found anywhere in the line. The line is seen as
+     * ISO-8859-1 so that no String is made per line; patterns with
+     * characters above U+007F will not match UTF-8 text.
+     */
+    static class RegexMatcher implements LineMatcher {
+        private final Matcher mmMatcher;
+        private final ByteChars mmChars = new ByteChars();
+
+        RegexMatcher(Pattern pattern) {
+            mmMatcher = pattern.matcher("");
+        }
+
+        public boolean matches(byte[] data, int offset, int length) {
+            mmChars.set(data, offset, length);
+            return mmMatcher.reset(mmChars).find();
+        }
+    }
+
+    /** A byte range seen as characters, one per byte. */
+    static class ByteChars implements CharSequence {
+        private byte[] mmData;
+        private int mmOffset;
+        private int mmLength;
+
+        void set(byte[] data, int offset, int length) {
+            mmData = data;
+            mmOffset = offset;
+            mmLength = length;
+        }
+
+        public int length() {
+            return mmLength;
+        }
+
+        public char charAt(int index) {
+            return (char) (mmData[mmOffset + index] & 0xff);
+        }
+
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            char[] chars = new char[mmLength];
+            for (int i = 0; i < mmLength; i++) chars[i] = charAt(i);
+            return new String(chars);
+        }
+    }
+
+    /**
+     * First position of a pattern given in lower and upper case, or -1.
+     * lower and upper hold the same pattern with ASCII letters folded
+     * each way.
+     */
+    static int indexOf(byte[] data, int offset, int length, byte[] lower, byte[] upper) {
+        int n = lower.length;
+        if (n == 0) return offset;
+        byte firstLower = lower[0];
+        byte firstUpper = upper[0];
+        int last = offset + length - n;
+        for (int i = offset; i <= last; i++) {
+            byte b = data[i];
+            if (b != firstLower && b != firstUpper) continue;
+            int j = 1;
+            while (j < n && (data[i + j] == lower[j] || data[i + j] == upper[j])) j++;
+            if (j == n) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.app.Notification;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.bluetooth.BluetoothAdapter;
+import android.content.Intent;
+import android.os.Binder;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Message;
+import android.util.Log;
+import android.widget.Toast;
+
+/**
+ * Owns the device connections, the capture and the session log so that
+ * logging carries on while the activity is rotated, covered or gone, and
+ * with the screen off. The service runs in the foreground while a device
+ * is connected or connecting.
+ *
+ * Received lines are applied to the {@link LogModel} here, on the main
+ * thread. An activity binds with {@link LocalBinder}, reads the model it
+ * is given straight away, and attaches a Handler while it is visible.
+ * The Handler then gets BTcom's messages, except that each batch of
+ * received lines arrives as a MESSAGE_APPENDED once it is in the model.
+ */
+public class LoggingService extends Service {
+
+	// Debugging
+    private static final String TAG = "LoggingService";
+    private static final boolean D = true;
+    
+    // Sent to the attached Handler once received lines are in the model
+    public static final int MESSAGE_APPENDED = 10;
+    
+    // Session log, capped so that long sessions use a fixed amount of memory
+    private static final int LOG_ARENA_BYTES = 2 * 1024 * 1024;
+    private static final int LOG_MAX_LINES = 50000;
+    
+    // Every received line is also appended to capture files in app storage
+    public static final String CAPTURE_DIR = "captures";
+    
+    // With no activity attached nobody looks at the log, so lines are
+    // applied in fewer, larger batches
+    private static final long DETACHED_BATCH_LATENCY_MS = 250;
+    
+    // How long an idle service with no client waits before stopping, so
+    // that the log survives the activity being recreated
+    private static final long IDLE_STOP_DELAY_MS = 5000;
+    
+    private static final int NOTIFICATION_ID = 1;
+    
+    /** Handed to clients that bind; gives them the service itself. */
+    public class LocalBinder extends Binder {
+        public LoggingService getService() {
+            return LoggingService.this;
+        }
+    }
+    
+    private final IBinder mBinder = new LocalBinder();
+    private BTcom mBTcom;
+    private CaptureWriter mCaptureWriter;
+    private LogModel mLogModel;
+    // Bluetooth devices connected to, so the device list can offer them first
+    private DeviceCache mDeviceCache;
+    private Handler mClient;
+    private boolean mForeground;
+    // Overall connection state, as last reported by BTcom
+    private int mState = BTcom.STATE_NONE;
+    // Names by tag of every device seen, so a new client can label lines
+    private final Map<Integer, String> mDeviceNames = new LinkedHashMap<Integer, String>();
+    // Tag of the device connected last
+    private int mFocusTag = -1;
+    
+    private final Runnable mStopIfIdle = new Runnable() {
+        public void run() {
+            if (mClient != null || isLogging()) return;
+            if(D) Log.d(TAG, "idle, stopping");
+            stopSelf();
+        }
+    };
+    
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        if(D) Log.d(TAG, "onCreate");
+        mLogModel = new LogModel(LOG_ARENA_BYTES, LOG_MAX_LINES);
+        mDeviceCache = DeviceCache.getInstance(this);
+        mBTcom = new BTcom(this, mHandler);
+        mBTcom.setBatching(BTcom.DEFAULT_BATCH_LINES, DETACHED_BATCH_LATENCY_MS);
+        mCaptureWriter = new CaptureWriter(new File(getFilesDir(), CAPTURE_DIR));
+        mCaptureWriter.setListener(new CaptureWriter.Listener() {
+            public void onSegmentOpened(File segment) {
+                if(D) Log.d(TAG, "new capture segment " + segment);
+            }
+
+            public void onCaptureFailed(final IOException e) {
+                Log.e(TAG, "capture failed", e);
+                // Logging goes on without a capture; say so rather than stop quietly
+                mHandler.post(new Runnable() {
+                    public void run() {
+                        Toast.makeText(LoggingService.this,
+                                getString(R.string.capture_failed, e.getMessage()),
+                                Toast.LENGTH_LONG).show();
+                    }
+                });
+            }
+        });
+        mCaptureWriter.start();
+        mBTcom.setCaptureWriter(mCaptureWriter);
+        mBTcom.start();
+    }
+    
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        // Started as well as bound so that it outlives the activity; it
+        // stops itself once idle and unbound
+        return START_NOT_STICKY;
+    }
+    
+    @Override
+    public IBinder onBind(Intent intent) {
+        mHandler.removeCallbacks(mStopIfIdle);
+        return mBinder;
+    }
+    
+    @Override
+    public void onRebind(Intent intent) {
+        mHandler.removeCallbacks(mStopIfIdle);
+    }
+    
+    @Override
+    public boolean onUnbind(Intent intent) {
+        detach(mClient);
+        stopIfIdle();
+        // Have onRebind and onUnbind called for the next client too
+        return true;
+    }
+    
+    @Override
+    public void onDestroy() {
+        if(D) Log.d(TAG, "onDestroy");
+        mHandler.removeCallbacksAndMessages(null);
+        mBTcom.stop();
+        // Write out anything still queued
+        mCaptureWriter.stop();
+        if(D) Log.d(TAG, "capture: " + mCaptureWriter);
+        stopForeground(true);
+        super.onDestroy();
+    }
+    
+    /**
+     * Start getting messages on the Handler, and lines in the model at
+     * display rate. Only one client is attached at a time.
+     */
+    public void attach(Handler client) {
+        mClient = client;
+        mBTcom.setBatching(BTcom.DEFAULT_BATCH_LINES, BTcom.DEFAULT_BATCH_LATENCY_MS);
+    }
+    
+    /** Stop sending messages to the Handler given to attach(). */
+    public void detach(Handler client) {
+        if (mClient != client) return;
+        mClient = null;
+        mBTcom.setBatching(BTcom.DEFAULT_BATCH_LINES, DETACHED_BATCH_LATENCY_MS);
+    }
+    
+    public BTcom getBTcom() {
+        return mBTcom;
+    }
+    
+    public CaptureWriter getCaptureWriter() {
+        return mCaptureWriter;
+    }
+    
+    /**
+     * The session log. Like the service, it may only be changed on the
+     * main thread; the service appends to it there.
+     */
+    public LogModel getLogModel() {
+        return mLogModel;
+    }
+    
+    /** Names of the devices seen so far, by tag. */
+    public Map<Integer, String> getDeviceNames() {
+        return new LinkedHashMap<Integer, String>(mDeviceNames);
+    }
+    
+    /** Tag of the device connected last, or -1 before any. */
+    public int getFocusTag() {
+        return mFocusTag;
+    }
+    
+    /**
+     * Stop the service shortly unless a device connects or a client
+     * attaches in the meantime.
+     */
+    private void stopIfIdle() {
+        mHandler.removeCallbacks(mStopIfIdle);
+        mHandler.postDelayed(mStopIfIdle, IDLE_STOP_DELAY_MS);
+    }
+    
+    private boolean isLogging() {
+        int state = mBTcom.getState();
+        return state == BTcom.STATE_CONNECTED || state == BTcom.STATE_CONNECTING
+                || state == BTcom.STATE_RECONNECT;
+    }
+    
+    /**
+     * Run in the foreground while logging, with a notification that
+     * brings the activity back.
+     */
+    private void updateForeground() {
+        if (!isLogging()) {
+            if (mForeground) {
+                stopForeground(true);
+                mForeground = false;
+            }
+            if (mClient == null) stopIfIdle();
+            return;
+        }
+        String name = mDeviceNames.get(mFocusTag);
+        Intent intent = new Intent(this, SerialLog.class);
+        intent.setFlags(Intent.FLAG_ACTIVITY_SINGLE_TOP);
+        Notification notification = new Notification.Builder(this)
+                .setSmallIcon(R.drawable.ic_launcher)
+                .setContentTitle(getString(R.string.app_name))
+                .setContentText(mBTcom.getState() == BTcom.STATE_RECONNECT
+                        ? getString(R.string.reconnecting)
+                        : name != null ? getString(R.string.logging_from, name)
+                        : getString(R.string.connecting))
+                .setContentIntent(PendingIntent.getActivity(this, 0, intent, 0))
+                .setOngoing(true)
+                .getNotification();
+        startForeground(NOTIFICATION_ID, notification);
+        mForeground = true;
+    }
+    
+    /** Copy the lines waiting in the batcher into the log. */
+    private void applyBatch(LineBatcher batcher) {
+        ArrayList<LineBuffer> batch = batcher.take();
+        long dropped = batcher.takeDropped();
+        if (dropped > 0) {
+            // mark the gap where the overload policy dropped lines
+            byte[] note = getString(R.string.lines_not_shown, dropped).getBytes();
+            mLogModel.append(note, 0, note.length, LogModel.DIR_NOTE,
+                    batch.isEmpty() ? 0 : batch.get(0).getTag(),
+                    batch.isEmpty() ? System.nanoTime() : batch.get(0).getTimestamp());
+        }
+        ReplaySource replay = mBTcom.getReplay();
+        Metrics metrics = mBTcom.getMetrics();
+        long shown = System.nanoTime();
+        for (int i = 0; i < batch.size(); i++) {
+            LineBuffer line = batch.get(i);
+            metrics.recordShown(line.getTimestamp(), shown);
+            // copy the valid bytes into the log; the row text is only
+            // built when the row is shown
+            mLogModel.append(line.getData(), 0, line.getLength(), LogModel.DIR_IN,
+                    line.getTag(), line.getTimestamp());
+            if (replay != null) replay.recordDelivery(line);
+            // the line is ours until released, then BTcom reuses it
+            line.release();
+        }
+        batcher.recycle(batch);
+    }
+    
+    // Gets BTcom's messages, keeps the log and passes them on
+    private final Handler mHandler = new Handler() {
+        @Override
+        public void handleMessage(Message msg) {
+            switch (msg.what) {
+            case BTcom.MESSAGE_STATE_CHANGE:
+                // A new connection starts a new log; a link that comes
+                // back carries on with the old one
+                if (msg.arg1 == BTcom.STATE_CONNECTED && mState != BTcom.STATE_RECONNECT) {
+                    mLogModel.clear();
+                }
+                mState = msg.arg1;
+                updateForeground();
+                break;
+            case BTcom.MESSAGE_MARKER:
+                // lines received before the marker go in first
+                applyBatch(mBTcom.getLineBatcher());
+                byte[] marker = ((String) msg.obj).getBytes();
+                mLogModel.append(marker, 0, marker.length, LogModel.DIR_NOTE, msg.arg1,
+                        System.nanoTime());
+                break;
+            case BTcom.MESSAGE_WRITE:
+                byte[] written = ((String) msg.obj).replace("\n", "").getBytes();
+                mLogModel.append(written, 0, written.length, LogModel.DIR_OUT, msg.arg1,
+                        System.nanoTime());
+                break;
+            case BTcom.MESSAGE_READ_BATCH:
+                applyBatch((LineBatcher) msg.obj);
+                Handler client = mClient;
+                if (client != null) client.obtainMessage(MESSAGE_APPENDED).sendToTarget();
+                return;
+            case BTcom.MESSAGE_DEVICE_NAME:
+                mFocusTag = msg.arg1;
+                String name = msg.getData().getString(BTcom.DEVICE_NAME);
+                mDeviceNames.put(msg.arg1, name);
+                String address = msg.getData().getString(BTcom.DEVICE_ADDRESS);
+                // TCP bridges and replays are not listed with the Bluetooth devices
+                if (address != null && BluetoothAdapter.checkBluetoothAddress(address)) {
+                    mDeviceCache.connected(address, name);
+                }
+                updateForeground();
+                break;
+            }
+            Handler client = mClient;
+            if (client != null) client.sendMessage(Message.obtain(msg));
+        }
+    };
+}
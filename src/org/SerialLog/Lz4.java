@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Compressor and decompressor for the LZ4 block format, the raw blocks
+ * that tools such as lz4 frame, so stored blocks can be inspected
+ * outside the app. Speed matters more than ratio here: the compressor
+ * keeps one candidate per hash of four bytes and skips ahead faster the
+ * longer it goes without a match, which is how the reference "fast"
+ * mode works.
+ *
+ * Has no state of its own; callers pass in the hash table so that it is
+ * allocated once per writer. Has no Android dependencies.
+ */
+public final class Lz4 {
+
+    private static final int MIN_MATCH = 4;
+    // The format requires the last 5 bytes to be literals and the last
+    // match to start at least 12 bytes before the end
+    private static final int LAST_LITERALS = 5;
+    private static final int MF_LIMIT = 12;
+    private static final int MAX_OFFSET = 65535;
+    private static final int HASH_LOG = 12;
+    // Misses before the search step grows by one
+    private static final int SKIP_TRIGGER = 6;
+
+    /** Size of the hash table compress() needs. */
+    public static final int HASH_TABLE_SIZE = 1 << HASH_LOG;
+
+    private Lz4() {
+    }
+
+    /** Largest size compress() can produce for length bytes of input. */
+    public static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Compress one block.
+     * @param src  Input
+     * @param srcOff  Start of the input in src
+     * @param srcLen  Length of the input
+     * @param dst  Output, with room for maxCompressedLength(srcLen) bytes
+     * @param dstOff  Where the output starts in dst
+     * @param table  Scratch table of HASH_TABLE_SIZE entries
+     * @return  Number of bytes written to dst
+     */
+    public static int compress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff,
+            int[] table) {
+        int end = srcOff + srcLen;
+        int op = dstOff;
+        int anchor = srcOff;
+        if (srcLen >= MF_LIMIT + 1) {
+            Arrays.fill(table, -1);
+            int matchLimit = end - LAST_LITERALS;
+            int mfLimit = end - MF_LIMIT;
+            int ip = srcOff;
+            int misses = 1 << SKIP_TRIGGER;
+            while (ip < mfLimit) {
+                int sequence = readInt(src, ip);
+                int h = hash(sequence);
+                int ref = table[h];
+                table[h] = ip;
+                if (ref < 0 || ip - ref > MAX_OFFSET || readInt(src, ref) != sequence) {
+                    ip += misses++ >>> SKIP_TRIGGER;
+                    continue;
+                }
+                misses = 1 << SKIP_TRIGGER;
+
+                // Extend the match backwards over pending literals, then forwards
+                while (ip > anchor && ref > srcOff && src[ip - 1] == src[ref - 1]) {
+                    ip--;
+                    ref--;
+                }
+                int length = MIN_MATCH;
+                while (ip + length < matchLimit && src[ip + length] == src[ref + length]) {
+                    length++;
+                }
+                op = writeSequence(src, anchor, ip - anchor, ip - ref, length, dst, op);
+                ip += length;
+                anchor = ip;
+                // Remember the position just before the match end as a candidate
+                if (ip - 2 >= srcOff && ip - 2 < mfLimit) table[hash(readInt(src, ip - 2))] = ip - 2;
+            }
+        }
+        return writeLastLiterals(src, anchor, end - anchor, dst, op) - dstOff;
+    }
+
+    private static int writeSequence(byte[] src, int literalStart, int literals, int offset,
+            int matchLength, byte[] dst, int op) {
+        int token = op++;
+        int match = matchLength - MIN_MATCH;
+        dst[token] = (byte) ((Math.min(literals, 15) << 4) | Math.min(match, 15));
+        if (literals >= 15) op = writeLength(literals - 15, dst, op);
+        System.arraycopy(src, literalStart, dst, op, literals);
+        op += literals;
+        dst[op++] = (byte) offset;
+        dst[op++] = (byte) (offset >>> 8);
+        if (match >= 15) op = writeLength(match - 15, dst, op);
+        return op;
+    }
+
+    private static int writeLastLiterals(byte[] src, int start, int literals, byte[] dst, int op) {
+        dst[op++] = (byte) (Math.min(literals, 15) << 4);
+        if (literals >= 15) op = writeLength(literals - 15, dst, op);
+        System.arraycopy(src, start, dst, op, literals);
+        return op + literals;
+    }
+
+    private static int writeLength(int length, byte[] dst, int op) {
+        while (length >= 255) {
+            dst[op++] = (byte) 255;
+            length -= 255;
+        }
+        dst[op++] = (byte) length;
+        return op;
+    }
+
+    /**
+     * Decompress one block.
+     * @param src  Compressed input
+     * @param srcOff  Start of the input in src
+     * @param srcLen  Length of the input
+     * @param dst  Output
+     * @param dstOff  Where the output starts in dst
+     * @param dstLen  Room for output in dst
+     * @return  Number of bytes written to dst
+     * @throws IOException  if the input is not a valid block or does not fit
+     */
+    public static int decompress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff,
+            int dstLen) throws IOException {
+        int ip = srcOff;
+        int srcEnd = srcOff + srcLen;
+        int op = dstOff;
+        int dstEnd = dstOff + dstLen;
+        try {
+            while (true) {
+                int token = src[ip++] & 0xff;
+                int literals = token >>> 4;
+                if (literals == 15) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xff;
+                        literals += b;
+                    } while (b == 255);
+                }
+                if (literals > srcEnd - ip || literals > dstEnd - op) throw corrupt(ip);
+                System.arraycopy(src, ip, dst, op, literals);
+                ip += literals;
+                op += literals;
+                if (ip == srcEnd) return op - dstOff;
+
+                int offset = (src[ip] & 0xff) | (src[ip + 1] & 0xff) << 8;
+                ip += 2;
+                if (offset == 0 || offset > op - dstOff) throw corrupt(ip);
+                int length = token & 15;
+                if (length == 15) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xff;
+                        length += b;
+                    } while (b == 255);
+                }
+                length += MIN_MATCH;
+                if (length > dstEnd - op) throw corrupt(ip);
+                int ref = op - offset;
+                if (offset >= length) {
+                    System.arraycopy(dst, ref, dst, op, length);
+                    op += length;
+                } else {
+                    // Overlapping copy repeats the last offset bytes
+                    for (int i = 0; i < length; i++) dst[op++] = dst[ref++];
+                }
+                if (ip >= srcEnd) throw corrupt(ip);
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw corrupt(ip);
+        }
+    }
+
+    private static IOException corrupt(int position) {
+        return new IOException("corrupt LZ4 block near byte " + position);
+    }
+
+    private static int readInt(byte[] data, int i) {
+        return (data[i] & 0xff) | (data[i + 1] & 0xff) << 8
+                | (data[i + 2] & 0xff) << 16 | (data[i + 3] & 0xff) << 24;
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+/**
+ * Counters and a latency histogram kept along the whole pipeline, from
+ * the bytes each read returns to the lines the UI applies, so that lost
+ * or late data can be traced to the stage it came from. Recording is an
+ * atomic add on a {@link StripedCounter} or a {@link LatencyHistogram},
+ * with no locks, so it can stay on in the field.
+ *
+ * Counters are read by taking a {@link Snapshot}; rates come from the
+ * difference between two snapshots. Has no Android dependencies.
+ */
+public class Metrics {
+
+    // Counters
+    public static final int BYTES_IN = 0;     // bytes read from devices
+    public static final int BYTES_OUT = 1;    // bytes written to devices
+    public static final int LINES_IN = 2;     // lines framed
+    public static final int LINES_OUT = 3;    // commands sent
+    public static final int OVERRUNS = 4;     // frames longer than the maximum frame size
+    public static final int LINES_QUEUED = 5; // lines handed to the Handler
+    public static final int LINES_SHOWN = 6;  // lines the UI has applied
+    public static final int LINES_DROPPED = 7;     // lines the display queue had no room for
+    public static final int LINES_SAMPLED_OUT = 8; // lines left out by display sampling
+    public static final int FRAME_ERRORS = 9;      // frames the framer could not decode
+    public static final int RECONNECTS = 10;       // lost links connected again
+    public static final int COUNTERS = 11;
+
+    private static final String[] NAMES = {
+        "bytes_in", "bytes_out", "lines_in", "lines_out", "overruns", "lines_queued",
+        "lines_shown", "lines_dropped", "lines_sampled_out", "frame_errors", "reconnects" };
+
+    /** Counter values at one moment. */
+    public static class Snapshot {
+        public long nanos;
+        public final long[] counters = new long[COUNTERS];
+
+        /**
+         * Lines handed to the Handler that the UI has neither applied
+         * nor dropped yet.
+         */
+        public long getQueueDepth() {
+            return counters[LINES_QUEUED] - counters[LINES_SHOWN]
+                    - counters[LINES_DROPPED] - counters[LINES_SAMPLED_OUT];
+        }
+
+        /**
+         * Rate of a counter per second since an earlier snapshot.
+         */
+        public double getRate(int counter, Snapshot earlier) {
+            long elapsed = nanos - earlier.nanos;
+            return elapsed > 0 ? (counters[counter] - earlier.counters[counter]) * 1e9 / elapsed : 0;
+        }
+    }
+
+    private final StripedCounter[] mCounters = new StripedCounter[COUNTERS];
+    // Time from a line being framed to the UI applying it
+    private final LatencyHistogram mReadToUi = new LatencyHistogram();
+    // Time taken by each successful connect of a transport
+    private final LatencyHistogram mConnect = new LatencyHistogram();
+    // Time from a link being lost to it being connected again
+    private final LatencyHistogram mReconnectGap = new LatencyHistogram();
+    // Time between consecutive frames from one device
+    private final LatencyHistogram mInterArrival = new LatencyHistogram();
+
+    public Metrics() {
+        for (int i = 0; i < COUNTERS; i++) {
+            mCounters[i] = new StripedCounter();
+        }
+    }
+
+    public void add(int counter, long delta) {
+        mCounters[counter].add(delta);
+    }
+
+    public void increment(int counter) {
+        mCounters[counter].add(1);
+    }
+
+    public long get(int counter) {
+        return mCounters[counter].get();
+    }
+
+    /**
+     * Note that the UI has applied a line.
+     * @param framedNanos  The line's timestamp, from the framer
+     * @param nowNanos  Current System.nanoTime()
+     */
+    public void recordShown(long framedNanos, long nowNanos) {
+        mCounters[LINES_SHOWN].add(1);
+        mReadToUi.record(nowNanos - framedNanos);
+    }
+
+    public LatencyHistogram getReadToUiLatency() {
+        return mReadToUi;
+    }
+
+    /** Note how long a transport took to connect. */
+    public void recordConnect(long nanos) {
+        mConnect.record(nanos);
+    }
+
+    /**
+     * Note that a lost link is back.
+     * @param gapNanos  Time since it was lost, during which nothing was received
+     */
+    public void recordReconnect(long gapNanos) {
+        mCounters[RECONNECTS].add(1);
+        mReconnectGap.record(gapNanos);
+    }
+
+    /**
+     * Note the time between a frame and the one before it from the same
+     * device. Frames that came in one read are stamped nearly together,
+     * so the spread shows sampling jitter plus how reads batch frames.
+     */
+    public void recordInterArrival(long nanos) {
+        mInterArrival.record(nanos);
+    }
+
+    public LatencyHistogram getInterArrival() {
+        return mInterArrival;
+    }
+
+    public LatencyHistogram getConnectLatency() {
+        return mConnect;
+    }
+
+    public LatencyHistogram getReconnectGap() {
+        return mReconnectGap;
+    }
+
+    /**
+     * Read every counter.
+     * @param into  Snapshot to fill
+     * @param nowNanos  Current System.nanoTime()
+     */
+    public void snapshot(Snapshot into, long nowNanos) {
+        into.nanos = nowNanos;
+        for (int i = 0; i < COUNTERS; i++) {
+            into.counters[i] = mCounters[i].get();
+        }
+    }
+
+    public static String getName(int counter) {
+        return NAMES[counter];
+    }
+
+    /**
+     * Append every counter and the latency percentiles as name=value
+     * pairs separated by spaces, the form the capture keeps them in.
+     */
+    public void appendTo(StringBuilder text) {
+        for (int i = 0; i < COUNTERS; i++) {
+            text.append(NAMES[i]).append('=').append(mCounters[i].get()).append(' ');
+        }
+        text.append("read_to_ui_p50_us=").append(mReadToUi.getPercentileNanos(0.5) / 1000)
+                .append(" read_to_ui_p99_us=").append(mReadToUi.getPercentileNanos(0.99) / 1000)
+                .append(" read_to_ui_max_us=").append(mReadToUi.getMaxNanos() / 1000)
+                .append(" connect_p50_ms=").append(mConnect.getPercentileNanos(0.5) / 1000000)
+                .append(" reconnect_gap_p50_ms=")
+                .append(mReconnectGap.getPercentileNanos(0.5) / 1000000)
+                .append(" reconnect_gap_max_ms=").append(mReconnectGap.getMaxNanos() / 1000000)
+                .append(" inter_arrival_mean_us=").append(mInterArrival.getMeanNanos() / 1000)
+                .append(" inter_arrival_p50_us=")
+                .append(mInterArrival.getPercentileNanos(0.5) / 1000)
+                .append(" inter_arrival_p99_us=")
+                .append(mInterArrival.getPercentileNanos(0.99) / 1000)
+                .append(" inter_arrival_max_us=").append(mInterArrival.getMaxNanos() / 1000);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        appendTo(text);
+        return text.toString();
+    }
+}
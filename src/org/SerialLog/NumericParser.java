@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+/**
+ * Parses delimited numeric lines, as laid out by a {@link ColumnSchema},
+ * straight from the received bytes into a {@link ColumnStore}. Integers
+ * and decimals are converted digit by digit without creating a String or
+ * a boxed number, so a line costs no allocation at all.
+ *
+ * A line is stored only if every field parses and the field count
+ * matches the schema; otherwise it is counted as malformed and the
+ * columns stay aligned. Spaces and tabs around a field, and a trailing
+ * carriage return, are ignored. Decimals accept an exponent and the
+ * "nan" and "inf" that Arduino's print() writes for such floats.
+ *
+ * Every stored row also updates a {@link StreamStats} with running
+ * statistics for each column.
+ *
+ * Without a schema the parser learns one from the first line made up
+ * only of numbers, and creates its store then.
+ *
+ * One thread only, the one that receives the lines.
+ */
+public class NumericParser {
+
+    // Exact powers of ten; a mantissa below 2^53 scaled by one of these
+    // is correctly rounded
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    // Digits beyond this many add nothing a double can hold
+    private static final int MAX_MANTISSA_DIGITS = 18;
+
+    private ColumnSchema mSchema;
+    private volatile ColumnStore mStore;
+    private volatile StreamStats mStats;
+    private final byte[] mSeparators;
+    private final int mCapacity;
+    private volatile long mParsed;
+    private volatile long mMalformed;
+    private volatile long mBlank;
+
+    // Result of the last parseLong() or parseDouble()
+    private long mLong;
+    private double mDouble;
+
+    public NumericParser(ColumnStore store) {
+        mSchema = store.getSchema();
+        mStore = store;
+        mStats = new StreamStats(mSchema);
+        mSeparators = null;
+        mCapacity = 0;
+    }
+
+    /**
+     * A parser that takes its schema from the first line whose fields are
+     * all numbers. Every field is taken as a decimal, since a sketch that
+     * prints 0 now may well print 0.5 later. Lines before that one are
+     * counted as malformed, and getStore() returns null until then.
+     * @param separators  Bytes that end a field
+     * @param capacity  Rows the store keeps
+     */
+    public NumericParser(byte[] separators, int capacity) {
+        mSchema = new ColumnSchema(separators, new int[0]);
+        mSeparators = separators.clone();
+        mCapacity = capacity;
+    }
+
+    /**
+     * Parse one line and add it to the store.
+     * @param timestamp  Monotonic receive time of the line
+     * @return false if the line was blank or malformed
+     */
+    public boolean parse(byte[] data, int offset, int length, long timestamp) {
+        int end = offset + length;
+        while (end > offset && isSpace(data[end - 1])) end--;
+        if (end == offset) {
+            mBlank++;
+            return false;
+        }
+        if (mStore == null && !learnSchema(data, offset, end)) {
+            mMalformed++;
+            return false;
+        }
+
+        int columns = mSchema.getColumnCount();
+        int column = 0;
+        int start = offset;
+        while (true) {
+            int fieldEnd = start;
+            while (fieldEnd < end && !mSchema.isSeparator(data[fieldEnd])) fieldEnd++;
+            if (column == columns) {
+                // More fields than the schema has
+                mMalformed++;
+                return false;
+            }
+            switch (mSchema.getType(column)) {
+            case ColumnSchema.TYPE_LONG:
+                if (!parseLong(data, start, fieldEnd)) {
+                    mMalformed++;
+                    return false;
+                }
+                mStore.setLong(column, mLong);
+                break;
+            case ColumnSchema.TYPE_DOUBLE:
+                if (!parseDouble(data, start, fieldEnd)) {
+                    mMalformed++;
+                    return false;
+                }
+                mStore.setDouble(column, mDouble);
+                break;
+            }
+            column++;
+            if (fieldEnd == end) break;
+            start = fieldEnd + 1;
+        }
+        if (column != columns) {
+            mMalformed++;
+            return false;
+        }
+        mStats.add(mStore, mStore.commit(timestamp));
+        mParsed++;
+        return true;
+    }
+
+    /** Create the schema and store if every field of the line is a number. */
+    private boolean learnSchema(byte[] data, int offset, int end) {
+        int columns = 0;
+        int start = offset;
+        while (true) {
+            int fieldEnd = start;
+            while (fieldEnd < end && !mSchema.isSeparator(data[fieldEnd])) fieldEnd++;
+            if (!parseDouble(data, start, fieldEnd)) return false;
+            columns++;
+            if (fieldEnd == end) break;
+            start = fieldEnd + 1;
+        }
+        int[] types = new int[columns];
+        for (int i = 0; i < columns; i++) {
+            types[i] = ColumnSchema.TYPE_DOUBLE;
+        }
+        mSchema = new ColumnSchema(mSeparators, types);
+        mStats = new StreamStats(mSchema);
+        mStore = new ColumnStore(mSchema, mCapacity);
+        return true;
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    /** Parse a decimal integer into mLong, rejecting overflow. */
+    private boolean parseLong(byte[] data, int start, int end) {
+        while (start < end && isSpace(data[start])) start++;
+        while (end > start && isSpace(data[end - 1])) end--;
+        if (start == end) return false;
+
+        boolean negative = false;
+        if (data[start] == '-' || data[start] == '+') {
+            negative = data[start] == '-';
+            if (++start == end) return false;
+        }
+        // Accumulate negatively so that Long.MIN_VALUE fits
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long limitBeforeMultiply = limit / 10;
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            int digit = data[i] - '0';
+            if (digit < 0 || digit > 9) return false;
+            if (result < limitBeforeMultiply) return false;
+            result *= 10;
+            if (result < limit + digit) return false;
+            result -= digit;
+        }
+        mLong = negative ? result : -result;
+        return true;
+    }
+
+    /**
+     * Parse a decimal number, with optional fraction and exponent, into
+     * mDouble. Results are correctly rounded for up to 15 significant
+     * digits and an exponent within 22, which covers what a sketch
+     * prints; beyond that they are within an ulp or two.
+     */
+    private boolean parseDouble(byte[] data, int start, int end) {
+        while (start < end && isSpace(data[start])) start++;
+        while (end > start && isSpace(data[end - 1])) end--;
+        if (start == end) return false;
+
+        boolean negative = false;
+        if (data[start] == '-' || data[start] == '+') {
+            negative = data[start] == '-';
+            if (++start == end) return false;
+        }
+        if (end - start == 3) {
+            if (matches(data, start, 'n', 'a', 'n')) {
+                mDouble = Double.NaN;
+                return true;
+            }
+            if (matches(data, start, 'i', 'n', 'f')) {
+                mDouble = negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+                return true;
+            }
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean seenDigit = false;
+        int i = start;
+        for (; i < end; i++) {
+            int digit = data[i] - '0';
+            if (digit < 0 || digit > 9) break;
+            seenDigit = true;
+            if (digits < MAX_MANTISSA_DIGITS) {
+                mantissa = mantissa * 10 + digit;
+                if (mantissa != 0) digits++;
+            } else {
+                exponent++;
+            }
+        }
+        if (i < end && data[i] == '.') {
+            for (i++; i < end; i++) {
+                int digit = data[i] - '0';
+                if (digit < 0 || digit > 9) break;
+                seenDigit = true;
+                if (digits < MAX_MANTISSA_DIGITS) {
+                    mantissa = mantissa * 10 + digit;
+                    if (mantissa != 0) digits++;
+                    exponent--;
+                }
+            }
+        }
+        if (!seenDigit) return false;
+        if (i < end && (data[i] == 'e' || data[i] == 'E')) {
+            if (++i == end) return false;
+            boolean negativeExponent = false;
+            if (data[i] == '-' || data[i] == '+') {
+                negativeExponent = data[i] == '-';
+                if (++i == end) return false;
+            }
+            int explicit = 0;
+            for (; i < end; i++) {
+                int digit = data[i] - '0';
+                if (digit < 0 || digit > 9) return false;
+                // Anything past this is zero or infinity anyway
+                if (explicit < 10000) explicit = explicit * 10 + digit;
+            }
+            exponent += negativeExponent ? -explicit : explicit;
+        }
+        if (i != end) return false;
+
+        double value;
+        if (mantissa == 0) {
+            value = 0;
+        } else if (exponent == 0) {
+            value = mantissa;
+        } else if (mantissa < 1L << 53 && exponent > 0 && exponent < POWERS_OF_TEN.length) {
+            value = mantissa * POWERS_OF_TEN[exponent];
+        } else if (mantissa < 1L << 53 && exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+            value = mantissa / POWERS_OF_TEN[-exponent];
+        } else if (exponent < 0) {
+            // Divide by a normal power of ten; 10^-308 and below lose bits
+            value = mantissa / Math.pow(10, Math.min(-exponent, 308));
+            if (exponent < -308) value /= Math.pow(10, -exponent - 308);
+        } else {
+            value = mantissa * Math.pow(10, exponent);
+        }
+        mDouble = negative ? -value : value;
+        return true;
+    }
+
+    private static boolean matches(byte[] data, int start, char a, char b, char c) {
+        // ASCII letters only, so setting 0x20 folds the case
+        return (data[start] | 0x20) == a && (data[start + 1] | 0x20) == b
+                && (data[start + 2] | 0x20) == c;
+    }
+
+    /** The store rows are added to, or null while a schema is being learnt. */
+    public ColumnStore getStore() {
+        return mStore;
+    }
+
+    /** Statistics of the rows added, or null while a schema is being learnt. */
+    public StreamStats getStats() {
+        return mStats;
+    }
+
+    /** Lines added to the store. */
+    public long getParsed() {
+        return mParsed;
+    }
+
+    /** Lines rejected because a field did not parse or the count was wrong. */
+    public long getMalformed() {
+        return mMalformed;
+    }
+
+    /** Empty lines, which are ignored rather than counted as malformed. */
+    public long getBlank() {
+        return mBlank;
+    }
+
+    @Override
+    public String toString() {
+        return mParsed + " parsed, " + mMalformed + " malformed, " + mBlank + " blank";
+    }
+}
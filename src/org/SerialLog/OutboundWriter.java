@@ -0,0 +1,373 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Sends commands to the device from a dedicated thread so that callers,
+ * typically the UI thread, never block on a slow link. Commands wait in
+ * a bounded queue; the writer takes everything pending, encodes it into
+ * one reused buffer and sends it with a single write. A full queue
+ * rejects new commands rather than making the caller wait.
+ *
+ * The queue outlives the transport: {@link #attach(Transport)} and
+ * {@link #detach()} start and stop the writer, which runs as a task on
+ * an Executor, and commands submitted in between stay queued. Neither
+ * call waits for the writer thread, so neither blocks on the link.
+ *
+ * Commands whose write fails are kept too: the writer stops, taking the
+ * failure as a lost link, and the next writer attached sends them again
+ * ahead of anything queued since. Part of a failed write may have
+ * reached the device before the link went, so a command can arrive
+ * twice.
+ *
+ * {@link #close()} detaches for good, and the listener is told once the
+ * last writer has ended, after which nothing more is sent or reported.
+ * Has no Android dependencies.
+ */
+public class OutboundWriter {
+
+    /** Told about each command once it has been sent, on the writer thread. */
+    public interface Listener {
+        /**
+         * @param command  The command as submitted
+         * @param encoded  Buffer holding the bytes sent for it
+         * @param offset  Start of those bytes
+         * @param length  Number of bytes
+         */
+        void onWritten(String command, byte[] encoded, int offset, int length);
+
+        void onWriteFailed(IOException e);
+
+        /**
+         * No writer is left running after close(). Called on the last
+         * writer's thread, or on the one calling close() if none runs.
+         */
+        void onClosed();
+    }
+
+    private static final int MAX_BATCH = 32;
+
+    private final ArrayBlockingQueue<Request> mQueue;
+    private final Executor mExecutor;
+    private final Listener mListener;
+    private final CharsetEncoder mEncoder;
+    private final boolean mAscii;
+    // Put in the queue to wake a writer waiting on it; never sent
+    private final Request mWakeup = new Request(null);
+    // Used by one writer at a time: each waits for the one before to end
+    private final ArrayList<Request> mBatch = new ArrayList<Request>(MAX_BATCH);
+    private final int[] mEnds = new int[MAX_BATCH];
+    private byte[] mBuffer;
+    private Worker mWorker;
+    // The writer started last, which may still be running after detach()
+    private Worker mLastWorker;
+    // Taken from the queue by a writer that stopped before sending them
+    private final ArrayList<Request> mUnsent = new ArrayList<Request>();
+    // Set by clear(), for commands a stopping writer hands back after it
+    private IOException mClearError;
+    private boolean mClosed;
+
+    /**
+     * @param capacity  Most commands that may wait to be sent
+     * @param charset  Encoding of the commands on the wire
+     * @param executor  Runs the writer while attached, occupying one thread
+     * @param listener  Told about each command sent
+     */
+    public OutboundWriter(int capacity, Charset charset, Executor executor,
+            Listener listener) {
+        mQueue = new ArrayBlockingQueue<Request>(capacity);
+        mExecutor = executor;
+        mListener = listener;
+        mEncoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        String name = charset.name();
+        mAscii = name.equals("UTF-8") || name.equals("US-ASCII") || name.equals("ISO-8859-1");
+        mBuffer = new byte[1024];
+    }
+
+    /**
+     * Queue a command to be sent.
+     * @return a Future that completes with the number of bytes sent, or
+     *         null if the queue is full
+     */
+    public Future<Integer> submit(String command) {
+        Request request = new Request(command);
+        return mQueue.offer(request) ? request : null;
+    }
+
+    /**
+     * Start sending queued commands over a connected transport. Does
+     * nothing once closed.
+     */
+    public synchronized void attach(Transport transport) {
+        if (mClosed) return;
+        detach();
+        Worker worker = new Worker(transport, mLastWorker);
+        mExecutor.execute(worker);
+        mWorker = worker;
+        mLastWorker = worker;
+        mClearError = null;
+    }
+
+    /**
+     * Stop sending, leaving unsent commands queued, and return at once.
+     * A writer waiting for commands stops straight away. One in the
+     * middle of a write stops once the write returns, which it does
+     * promptly only if the transport has been closed; the writer is not
+     * interrupted, since that would close a channel under it.
+     */
+    public synchronized void detach() {
+        if (mWorker == null) return;
+        mWorker.stop();
+        mWorker = null;
+    }
+
+    /**
+     * Stop sending for good, like detach(), and tell the listener once
+     * the writer has ended; a write in progress may still be reported
+     * before then.
+     */
+    public void close() {
+        boolean idle;
+        synchronized (this) {
+            if (mClosed) return;
+            detach();
+            mClosed = true;
+            idle = mLastWorker == null || mLastWorker.mmDone.getCount() == 0;
+        }
+        if (idle) mListener.onClosed();
+    }
+
+    /** Note that a writer has ended, telling the listener if it was the last. */
+    private void finished(Worker worker) {
+        boolean closed;
+        synchronized (this) {
+            worker.mmDone.countDown();
+            closed = mClosed && worker == mLastWorker;
+        }
+        if (closed) mListener.onClosed();
+    }
+
+    /**
+     * Fail every queued command with the given error, including any
+     * that a detached writer still holds when it stops.
+     */
+    public synchronized void clear(IOException e) {
+        mClearError = e;
+        Request request;
+        while ((request = mQueue.poll()) != null) {
+            if (request != mWakeup) request.complete(-1, e);
+        }
+        for (int i = 0; i < mUnsent.size(); i++) {
+            mUnsent.get(i).complete(-1, e);
+        }
+        mUnsent.clear();
+    }
+
+    /** Number of commands waiting to be sent. */
+    public synchronized int getQueueSize() {
+        int size = mQueue.size() + mUnsent.size();
+        return mQueue.contains(mWakeup) ? size - 1 : size;
+    }
+
+    /** Take back commands a stopping writer took but did not send. */
+    private synchronized void returnUnsent(ArrayList<Request> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            if (mClearError != null) {
+                batch.get(i).complete(-1, mClearError);
+            } else {
+                mUnsent.add(batch.get(i));
+            }
+        }
+        batch.clear();
+    }
+
+    /** Move commands returned by an earlier writer into the batch. */
+    private synchronized void takeUnsent(ArrayList<Request> batch) {
+        batch.addAll(mUnsent);
+        mUnsent.clear();
+    }
+
+    private class Worker implements Runnable {
+        private final Transport mmTransport;
+        private final Worker mmPrevious;
+        private final CountDownLatch mmDone = new CountDownLatch(1);
+        private volatile boolean mmStopped;
+
+        /**
+         * @param previous  The writer started before this one, whose end
+         *         this one waits for, or null
+         */
+        public Worker(Transport transport, Worker previous) {
+            mmTransport = transport;
+            mmPrevious = previous;
+        }
+
+        public void run() {
+            try {
+                // The batch and buffer are shared; wait until the last writer is done
+                if (mmPrevious != null) mmPrevious.mmDone.await();
+                while (!mmStopped) {
+                    takeUnsent(mBatch);
+                    if (mBatch.isEmpty()) {
+                        Request request = mQueue.take();
+                        if (request != mWakeup) mBatch.add(request);
+                    }
+                    mQueue.drainTo(mBatch, MAX_BATCH - mBatch.size());
+                    mBatch.remove(mWakeup);
+                    if (mmStopped || mBatch.isEmpty()) continue;
+                    // A failed write means the link is gone; the batch waits for the next one
+                    if (!sendBatch(mmTransport)) break;
+                }
+            } catch (InterruptedException e) {
+                // The executor is shutting down
+                Thread.currentThread().interrupt();
+            } finally {
+                returnUnsent(mBatch);
+                finished(this);
+            }
+        }
+
+        /** Ask the writer to stop, without waiting for it. */
+        void stop() {
+            mmStopped = true;
+            // Wake it if it is waiting on an empty queue; a full one wakes it anyway
+            mQueue.offer(mWakeup);
+        }
+    }
+
+    /**
+     * Encode every command in the batch and send them with one write.
+     * @return false if the write failed, leaving the batch to be sent again
+     */
+    private boolean sendBatch(Transport transport) {
+        int size = mBatch.size();
+        int position = 0;
+        for (int i = 0; i < size; i++) {
+            position = encode(mBatch.get(i).mCommand, position);
+            mEnds[i] = position;
+        }
+        try {
+            transport.write(mBuffer, 0, position);
+        } catch (IOException e) {
+            mListener.onWriteFailed(e);
+            return false;
+        }
+        int start = 0;
+        for (int i = 0; i < size; i++) {
+            Request request = mBatch.get(i);
+            mListener.onWritten(request.mCommand, mBuffer, start, mEnds[i] - start);
+            request.complete(mEnds[i] - start, null);
+            start = mEnds[i];
+        }
+        mBatch.clear();
+        return true;
+    }
+
+    /** Encode a command at position in the buffer, growing it if needed. */
+    private int encode(String command, int position) {
+        int length = command.length();
+        ensureCapacity(position + length);
+        if (mAscii) {
+            // Commands are almost always plain ASCII; copy them directly
+            byte[] buffer = mBuffer;
+            int i = 0;
+            for (; i < length; i++) {
+                char c = command.charAt(i);
+                if (c >= 0x80) break;
+                buffer[position + i] = (byte) c;
+            }
+            if (i == length) return position + length;
+        }
+        ensureCapacity(position + (int) Math.ceil(length * mEncoder.maxBytesPerChar()));
+        ByteBuffer out = ByteBuffer.wrap(mBuffer, position, mBuffer.length - position);
+        mEncoder.reset();
+        CoderResult result = mEncoder.encode(CharBuffer.wrap(command), out, true);
+        if (result.isOverflow()) throw new IllegalStateException("encode overflow");
+        mEncoder.flush(out);
+        return out.position();
+    }
+
+    private void ensureCapacity(int size) {
+        if (size > mBuffer.length) {
+            byte[] buffer = new byte[Math.max(size, mBuffer.length * 2)];
+            System.arraycopy(mBuffer, 0, buffer, 0, mBuffer.length);
+            mBuffer = buffer;
+        }
+    }
+
+    /** A queued command and the Future for its completion. */
+    private class Request implements Future<Integer> {
+        final String mCommand;
+        private final CountDownLatch mDone = new CountDownLatch(1);
+        private volatile int mBytes;
+        private volatile Throwable mError;
+        private volatile boolean mCancelled;
+
+        Request(String command) {
+            mCommand = command;
+        }
+
+        void complete(int bytes, Throwable error) {
+            mBytes = bytes;
+            mError = error;
+            mDone.countDown();
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            // Only commands still waiting in the queue can be cancelled
+            if (!mQueue.remove(this)) return false;
+            mCancelled = true;
+            mDone.countDown();
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return mCancelled;
+        }
+
+        public boolean isDone() {
+            return mDone.getCount() == 0;
+        }
+
+        public Integer get() throws InterruptedException, ExecutionException {
+            mDone.await();
+            return result();
+        }
+
+        public Integer get(long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            if (!mDone.await(timeout, unit)) throw new TimeoutException();
+            return result();
+        }
+
+        private Integer result() throws ExecutionException {
+            if (mCancelled) throw new CancellationException();
+            if (mError != null) throw new ExecutionException(mError);
+            return mBytes;
+        }
+    }
+}
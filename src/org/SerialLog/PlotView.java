@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.util.Arrays;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.View;
+
+/**
+ * Plots the numeric columns of one device's {@link ColumnStore} as a
+ * live chart of everything buffered, newest on the right.
+ *
+ * Rows are summarised into buckets of a power of two rows each, keeping
+ * the min and max of every column, with just enough buckets to give
+ * about one per pixel column. Buckets are numbered from the first row
+ * ever received, so a bucket never changes once it is full, and each
+ * frame only folds the rows that arrived since the last one into the
+ * newest buckets. When the buffer outgrows the width, neighbouring
+ * buckets are merged in pairs. Drawing then costs a few segments per
+ * pixel column and column, however many rows are buffered.
+ *
+ * The view polls the store once per display frame while it is shown;
+ * the receive thread only ever writes to the store.
+ */
+public class PlotView extends View {
+
+    private static final long FRAME_MS = 16;
+
+    private static final int[] COLORS = {
+        0xff33b5e5, 0xffff4444, 0xff99cc00, 0xffffbb33, 0xffaa66cc, 0xff0099cc,
+        0xffcc0000, 0xff669900 };
+
+    private final Paint mLinePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    private NumericParser mParser;
+    private ColumnStore mStore;
+    private boolean mPolling;
+
+    // Bucket summaries, by bucket number modulo the ring size
+    private int mRowsPerBucket = 1;
+    private int mRingMask;
+    private float[][] mMin;
+    private float[][] mMax;
+    private float[] mScratchMin;
+    private float[] mScratchMax;
+    private long mNextRow;     // first row not yet summarised
+    private long mLastBucket;  // newest bucket started
+
+    // Points for Canvas.drawLines(), reused every frame
+    private float[] mLines = new float[0];
+
+    // Axis labels, only rebuilt when the range changes
+    private float mLabelMin = Float.NaN;
+    private float mLabelMax = Float.NaN;
+    private String mMinLabel = "";
+    private String mMaxLabel = "";
+
+    private final Runnable mPoll = new Runnable() {
+        public void run() {
+            if (update()) invalidate();
+            if (mPolling) postDelayed(this, FRAME_MS);
+        }
+    };
+
+    public PlotView(Context context) {
+        this(context, null);
+    }
+
+    public PlotView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        float density = context.getResources().getDisplayMetrics().density;
+        mLinePaint.setStrokeWidth(density);
+        mTextPaint.setColor(Color.GRAY);
+        mTextPaint.setTextSize(12 * density);
+    }
+
+    /**
+     * Plot the rows of a parser's store, or nothing if null. The store
+     * may not exist yet while the parser learns its schema.
+     */
+    public void setParser(NumericParser parser) {
+        mParser = parser;
+        reset(null);
+        updatePolling();
+        invalidate();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        updatePolling();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        updatePolling();
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updatePolling();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updatePolling();
+    }
+
+    /** Poll only while there is something to plot and it can be seen. */
+    private void updatePolling() {
+        boolean poll = mParser != null && isShown() && getWindowToken() != null
+                && getWindowVisibility() == VISIBLE;
+        if (poll == mPolling) return;
+        mPolling = poll;
+        if (poll) {
+            post(mPoll);
+        } else {
+            removeCallbacks(mPoll);
+        }
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        // Room for one bucket per pixel plus the one being filled
+        int ring = Integer.highestOneBit(Math.max(w, 1) + 1) << 1;
+        mRingMask = ring - 1;
+        mScratchMin = new float[ring];
+        mScratchMax = new float[ring];
+        mLines = new float[w * 8];
+        reset(mStore);
+    }
+
+    /** Forget all summaries; they are rebuilt from the store on the next poll. */
+    private void reset(ColumnStore store) {
+        mStore = store;
+        mRowsPerBucket = 1;
+        mNextRow = store != null ? store.getFirstRow() : 0;
+        mLastBucket = mNextRow - 1;
+        int columns = store != null ? store.getSchema().getColumnCount() : 0;
+        int ring = mRingMask + 1;
+        mMin = new float[columns][];
+        mMax = new float[columns][];
+        for (int i = 0; i < columns; i++) {
+            if (!store.isNumeric(i)) continue;
+            mMin[i] = new float[ring];
+            mMax[i] = new float[ring];
+            // Empty buckets have min above max and are not drawn
+            Arrays.fill(mMin[i], Float.POSITIVE_INFINITY);
+            Arrays.fill(mMax[i], Float.NEGATIVE_INFINITY);
+        }
+    }
+
+    /**
+     * Fold the rows received since the last poll into the summaries.
+     * @return whether anything changed
+     */
+    private boolean update() {
+        NumericParser parser = mParser;
+        ColumnStore store = parser != null ? parser.getStore() : null;
+        if (store != mStore) {
+            reset(store);
+            if (store == null) return true;
+        }
+        int width = getWidth();
+        if (store == null || width == 0) return false;
+
+        long rows = store.getRowCount();
+        if (rows == mNextRow) return false;
+        long first = store.getFirstRow();
+        if (mNextRow < first) {
+            // Fell a whole buffer behind; start again from what is left
+            reset(store);
+        }
+        // Keep the buffered rows within about one bucket per pixel
+        while ((rows - 1) / mRowsPerBucket - first / mRowsPerBucket + 1 > width) {
+            mergeBuckets();
+        }
+
+        int shift = Integer.numberOfTrailingZeros(mRowsPerBucket);
+        for (long row = mNextRow; row < rows; row++) {
+            long bucket = row >> shift;
+            int slot = (int) (bucket & mRingMask);
+            boolean start = bucket > mLastBucket;
+            for (int column = 0; column < mMin.length; column++) {
+                float[] min = mMin[column];
+                if (min == null) continue;
+                float[] max = mMax[column];
+                if (start) {
+                    min[slot] = Float.POSITIVE_INFINITY;
+                    max[slot] = Float.NEGATIVE_INFINITY;
+                }
+                float value = (float) store.getDouble(column, row);
+                // NaN compares false both ways and is left out
+                if (value < min[slot]) min[slot] = value;
+                if (value > max[slot]) max[slot] = value;
+            }
+            if (start) mLastBucket = bucket;
+        }
+        mNextRow = rows;
+        return true;
+    }
+
+    /** Double the rows per bucket, merging neighbouring buckets in pairs. */
+    private void mergeBuckets() {
+        long firstBucket = Math.max(mStore.getFirstRow() / mRowsPerBucket,
+                mLastBucket - mRingMask);
+        for (int column = 0; column < mMin.length; column++) {
+            float[] min = mMin[column];
+            if (min == null) continue;
+            float[] max = mMax[column];
+            Arrays.fill(mScratchMin, Float.POSITIVE_INFINITY);
+            Arrays.fill(mScratchMax, Float.NEGATIVE_INFINITY);
+            for (long bucket = firstBucket; bucket <= mLastBucket; bucket++) {
+                int from = (int) (bucket & mRingMask);
+                int to = (int) ((bucket >> 1) & mRingMask);
+                mScratchMin[to] = Math.min(mScratchMin[to], min[from]);
+                mScratchMax[to] = Math.max(mScratchMax[to], max[from]);
+            }
+            mMin[column] = mScratchMin;
+            mMax[column] = mScratchMax;
+            mScratchMin = min;
+            mScratchMax = max;
+        }
+        mRowsPerBucket <<= 1;
+        mLastBucket >>= 1;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        ColumnStore store = mStore;
+        int width = getWidth();
+        float height = getHeight();
+        if (store == null || store.getRowCount() == 0 || width < 2) return;
+
+        long lastBucket = mLastBucket;
+        long firstBucket = Math.max(store.getFirstRow() / mRowsPerBucket,
+                lastBucket - width + 1);
+        int buckets = (int) (lastBucket - firstBucket + 1);
+
+        // Scale to the range of everything shown
+        float low = Float.POSITIVE_INFINITY;
+        float high = Float.NEGATIVE_INFINITY;
+        for (int column = 0; column < mMin.length; column++) {
+            float[] min = mMin[column];
+            if (min == null) continue;
+            float[] max = mMax[column];
+            for (long bucket = firstBucket; bucket <= lastBucket; bucket++) {
+                int slot = (int) (bucket & mRingMask);
+                if (min[slot] < low && min[slot] != Float.NEGATIVE_INFINITY) low = min[slot];
+                if (max[slot] > high && max[slot] != Float.POSITIVE_INFINITY) high = max[slot];
+            }
+        }
+        if (low > high) return;
+        if (low == high) {
+            low -= 1;
+            high += 1;
+        }
+        float top = mTextPaint.getTextSize();
+        float yScale = (height - 2 * top) / (high - low);
+        float xScale = buckets > 1 ? (float) (width - 1) / (buckets - 1) : 0;
+
+        for (int column = 0, series = 0; column < mMin.length; column++) {
+            float[] min = mMin[column];
+            if (min == null) continue;
+            float[] max = mMax[column];
+            // A path through each bucket's min then max, so a bucket of
+            // one row is a plain point and a busy one a vertical stroke
+            int points = 0;
+            float lastX = 0;
+            float lastY = Float.NaN;
+            for (long bucket = firstBucket; bucket <= lastBucket; bucket++) {
+                int slot = (int) (bucket & mRingMask);
+                if (min[slot] > max[slot]) continue;
+                float x = (bucket - firstBucket) * xScale;
+                float yMin = top + (high - min[slot]) * yScale;
+                float yMax = top + (high - max[slot]) * yScale;
+                if (lastY == lastY) {
+                    mLines[points++] = lastX;
+                    mLines[points++] = lastY;
+                    mLines[points++] = x;
+                    mLines[points++] = yMin;
+                }
+                mLines[points++] = x;
+                mLines[points++] = yMin;
+                mLines[points++] = x;
+                mLines[points++] = yMax;
+                lastX = x;
+                lastY = yMax;
+            }
+            mLinePaint.setColor(COLORS[series++ % COLORS.length]);
+            canvas.drawLines(mLines, 0, points, mLinePaint);
+        }
+
+        if (low != mLabelMin || high != mLabelMax) {
+            mLabelMin = low;
+            mLabelMax = high;
+            mMinLabel = Float.toString(low);
+            mMaxLabel = Float.toString(high);
+        }
+        canvas.drawText(mMaxLabel, 0, top, mTextPaint);
+        canvas.drawText(mMinLabel, 0, height - top / 4, mTextPaint);
+    }
+}
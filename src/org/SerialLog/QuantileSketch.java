@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.util.Arrays;
+
+/**
+ * Approximate quantiles of a stream in constant time and fixed memory
+ * per value, after the DDSketch design: values are counted in bins whose
+ * bounds grow geometrically, so any quantile is returned within a fixed
+ * relative error of a value actually seen. Sketches with the same
+ * accuracy merge by adding their counts, which is what lets quantiles be
+ * kept for sliding windows as well as a whole session.
+ *
+ * Magnitudes below {@value #MIN_MAGNITUDE} are counted as zero and those
+ * above {@value #MAX_MAGNITUDE} in the top bin. NaN and infinities are
+ * ignored by add(), and binOf() puts an infinity in the top bin. Bins for
+ * negative values are only allocated once one is seen. Not thread safe.
+ */
+public class QuantileSketch {
+
+    public static final double DEFAULT_ACCURACY = 0.02;
+
+    public static final double MIN_MAGNITUDE = 1e-6;
+    public static final double MAX_MAGNITUDE = 1e9;
+
+    private final double mAccuracy;
+    private final double mGamma;
+    private final double mLogGamma;
+    private final int mMinIndex;
+    private final int mBins;
+    private int[] mPositive;
+    private int[] mNegative;
+    private long mZero;
+    private long mCount;
+
+    public QuantileSketch() {
+        this(DEFAULT_ACCURACY);
+    }
+
+    /**
+     * @param accuracy  Relative error of the quantiles returned, such as 0.02
+     */
+    public QuantileSketch(double accuracy) {
+        mAccuracy = accuracy;
+        mGamma = (1 + accuracy) / (1 - accuracy);
+        mLogGamma = Math.log(mGamma);
+        mMinIndex = (int) Math.floor(Math.log(MIN_MAGNITUDE) / mLogGamma);
+        mBins = (int) Math.ceil(Math.log(MAX_MAGNITUDE) / mLogGamma) - mMinIndex + 1;
+    }
+
+    /**
+     * The bin a value falls in: 0 for zero, a positive number for a
+     * positive value and a negative number for a negative one. Computing
+     * it once lets one value be added to several sketches cheaply.
+     * The value must not be NaN.
+     */
+    public int binOf(double value) {
+        double magnitude = Math.abs(value);
+        if (magnitude < MIN_MAGNITUDE) return 0;
+        int index;
+        if (magnitude >= MAX_MAGNITUDE) {
+            // Also keeps the logarithm of an infinity out of the int cast
+            index = mBins - 1;
+        } else {
+            index = (int) Math.ceil(Math.log(magnitude) / mLogGamma) - mMinIndex;
+            if (index >= mBins) index = mBins - 1;
+        }
+        return value > 0 ? index + 1 : -(index + 1);
+    }
+
+    public void add(double value) {
+        if (value != value || Double.isInfinite(value)) return;
+        addBin(binOf(value));
+    }
+
+    /** Count a value by its bin, from binOf() on a sketch of the same accuracy. */
+    public void addBin(int bin) {
+        if (bin > 0) {
+            if (mPositive == null) mPositive = new int[mBins];
+            mPositive[bin - 1]++;
+        } else if (bin < 0) {
+            if (mNegative == null) mNegative = new int[mBins];
+            mNegative[-bin - 1]++;
+        } else {
+            mZero++;
+        }
+        mCount++;
+    }
+
+    /** Add the counts of a sketch with the same accuracy. */
+    public void merge(QuantileSketch other) {
+        if (other.mBins != mBins || other.mAccuracy != mAccuracy) {
+            throw new IllegalArgumentException("sketch accuracy differs");
+        }
+        if (other.mPositive != null) {
+            if (mPositive == null) mPositive = new int[mBins];
+            for (int i = 0; i < mBins; i++) {
+                mPositive[i] += other.mPositive[i];
+            }
+        }
+        if (other.mNegative != null) {
+            if (mNegative == null) mNegative = new int[mBins];
+            for (int i = 0; i < mBins; i++) {
+                mNegative[i] += other.mNegative[i];
+            }
+        }
+        mZero += other.mZero;
+        mCount += other.mCount;
+    }
+
+    public void clear() {
+        if (mPositive != null) Arrays.fill(mPositive, 0);
+        if (mNegative != null) Arrays.fill(mNegative, 0);
+        mZero = 0;
+        mCount = 0;
+    }
+
+    public long getCount() {
+        return mCount;
+    }
+
+    /**
+     * Approximate quantile.
+     * @param fraction  From 0 to 1, for example 0.99 for the 99th percentile
+     * @return the value, or NaN if the sketch is empty
+     */
+    public double getQuantile(double fraction) {
+        if (mCount == 0) return Double.NaN;
+        long rank = (long) (fraction * (mCount - 1));
+        long seen = 0;
+        // Most negative first: the largest magnitudes of the negative bins
+        if (mNegative != null) {
+            for (int i = mBins - 1; i >= 0; i--) {
+                seen += mNegative[i];
+                if (seen > rank) return -valueOf(i);
+            }
+        }
+        seen += mZero;
+        if (seen > rank) return 0;
+        if (mPositive != null) {
+            for (int i = 0; i < mBins; i++) {
+                seen += mPositive[i];
+                if (seen > rank) return valueOf(i);
+            }
+        }
+        return valueOf(mBins - 1);
+    }
+
+    /** Magnitude within the relative accuracy of every value in a bin. */
+    private double valueOf(int index) {
+        return 2 * Math.pow(mGamma, index + mMinIndex) / (mGamma + 1);
+    }
+
+    public double getAccuracy() {
+        return mAccuracy;
+    }
+}
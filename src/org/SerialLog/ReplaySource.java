@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays recorded capture segments back through a {@link LineFramer} as if
+ * the device were sending them, so the delivery path can be exercised and
+ * measured without the hardware. The capture holds whole frames, so each
+ * is handed to the framer as it is rather than decoded again. Received
+ * lines are fed with their original spacing scaled by a speed factor, or
+ * as fast as possible; sent lines are skipped.
+ *
+ * Each fed line is stamped by the framer, so a consumer that calls
+ * {@link #recordDelivery(LineBuffer)} when it has handled a line gives
+ * the end-to-end latency through the pipeline.
+ *
+ * Has no Android dependencies and runs on a plain JVM.
+ */
+public class ReplaySource implements Runnable {
+
+    /** Replay with the original timing. */
+    public static final double REAL_TIME = 1;
+    /** Replay without waiting between lines. */
+    public static final double AS_FAST_AS_POSSIBLE = 0;
+
+    private final File[] mSegments;
+    private final double mSpeed;
+    private final LineFramer mFramer;
+    private volatile boolean mCanceled;
+
+    private volatile long mLines;
+    private volatile long mBytes;
+    private volatile long mStartNanos;
+    private volatile long mEndNanos;
+    private final LatencyHistogram mLatency = new LatencyHistogram();
+
+    /**
+     * @param segments  Capture segments to play, in order
+     * @param speed  Multiple of real time, or AS_FAST_AS_POSSIBLE
+     * @param framer  Framer that the replayed lines are fed to
+     */
+    public ReplaySource(File[] segments, double speed, LineFramer framer) {
+        mSegments = segments;
+        mSpeed = speed;
+        mFramer = framer;
+    }
+
+    /**
+     * Play every segment. Returns when done or canceled.
+     * @throws IOException if a segment cannot be read
+     */
+    public void play() throws IOException {
+        mStartNanos = System.nanoTime();
+        mEndNanos = 0;
+        long firstTimestamp = Long.MIN_VALUE;
+        try {
+            for (int i = 0; i < mSegments.length && !mCanceled; i++) {
+                CaptureReader reader = new CaptureReader(mSegments[i]);
+                try {
+                    while (!mCanceled && reader.next()) {
+                        if (reader.getDirection() != CaptureFormat.DIR_IN) continue;
+                        if (firstTimestamp == Long.MIN_VALUE) firstTimestamp = reader.getTimestamp();
+                        if (mSpeed > 0) {
+                            waitUntil(mStartNanos
+                                    + (long) ((reader.getTimestamp() - firstTimestamp) / mSpeed));
+                        }
+                        mFramer.frame(reader.getData(), 0, reader.getLength());
+                        mLines++;
+                        mBytes += reader.getLength();
+                    }
+                } finally {
+                    reader.close();
+                }
+            }
+        } finally {
+            mFramer.reset();
+            mEndNanos = System.nanoTime();
+        }
+    }
+
+    public void run() {
+        try {
+            play();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void waitUntil(long deadline) {
+        long delay;
+        while (!mCanceled && (delay = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(delay);
+        }
+    }
+
+    /** Stop playing as soon as possible. */
+    public void cancel() {
+        mCanceled = true;
+    }
+
+    /**
+     * Record that a consumer has finished with a replayed line; call
+     * before releasing it.
+     */
+    public void recordDelivery(LineBuffer line) {
+        mLatency.record(System.nanoTime() - line.getTimestamp());
+    }
+
+    public long getLines() {
+        return mLines;
+    }
+
+    public long getBytes() {
+        return mBytes;
+    }
+
+    public long getElapsedNanos() {
+        long end = mEndNanos != 0 ? mEndNanos : System.nanoTime();
+        return end - mStartNanos;
+    }
+
+    public double getLinesPerSecond() {
+        long elapsed = getElapsedNanos();
+        return elapsed > 0 ? mLines * 1e9 / elapsed : 0;
+    }
+
+    /** End-to-end latency of lines passed to recordDelivery(). */
+    public LatencyHistogram getLatency() {
+        return mLatency;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d lines, %d bytes in %.2f s: %.0f lines/s, %.2f MB/s, latency %s",
+                mLines, mBytes, getElapsedNanos() / 1e9, getLinesPerSecond(),
+                mBytes * 1e3 / Math.max(getElapsedNanos(), 1), mLatency);
+    }
+}
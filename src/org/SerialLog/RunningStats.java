@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+/**
+ * Count, mean, standard deviation, min and max of a stream of values,
+ * updated in constant time per value with Welford's method, which stays
+ * accurate where a running sum of squares would cancel out. Two sets of
+ * statistics can be merged, so partial results for time slices can be
+ * combined into a window. NaN values are ignored. Not thread safe.
+ */
+public class RunningStats {
+
+    private long mCount;
+    private double mMean;
+    private double mM2; // sum of squared differences from the mean
+    private double mMin = Double.POSITIVE_INFINITY;
+    private double mMax = Double.NEGATIVE_INFINITY;
+
+    public void add(double value) {
+        if (value != value) return;
+        mCount++;
+        double delta = value - mMean;
+        mMean += delta / mCount;
+        mM2 += delta * (value - mMean);
+        if (value < mMin) mMin = value;
+        if (value > mMax) mMax = value;
+    }
+
+    /** Add everything another set of statistics has seen. */
+    public void merge(RunningStats other) {
+        if (other.mCount == 0) return;
+        if (mCount == 0) {
+            mCount = other.mCount;
+            mMean = other.mMean;
+            mM2 = other.mM2;
+        } else {
+            long count = mCount + other.mCount;
+            double delta = other.mMean - mMean;
+            mMean += delta * other.mCount / count;
+            mM2 += other.mM2 + delta * delta * mCount / count * other.mCount;
+            mCount = count;
+        }
+        if (other.mMin < mMin) mMin = other.mMin;
+        if (other.mMax > mMax) mMax = other.mMax;
+    }
+
+    public void clear() {
+        mCount = 0;
+        mMean = 0;
+        mM2 = 0;
+        mMin = Double.POSITIVE_INFINITY;
+        mMax = Double.NEGATIVE_INFINITY;
+    }
+
+    public long getCount() {
+        return mCount;
+    }
+
+    /** Mean, or NaN with no values. */
+    public double getMean() {
+        return mCount > 0 ? mMean : Double.NaN;
+    }
+
+    /** Sample standard deviation, or NaN with fewer than two values. */
+    public double getStandardDeviation() {
+        return mCount > 1 ? Math.sqrt(mM2 / (mCount - 1)) : Double.NaN;
+    }
+
+    /** Smallest value, or NaN with no values. */
+    public double getMin() {
+        return mCount > 0 ? mMin : Double.NaN;
+    }
+
+    /** Largest value, or NaN with no values. */
+    public double getMax() {
+        return mCount > 0 ? mMax : Double.NaN;
+    }
+}
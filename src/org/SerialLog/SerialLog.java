@@ -20,17 +20,32 @@
 
 package org.SerialLog;
 
+import java.io.File;
+import java.io.FileFilter;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.regex.PatternSyntaxException;
+
 import org.SerialLog.R;
 
 import android.app.ActionBar;
 import android.app.Activity;
+import android.app.AlertDialog;
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
+import android.content.ComponentName;
 import android.content.Context;
+import android.content.DialogInterface;
 import android.content.Intent;
+import android.content.ServiceConnection;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.IBinder;
 import android.os.Message;
+import android.text.Editable;
+import android.text.InputType;
+import android.text.TextWatcher;
 import android.util.Log;
 import android.view.KeyEvent;
 import android.view.Menu;
@@ -39,9 +54,10 @@ import android.view.MenuItem;
 import android.view.View;
 import android.view.inputmethod.EditorInfo;
 import android.view.inputmethod.InputMethodManager;
-import android.widget.ArrayAdapter;
+import android.widget.AdapterView;
 import android.widget.EditText;
 import android.widget.ListView;
+import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.TextView.OnEditorActionListener;
 import android.widget.Toast;
@@ -56,18 +72,90 @@ public class SerialLog extends Activity {
     private static final int REQUEST_CONNECT_DEVICE = 1;
     private static final int REQUEST_ENABLE_BT = 3;
 	
+    // The connections, capture and log belong to the service, which keeps
+    // logging while this activity is gone; they are here while bound
+    private LoggingService mService;
+    private boolean mBound;
     private BTcom btCom;
     private BluetoothAdapter mBluetoothAdapter;
+    private LogModel mLogModel;
+    private LogAdapter mConversationArrayAdapter;
+    private LogSearch mSearch;
+    
+    // Bytes that end a numeric column when lines are parsed for the plot
+    // and statistics
+    private static final byte[] COLUMN_SEPARATORS = { ',', ';', '\t' };
     
-    private ArrayAdapter<String> mConversationArrayAdapter;
+    // Directory, in external or else internal app storage, exports are written to
+    private static final String EXPORT_DIR = "exports";
  	
     // Layout Views
     private ListView mConversationView;
+    private PlotView mPlotView;
+    private TextView mStatsView;
+    
+    // How often the statistics panel is refreshed while shown
+    private static final long STATS_REFRESH_MS = 500;
+    private final Runnable mStatsRefresh = new Runnable() {
+        public void run() {
+            updateStats();
+            if (mStatsView.getVisibility() == View.VISIBLE) {
+                mHandler.postDelayed(this, STATS_REFRESH_MS);
+            }
+        }
+    };
     private EditText mOutEditText;
     private ActionBar mActionBar;
+    private int mStatusResId = R.string.not_connected;
+    
+    // Pipeline metrics shown after the status while enabled, refreshed
+    // once a second from the difference between two snapshots
+    private static final long METRICS_REFRESH_MS = 1000;
+    private boolean mShowMetrics;
+    private Metrics.Snapshot mMetricsBefore = new Metrics.Snapshot();
+    private Metrics.Snapshot mMetricsNow = new Metrics.Snapshot();
+    // With the overload policy that samples, one line in this many is shown
+    private static final int OVERLOAD_SAMPLE_INTERVAL = 10;
+    private final Runnable mMetricsRefresh = new Runnable() {
+        public void run() {
+            updateMetrics();
+            if (mShowMetrics) mHandler.postDelayed(this, METRICS_REFRESH_MS);
+        }
+    };
+    
+    // Filter bar; the query is applied once typing pauses
+    private static final long FILTER_DELAY_MS = 300;
+    private View mFilterBar;
+    private EditText mFilterText;
+    private Spinner mFilterMode;
+    private TextView mFilterCount;
+    private final Runnable mApplyFilter = new Runnable() {
+        public void run() {
+            applyFilter();
+        }
+    };
     
     // Name of the connected device
     private String mConnectedDeviceName = null;
+    // Tag of the device the plot and statistics follow, the one connected last
+    private int mFocusTag = -1;
+    // A device chosen before the service was bound
+    private Intent mPendingConnect;
+    // An export in progress, handed on when the activity is recreated
+    private ExportTask mExportTask;
+    
+    private final ServiceConnection mConnection = new ServiceConnection() {
+        public void onServiceConnected(ComponentName name, IBinder service) {
+            mService = ((LoggingService.LocalBinder) service).getService();
+            attachService();
+        }
+        
+        public void onServiceDisconnected(ComponentName name) {
+            // The service runs in this process, so only if it dies with it
+            mService = null;
+            btCom = null;
+        }
+    };
     
 	/** Called when the activity is first created. */
     @Override
@@ -80,8 +168,37 @@ public class SerialLog extends Activity {
         mOutEditText=(EditText)findViewById(R.id.edittext_out);
         mOutEditText.setOnClickListener(clickListener);
         mOutEditText.setOnEditorActionListener(new DoneOnEditorActionListener());
+        mConversationView = (ListView) findViewById(R.id.list_log);
+        mPlotView = (PlotView) findViewById(R.id.plot);
+        mStatsView = (TextView) findViewById(R.id.stats);
+        mFilterBar = findViewById(R.id.filter_bar);
+        mFilterText = (EditText) findViewById(R.id.edittext_filter);
+        mFilterMode = (Spinner) findViewById(R.id.filter_mode);
+        mFilterCount = (TextView) findViewById(R.id.filter_count);
+        mFilterText.addTextChangedListener(new TextWatcher() {
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+            public void onTextChanged(CharSequence s, int start, int before, int count) {}
+            public void afterTextChanged(Editable s) {
+                mHandler.removeCallbacks(mApplyFilter);
+                mHandler.postDelayed(mApplyFilter, FILTER_DELAY_MS);
+            }
+        });
+        mFilterMode.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                mHandler.removeCallbacks(mApplyFilter);
+                mHandler.post(mApplyFilter);
+            }
+            public void onNothingSelected(AdapterView<?> parent) {}
+        });
         mActionBar = getActionBar();
 
+        // An export started before a rotation carries on
+        Object retained = getLastNonConfigurationInstance();
+        if (retained instanceof ExportTask) {
+            mExportTask = (ExportTask) retained;
+            mExportTask.attach(this);
+        }
+
         // get Bluetooth Adapter
 		mBluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
 		if(mBluetoothAdapter == null) {
@@ -142,29 +259,116 @@ public class SerialLog extends Activity {
     public void onStop() {
         super.onStop();
         if(D) Log.e(TAG, "-- ON STOP --");
+        // Logging carries on in the service
+        mHandler.removeCallbacks(mStatsRefresh);
+        mHandler.removeCallbacks(mMetricsRefresh);
+        if (mBound) {
+            if (mService != null) mService.detach(mHandler);
+            unbindService(mConnection);
+            mBound = false;
+        }
+        mService = null;
+        btCom = null;
+    }
+
+    @Override
+    public Object onRetainNonConfigurationInstance() {
+        return mExportTask != null && !mExportTask.isFinished() ? mExportTask : null;
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
-        // Stop the Bluetooth chat services
-        if (btCom != null) btCom.stop();
+        mHandler.removeCallbacks(mApplyFilter);
+        if (mExportTask != null) mExportTask.detach();
+        if (mSearch != null) mSearch.stop();
         if(D) Log.e(TAG, "--- ON DESTROY ---");
     }
     
+	/**
+	 * Start the logging service if it is not already running and bind to
+	 * it. The service is started as well as bound so that it keeps going
+	 * once this activity unbinds.
+	 */
 	public void setupCom(){
+		if (mBound) return;
+		Intent intent = new Intent(this, LoggingService.class);
+		startService(intent);
+		mBound = bindService(intent, mConnection, Context.BIND_AUTO_CREATE);
+		return;
+	}
+	
+	/**
+	 * Show the service's log and start getting its messages. Lines it
+	 * logged while this activity was away are already in the model.
+	 */
+	private void attachService(){
+		btCom = mService.getBTcom();
+		LogModel model = mService.getLogModel();
+		if (model != mLogModel) {
+			// First bind, or a new service: show its log
+			if (mSearch != null) mSearch.stop();
+			mLogModel = model;
+			LogAdapter old = mConversationArrayAdapter;
+			mConversationArrayAdapter = new LogAdapter(this, mLogModel);
+			if (old != null) {
+				// Keep the way lines are shown
+				mConversationArrayAdapter.setCharset(old.getCharset());
+				mConversationArrayAdapter.setHexDump(old.isHexDump());
+				mConversationArrayAdapter.setTimeMode(old.getTimeMode());
+			}
+			mConversationView.setAdapter(mConversationArrayAdapter);
+			mSearch = new LogSearch(mLogModel, mHandler);
+			mSearch.start();
+			applyFilter();
+		}
+		Map<Integer, String> names = mService.getDeviceNames();
+		for (Map.Entry<Integer, String> entry : names.entrySet()) {
+			mConversationArrayAdapter.setDeviceName(entry.getKey(), entry.getValue());
+		}
+		mFocusTag = mService.getFocusTag();
+		mConnectedDeviceName = names.get(mFocusTag);
+		mService.attach(mHandler);
+		mConversationArrayAdapter.notifyDataSetChanged();
+		mSearch.onAppended();
 		
-		// Initialize the array adapter for the conversation thread
-        mConversationArrayAdapter = new ArrayAdapter<String>(this, R.layout.message);
-        mConversationView = (ListView) findViewById(R.id.list_log);
-        mConversationView.setAdapter(mConversationArrayAdapter);
-        
-		btCom = new BTcom(this, mHandler);
+		if (btCom.getState() == BTcom.STATE_NONE) btCom.start();
+		showState(btCom.getState());
+		if (mPlotView.getVisibility() == View.VISIBLE) showPlot(true);
+		if (mStatsView.getVisibility() == View.VISIBLE) showStats(true);
+		if (mShowMetrics) showMetrics(true);
+		if (mPendingConnect != null) {
+			connectDevice(mPendingConnect, true);
+			mPendingConnect = null;
+		}
 		return;
 	}
 	
+	private void showState(int state) {
+        switch (state) {
+        case BTcom.STATE_CONNECTED:
+            setStatus(R.string.connected);
+            break;
+        case BTcom.STATE_CONNECTING:
+            setStatus(R.string.connecting);
+            break;
+        case BTcom.STATE_RECONNECT:
+            setStatus(R.string.reconnecting);
+            break;
+        case BTcom.STATE_LISTEN:
+        case BTcom.STATE_NONE:
+            setStatus(R.string.not_connected);
+            break;
+        }
+    }
+	
 	private final void setStatus(int resId) {
-        mActionBar.setSubtitle(resId);
+        mStatusResId = resId;
+        if (mShowMetrics) {
+            updateMetrics();
+        } else {
+            mActionBar.setSubtitle(resId);
+        }
     }
 	
  // The Handler that gets information back from the BluetoothChatService
@@ -174,36 +378,45 @@ public class SerialLog extends Activity {
             switch (msg.what) {
             case BTcom.MESSAGE_STATE_CHANGE:
                 if(D) Log.i(TAG, "MESSAGE_STATE_CHANGE: " + msg.arg1);
-                switch (msg.arg1) {
-                case BTcom.STATE_CONNECTED:
-                    setStatus(R.string.connected);
-                    mConversationArrayAdapter.clear();
-                    break;
-                case BTcom.STATE_CONNECTING:
-                    setStatus(R.string.connecting);
-                    break;
-                case BTcom.STATE_LISTEN:
-                case BTcom.STATE_NONE:
-                    setStatus(R.string.not_connected);
-                    break;
+                showState(msg.arg1);
+                if (msg.arg1 == BTcom.STATE_CONNECTED) {
+                    // the service has started a fresh log
+                    mConversationArrayAdapter.notifyDataSetChanged();
+                    mSearch.onAppended();
                 }
                 break;
             case BTcom.MESSAGE_WRITE:
-            	String writeBuf = (String) msg.obj;
-				mConversationArrayAdapter.add("Out:  " + writeBuf.replace("\n", ""));
-                break;
-            case BTcom.MESSAGE_READ:
-                byte[] readBuf = (byte[]) msg.obj;
-                // construct a string from the valid bytes in the buffer
-                String readMessage = new String(readBuf, 0, msg.arg1);
-                mConversationArrayAdapter.add(mConnectedDeviceName+":  " + readMessage);
+            case BTcom.MESSAGE_MARKER:
+            case LoggingService.MESSAGE_APPENDED:
+                // the service has added lines to the log, received lines
+                // a whole batch at a time
+                mConversationArrayAdapter.notifyDataSetChanged();
+                mSearch.onAppended();
                 break;
             case BTcom.MESSAGE_DEVICE_NAME:
                 // save the connected device's name
                 mConnectedDeviceName = msg.getData().getString(BTcom.DEVICE_NAME);
+                mConversationArrayAdapter.setDeviceName(msg.arg1, mConnectedDeviceName);
+                mFocusTag = msg.arg1;
+                if (btCom != null && mPlotView.getVisibility() == View.VISIBLE) {
+                    mPlotView.setParser(btCom.getParser(mFocusTag));
+                }
                 Toast.makeText(getApplicationContext(), "Connected to "
                                + mConnectedDeviceName, Toast.LENGTH_SHORT).show();
                 break;
+            case LogSearch.MESSAGE_MATCHES:
+                // matches for an older query are dropped
+                if (msg.arg1 != mSearch.getGeneration()) break;
+                mConversationArrayAdapter.addMatches((long[]) msg.obj);
+                mConversationArrayAdapter.notifyDataSetChanged();
+                mFilterCount.setText(getString(R.string.filter_matches,
+                        mConversationArrayAdapter.getMatchCount()));
+                break;
+            case LogSearch.MESSAGE_DONE:
+                if (msg.arg1 != mSearch.getGeneration()) break;
+                mFilterCount.setText(getString(R.string.filter_done,
+                        mConversationArrayAdapter.getMatchCount(), msg.arg2));
+                break;
             case BTcom.MESSAGE_TOAST:
                 Toast.makeText(getApplicationContext(), msg.getData().getString(BTcom.TOAST),
                                Toast.LENGTH_SHORT).show();
@@ -244,6 +457,11 @@ public class SerialLog extends Activity {
 		// BluetoothDevice object
 		BluetoothDevice device = mBluetoothAdapter.getRemoteDevice(address);
 		// Attempt to connect to the device
+        if (btCom == null) {
+            // Connect once the service is bound
+            mPendingConnect = data;
+            return;
+        }
         btCom.connect(device, secure);
         return;
 	}
@@ -254,14 +472,90 @@ public class SerialLog extends Activity {
 	    // Handle item selection
 	    switch (item.getItemId()) {
 	    	case R.id.scan_connect:
-	    		if (btCom != null){
-	    			btCom.stop();
-	    		}
+	    		// Devices already connected stay connected
 	    		//Launch the DeviceListActivity to see the paired devices,
 	    		//scan for devices and connect to chosen device
 	    		serverIntent = new Intent(this, DeviceListActivity.class);
 	    		startActivityForResult(serverIntent, REQUEST_CONNECT_DEVICE);
 	    		return true;
+	    	case R.id.connect_tcp:
+	    		showTcpConnectDialog();
+	    		return true;
+	    	case R.id.show_plot:
+	    		boolean show = !item.isChecked();
+	    		item.setChecked(show);
+	    		showPlot(show);
+	    		return true;
+	    	case R.id.show_stats:
+	    		boolean showStats = !item.isChecked();
+	    		item.setChecked(showStats);
+	    		showStats(showStats);
+	    		return true;
+	    	case R.id.show_metrics:
+	    		boolean showMetrics = !item.isChecked();
+	    		item.setChecked(showMetrics);
+	    		showMetrics(showMetrics);
+	    		return true;
+	    	case R.id.show_filter:
+	    		boolean showFilter = !item.isChecked();
+	    		item.setChecked(showFilter);
+	    		showFilter(showFilter);
+	    		return true;
+	    	case R.id.index_words:
+	    		if (mSearch == null) return true;
+	    		boolean index = !item.isChecked();
+	    		item.setChecked(index);
+	    		mSearch.setIndexing(index);
+	    		return true;
+	    	case R.id.hex_dump:
+	    		if (mConversationArrayAdapter == null) return true;
+	    		boolean hexDump = !item.isChecked();
+	    		item.setChecked(hexDump);
+	    		mConversationArrayAdapter.setHexDump(hexDump);
+	    		mConversationArrayAdapter.notifyDataSetChanged();
+	    		return true;
+	    	case R.id.time_none:
+	    		return setTimeMode(item, LogAdapter.TIME_NONE);
+	    	case R.id.time_delta:
+	    		return setTimeMode(item, LogAdapter.TIME_DELTA);
+	    	case R.id.time_wall:
+	    		return setTimeMode(item, LogAdapter.TIME_WALL);
+	    	case R.id.charset_utf8:
+	    		return setCharset(item, "UTF-8");
+	    	case R.id.charset_latin1:
+	    		return setCharset(item, "ISO-8859-1");
+	    	case R.id.charset_ascii:
+	    		return setCharset(item, "US-ASCII");
+	    	case R.id.overload_block:
+	    		return setOverloadPolicy(item, LineBatcher.POLICY_BLOCK);
+	    	case R.id.overload_drop_oldest:
+	    		return setOverloadPolicy(item, LineBatcher.POLICY_DROP_OLDEST);
+	    	case R.id.overload_drop_newest:
+	    		return setOverloadPolicy(item, LineBatcher.POLICY_DROP_NEWEST);
+	    	case R.id.overload_sample:
+	    		return setOverloadPolicy(item, LineBatcher.POLICY_SAMPLE);
+	    	case R.id.framing_lf:
+	    		return setFraming(item, Framing.delimited((byte) '\n'));
+	    	case R.id.framing_lines:
+	    		return setFraming(item, Framing.lines());
+	    	case R.id.framing_length:
+	    		return setFraming(item, Framing.lengthPrefixed(2, false));
+	    	case R.id.framing_cobs:
+	    		return setFraming(item, Framing.cobs());
+	    	case R.id.framing_slip:
+	    		return setFraming(item, Framing.slip());
+	    	case R.id.auto_reconnect:
+	    		if (btCom == null) return true;
+	    		boolean reconnect = !item.isChecked();
+	    		item.setChecked(reconnect);
+	    		btCom.setAutoReconnect(reconnect);
+	    		return true;
+	    	case R.id.replay:
+	    		replayLastCapture();
+	    		return true;
+	    	case R.id.export:
+	    		chooseExport();
+	    		return true;
 	    	case R.id.disconnect:
 	    		if (btCom != null){
 	    			btCom.stop();
@@ -271,9 +565,315 @@ public class SerialLog extends Activity {
 	    }
 	}
 	
+	/**
+	 * Show or hide the plot of the last connected device. Received lines
+	 * are parsed into columns from the first time the plot is shown.
+	 */
+	private void showPlot(boolean show){
+		mPlotView.setVisibility(show ? View.VISIBLE : View.GONE);
+		if (!show || btCom == null) {
+			mPlotView.setParser(null);
+			return;
+		}
+		if (!btCom.isParsingColumns()) btCom.inferColumnSchema(COLUMN_SEPARATORS);
+		mPlotView.setParser(btCom.getParser(mFocusTag));
+	}
+	
+	/**
+	 * Show or hide the running statistics of the last connected device,
+	 * refreshed twice a second while shown.
+	 */
+	private void showStats(boolean show){
+		mStatsView.setVisibility(show ? View.VISIBLE : View.GONE);
+		mHandler.removeCallbacks(mStatsRefresh);
+		if (!show || btCom == null) return;
+		if (!btCom.isParsingColumns()) btCom.inferColumnSchema(COLUMN_SEPARATORS);
+		mHandler.post(mStatsRefresh);
+	}
+	
+	/**
+	 * Show or hide the filter bar. Hiding it shows every line again.
+	 */
+	private void showFilter(boolean show){
+		mFilterBar.setVisibility(show ? View.VISIBLE : View.GONE);
+		if (show) {
+			mFilterText.requestFocus();
+		} else {
+			mFilterText.setText("");
+		}
+		mHandler.removeCallbacks(mApplyFilter);
+		applyFilter();
+	}
+	
+	/**
+	 * Start a search for the text in the filter bar. Matches arrive as
+	 * LogSearch.MESSAGE_MATCHES while the log is scanned.
+	 */
+	private void applyFilter(){
+		if (mSearch == null) return;
+		String query = mFilterBar.getVisibility() == View.VISIBLE
+				? mFilterText.getText().toString() : "";
+		try {
+			mSearch.setQuery(query, mFilterMode.getSelectedItemPosition());
+		} catch (PatternSyntaxException e) {
+			mFilterCount.setText(R.string.bad_pattern);
+			return;
+		}
+		mConversationArrayAdapter.setFiltered(mSearch.isFiltering());
+		mConversationArrayAdapter.notifyDataSetChanged();
+		mFilterCount.setText(mSearch.isFiltering() ? getString(R.string.filter_matches, 0) : "");
+	}
+	
+	/**
+	 * Choose the time shown in front of each line. Every line is stamped
+	 * when it is received, so this applies to lines already logged.
+	 */
+	private boolean setTimeMode(MenuItem item, int mode){
+		if (mConversationArrayAdapter == null) return true;
+		item.setChecked(true);
+		mConversationArrayAdapter.setTimeMode(mode);
+		mConversationArrayAdapter.notifyDataSetChanged();
+		return true;
+	}
+	
+	/**
+	 * Choose the charset lines are shown in. The log keeps the bytes as
+	 * received, so lines already logged are shown again in the new one.
+	 */
+	private boolean setCharset(MenuItem item, String charset){
+		if (mConversationArrayAdapter == null) return true;
+		item.setChecked(true);
+		mConversationArrayAdapter.setCharset(Charset.forName(charset));
+		mConversationArrayAdapter.notifyDataSetChanged();
+		return true;
+	}
+	
+	/**
+	 * Choose how devices connected from now on split their data into
+	 * lines. Binary framings suit firmware that sends packed telemetry.
+	 */
+	private boolean setFraming(MenuItem item, Framing framing){
+		if (btCom == null) return true;
+		item.setChecked(true);
+		btCom.setFraming(framing);
+		return true;
+	}
+	
+	/**
+	 * Choose what the display does with lines it cannot keep up with.
+	 * Captured and parsed data always has every line.
+	 */
+	private boolean setOverloadPolicy(MenuItem item, int policy){
+		if (btCom == null) return true;
+		item.setChecked(true);
+		btCom.setOverloadPolicy(policy, OVERLOAD_SAMPLE_INTERVAL);
+		return true;
+	}
+	
+	/**
+	 * Show or hide the pipeline metrics after the connection status.
+	 */
+	private void showMetrics(boolean show){
+		mShowMetrics = show && btCom != null;
+		mHandler.removeCallbacks(mMetricsRefresh);
+		if (!mShowMetrics) {
+			mActionBar.setSubtitle(mStatusResId);
+			return;
+		}
+		btCom.getMetrics().snapshot(mMetricsNow, System.nanoTime());
+		mHandler.postDelayed(mMetricsRefresh, METRICS_REFRESH_MS);
+	}
+	
+	/**
+	 * Put the rates since the last refresh in the subtitle: bytes and
+	 * lines in, lines waiting for the UI, how late lines reach it and
+	 * the spread of times between lines.
+	 */
+	private void updateMetrics(){
+		Metrics metrics = btCom.getMetrics();
+		Metrics.Snapshot before = mMetricsNow;
+		mMetricsNow = mMetricsBefore;
+		mMetricsBefore = before;
+		metrics.snapshot(mMetricsNow, System.nanoTime());
+		String text = getString(R.string.metrics_readout, getString(mStatusResId),
+				mMetricsNow.getRate(Metrics.BYTES_IN, before) / 1000,
+				mMetricsNow.getRate(Metrics.LINES_IN, before),
+				mMetricsNow.getQueueDepth(),
+				metrics.getReadToUiLatency().getPercentileNanos(0.99) / 1e6);
+		long overruns = mMetricsNow.counters[Metrics.OVERRUNS];
+		if (overruns > 0) text += getString(R.string.metrics_overruns, overruns);
+		long notShown = mMetricsNow.counters[Metrics.LINES_DROPPED]
+				+ mMetricsNow.counters[Metrics.LINES_SAMPLED_OUT];
+		if (notShown > 0) text += getString(R.string.metrics_not_shown, notShown);
+		LatencyHistogram gaps = metrics.getInterArrival();
+		if (gaps.getCount() > 0) {
+			text += getString(R.string.metrics_inter_arrival,
+					gaps.getPercentileNanos(0.5) / 1e6, gaps.getPercentileNanos(0.99) / 1e6);
+		}
+		mActionBar.setSubtitle(text);
+	}
+	
+	private void updateStats(){
+		NumericParser parser = btCom != null ? btCom.getParser(mFocusTag) : null;
+		StreamStats stats = parser != null ? parser.getStats() : null;
+		if (stats == null) {
+			mStatsView.setText(R.string.stats_waiting);
+			return;
+		}
+		StringBuilder text = new StringBuilder();
+		stats.appendTable(text, System.nanoTime());
+		text.append(parser);
+		mStatsView.setText(text);
+	}
+	
+	/**
+	 * Ask for the host:port of a TCP serial bridge, such as ser2net, and
+	 * connect to it.
+	 */
+	private void showTcpConnectDialog(){
+		final EditText address = new EditText(this);
+		address.setHint(R.string.tcp_address_hint);
+		address.setInputType(InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_VARIATION_URI);
+		new AlertDialog.Builder(this)
+			.setTitle(R.string.connect_tcp)
+			.setView(address)
+			.setPositiveButton(R.string.connect, new DialogInterface.OnClickListener() {
+				public void onClick(DialogInterface dialog, int which) {
+					connectTcp(address.getText().toString().trim());
+				}
+			})
+			.setNegativeButton(android.R.string.cancel, null)
+			.show();
+	}
+	
+	private void connectTcp(String address){
+		int colon = address.lastIndexOf(':');
+		int port = -1;
+		if (colon > 0) {
+			try {
+				port = Integer.parseInt(address.substring(colon + 1));
+			} catch (NumberFormatException e) {
+				port = -1;
+			}
+		}
+		if (port <= 0 || port > 65535) {
+			Toast.makeText(this, R.string.bad_tcp_address, Toast.LENGTH_SHORT).show();
+			return;
+		}
+		btCom.connect(ChannelTransport.tcp(address.substring(0, colon), port));
+		return;
+	}
+	
+	/**
+	 * Play the most recent finished capture segment back into the log at
+	 * its original speed. The segment still being written is skipped, and
+	 * live connections are only stopped once the user agrees.
+	 */
+	private void replayLastCapture(){
+		if (btCom == null || mService == null) return;
+		File[] segments = listCaptures();
+		if (segments == null) return;
+		Arrays.sort(segments, CaptureFormat.SEGMENT_ORDER);
+		File open = mService.getCaptureWriter().getOpenSegment();
+		File last = null;
+		for (int i = segments.length - 1; i >= 0 && last == null; i--) {
+			if (!segments[i].equals(open)) last = segments[i];
+		}
+		if (last == null) {
+			Toast.makeText(this, R.string.no_finished_captures, Toast.LENGTH_SHORT).show();
+			return;
+		}
+		final File segment = last;
+		if (btCom.getState() == BTcom.STATE_NONE) {
+			startReplay(segment);
+			return;
+		}
+		new AlertDialog.Builder(this)
+			.setTitle(R.string.replay)
+			.setMessage(R.string.replay_stops_connections)
+			.setPositiveButton(R.string.replay_anyway, new DialogInterface.OnClickListener() {
+				public void onClick(DialogInterface dialog, int which) {
+					startReplay(segment);
+				}
+			})
+			.setNegativeButton(android.R.string.cancel, null)
+			.show();
+	}
+	
+	private void startReplay(File segment){
+		if (btCom == null) return;
+		btCom.stop();
+		btCom.startReplay(new File[] {segment}, ReplaySource.REAL_TIME);
+		return;
+	}
+	
+	/** The capture segments recorded, or null after saying there are none. */
+	private File[] listCaptures(){
+		File[] segments = new File(getFilesDir(), LoggingService.CAPTURE_DIR).listFiles(new FileFilter() {
+			public boolean accept(File file) {
+				return file.getName().endsWith(CaptureFormat.SEGMENT_SUFFIX);
+			}
+		});
+		if (segments == null || segments.length == 0) {
+			Toast.makeText(this, R.string.no_captures, Toast.LENGTH_SHORT).show();
+			return null;
+		}
+		return segments;
+	}
+	
+	private void chooseExport(){
+		new AlertDialog.Builder(this)
+			.setTitle(R.string.export)
+			.setItems(R.array.export_choices, new DialogInterface.OnClickListener() {
+				public void onClick(DialogInterface dialog, int which) {
+					// CSV and JSON Lines alternate; the last two are the log's span
+					exportSession(which % 2 == 0 ? SessionExporter.FORMAT_CSV
+							: SessionExporter.FORMAT_JSON_LINES, which >= 2);
+				}
+			})
+			.show();
+	}
+	
+	/**
+	 * Export the last session's capture in the background. Lines are
+	 * decoded in the charset the log is shown in, and parsed into
+	 * columns when the focused device's are being parsed.
+	 * @param logSpan  Only the time span of the lines held in the log
+	 */
+	private void exportSession(int format, boolean logSpan){
+		File[] segments = listCaptures();
+		if (segments == null) return;
+		segments = SessionExporter.lastSession(segments);
+		Charset charset = mConversationArrayAdapter != null
+				? mConversationArrayAdapter.getCharset() : Charset.forName("UTF-8");
+		SessionExporter exporter = new SessionExporter(segments, format, charset);
+		if (logSpan && mLogModel != null && mLogModel.size() > 0) {
+			exporter.setTimeRange(mLogModel.getWallTime(0),
+					mLogModel.getWallTime(mLogModel.size() - 1) + 1);
+		}
+		NumericParser parser = btCom != null ? btCom.getParser(mFocusTag) : null;
+		ColumnStore columns = parser != null ? parser.getStore() : null;
+		if (columns != null) exporter.setColumns(columns.getSchema());
+		
+		// Exports go to external storage when there is some, so they can be shared
+		File dir = getExternalFilesDir(EXPORT_DIR);
+		boolean shareable = dir != null;
+		if (dir == null) dir = new File(getFilesDir(), EXPORT_DIR);
+		String name = segments[0].getName();
+		name = name.substring(0, name.length() - CaptureFormat.SEGMENT_SUFFIX.length())
+				+ (logSpan ? "-span" : "")
+				+ (format == SessionExporter.FORMAT_CSV ? ".csv" : ".jsonl");
+		mExportTask = new ExportTask(this, exporter, new File(dir, name), shareable);
+		mExportTask.attach(this);
+		mExportTask.execute();
+		return;
+	}
+	
 	private void sendMessage(){
-		// Check that we're actually connected before trying anything
-        if (btCom.getState() != BTcom.STATE_CONNECTED) {
+		// Check that we're actually connected before trying anything; while
+		// reconnecting, commands wait in the session's queue for the link
+		int state = btCom != null ? btCom.getState() : BTcom.STATE_NONE;
+        if (state != BTcom.STATE_CONNECTED && state != BTcom.STATE_RECONNECT) {
             Toast.makeText(this, R.string.not_connected, Toast.LENGTH_SHORT).show();
             return;
         }
@@ -281,7 +881,10 @@ public class SerialLog extends Activity {
 		String msg = et.getText().toString();
 		msg += "\n";
 		
-		btCom.write(msg);
+		// Sent from BTcom's writer thread; echoed back as MESSAGE_WRITE
+		if (btCom.write(msg) == null) {
+			Toast.makeText(this, R.string.send_queue_full, Toast.LENGTH_SHORT).show();
+		}
 		return;
 	}
 	
@@ -0,0 +1,403 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes recorded capture segments out as CSV or JSON Lines, one record
+ * per line, so a session can be opened in a spreadsheet or a script. The
+ * segments are streamed a record at a time through a {@link CaptureReader}
+ * and the text goes out through one fixed buffer in chunked writes, so
+ * memory use does not depend on the size of the capture.
+ *
+ * Each record gives its wall clock time, its monotonic receive time, its
+ * direction, the device tag and the line as text, UTF-8 encoded. Given a
+ * {@link ColumnSchema}, received lines are also parsed into numeric
+ * columns; lines that do not parse leave them empty. Metrics records are
+ * left out.
+ *
+ * Export runs on the calling thread, may be canceled from any other, and
+ * reports progress as bytes of capture read. Has no Android dependencies.
+ */
+public class SessionExporter {
+
+    public static final int FORMAT_CSV = 0;
+    public static final int FORMAT_JSON_LINES = 1;
+
+    /** Told how far the export has got, on the exporting thread. */
+    public interface Listener {
+        /**
+         * @param bytesRead  Bytes of capture read so far
+         * @param bytesTotal  Size of all the segments
+         */
+        void onProgress(long bytesRead, long bytesTotal);
+    }
+
+    private static final int OUT_BUFFER_BYTES = 64 * 1024;
+    // Records between progress reports and checks for cancellation
+    private static final int PROGRESS_RECORDS = 4096;
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+    private static final String[] DIRECTIONS = { "in", "out", "note" };
+
+    private final File[] mSegments;
+    private final int mFormat;
+    private final LineDecoder mDecoder;
+    private long mFromMillis = Long.MIN_VALUE;
+    private long mToMillis = Long.MAX_VALUE;
+    private NumericParser mParser;
+    private ColumnStore mColumns;
+    private Listener mListener;
+    private volatile boolean mCanceled;
+
+    private OutputStream mOut;
+    private final byte[] mBuffer = new byte[OUT_BUFFER_BYTES];
+    private int mBufferLength;
+    private final StringBuilder mText = new StringBuilder();
+
+    private volatile long mRecords;
+    private volatile long mBytesRead;
+    private volatile long mBytesWritten;
+    private volatile long mStartNanos;
+    private volatile long mEndNanos;
+
+    /**
+     * @param segments  Capture segments to export, in order
+     * @param format  FORMAT_CSV or FORMAT_JSON_LINES
+     * @param charset  Charset the lines were sent in
+     */
+    public SessionExporter(File[] segments, int format, Charset charset) {
+        mSegments = segments;
+        mFormat = format;
+        mDecoder = new LineDecoder(charset);
+    }
+
+    /**
+     * Export only records received in a span of wall clock time.
+     * @param fromMillis  First time included, ms since the epoch
+     * @param toMillis  Time after the last included
+     */
+    public void setTimeRange(long fromMillis, long toMillis) {
+        mFromMillis = fromMillis;
+        mToMillis = toMillis;
+    }
+
+    /** Parse received lines into numeric columns, or not if null. */
+    public void setColumns(ColumnSchema schema) {
+        if (schema == null) {
+            mColumns = null;
+            mParser = null;
+            return;
+        }
+        mColumns = new ColumnStore(schema, 1);
+        mParser = new NumericParser(mColumns);
+    }
+
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    /** Stop an export in progress; export() then returns false. */
+    public void cancel() {
+        mCanceled = true;
+    }
+
+    public boolean isCanceled() {
+        return mCanceled;
+    }
+
+    /**
+     * The segments of the last session in a directory of captures: the
+     * last one that a writer started with, and those after it.
+     */
+    public static File[] lastSession(File[] segments) {
+        File[] sorted = segments.clone();
+        Arrays.sort(sorted, CaptureFormat.SEGMENT_ORDER);
+        int first = sorted.length - 1;
+        while (first > 0 && !isFirstOfSession(sorted[first])) first--;
+        List<File> session = new ArrayList<File>();
+        for (int i = Math.max(first, 0); i < sorted.length; i++) {
+            session.add(sorted[i]);
+        }
+        return session.toArray(new File[session.size()]);
+    }
+
+    private static boolean isFirstOfSession(File segment) {
+        // A writer numbers its segments from 0: capture-<time>-<n>.cap
+        return segment.getName().endsWith("-0" + CaptureFormat.SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Write every record in the time range. The stream is not closed.
+     * @return false if canceled before the end
+     * @throws IOException if a segment cannot be read or the output written
+     */
+    public boolean export(OutputStream out) throws IOException {
+        mOut = out;
+        mBufferLength = 0;
+        mRecords = 0;
+        mBytesRead = 0;
+        mBytesWritten = 0;
+        mStartNanos = System.nanoTime();
+        mEndNanos = 0;
+        long total = 0;
+        for (File segment : mSegments) {
+            total += segment.length();
+        }
+        try {
+            writeHeader();
+            long done = 0;
+            for (int i = 0; i < mSegments.length && !mCanceled; i++) {
+                CaptureReader reader = new CaptureReader(mSegments[i]);
+                try {
+                    if (reader.getStartWallMillis() >= mToMillis) break;
+                    if (mFromMillis != Long.MIN_VALUE) reader.seekWallClock(mFromMillis);
+                    long records = 0;
+                    while (reader.next()) {
+                        long wall = reader.toWallMillis(reader.getTimestamp());
+                        if (wall >= mToMillis) break;
+                        if (reader.getDirection() != CaptureFormat.DIR_META && wall >= mFromMillis) {
+                            writeRecord(reader, wall);
+                            mRecords++;
+                        }
+                        if (++records % PROGRESS_RECORDS == 0) {
+                            if (mCanceled) break;
+                            mBytesRead = done + reader.getPosition();
+                            if (mListener != null) mListener.onProgress(mBytesRead, total);
+                        }
+                    }
+                } finally {
+                    reader.close();
+                }
+                done += mSegments[i].length();
+                mBytesRead = done;
+            }
+            flush();
+            if (mListener != null) mListener.onProgress(mBytesRead, total);
+        } finally {
+            mOut = null;
+            mEndNanos = System.nanoTime();
+        }
+        return !mCanceled;
+    }
+
+    private void writeHeader() throws IOException {
+        if (mFormat != FORMAT_CSV) return;
+        putAscii("wall_ms,monotonic_ns,direction,tag,text");
+        if (mColumns != null) {
+            ColumnSchema schema = mColumns.getSchema();
+            for (int i = 0; i < schema.getColumnCount(); i++) {
+                if (!mColumns.isNumeric(i)) continue;
+                putAscii(",column_");
+                putAscii(Integer.toString(i + 1));
+            }
+        }
+        put((byte) '\n');
+    }
+
+    private void writeRecord(CaptureReader reader, long wall) throws IOException {
+        int direction = reader.getDirection();
+        byte[] data = reader.getData();
+        int length = reader.getLength();
+        boolean parsed = mParser != null && direction == CaptureFormat.DIR_IN
+                && mParser.parse(data, 0, length, reader.getTimestamp());
+        StringBuilder text = mText;
+        text.setLength(0);
+        if (mFormat == FORMAT_CSV) {
+            text.append(wall).append(',').append(reader.getTimestamp()).append(',')
+                    .append(DIRECTIONS[direction]).append(',').append(reader.getTag());
+            putAscii(text);
+            putAscii(",\"");
+            putText(data, length, false);
+            put((byte) '"');
+            if (mColumns != null) {
+                text.setLength(0);
+                appendColumns(text, parsed, ",", ",");
+                putAscii(text);
+            }
+        } else {
+            text.append("{\"wall_ms\":").append(wall)
+                    .append(",\"monotonic_ns\":").append(reader.getTimestamp())
+                    .append(",\"direction\":\"").append(DIRECTIONS[direction])
+                    .append("\",\"tag\":").append(reader.getTag());
+            putAscii(text);
+            putAscii(",\"text\":\"");
+            putText(data, length, true);
+            put((byte) '"');
+            if (parsed) {
+                text.setLength(0);
+                text.append(",\"values\":[");
+                appendColumns(text, true, "", "null");
+                text.append(']');
+                putAscii(text);
+            }
+            put((byte) '}');
+        }
+        put((byte) '\n');
+    }
+
+    /**
+     * Append the values of the row just parsed, each after a separator.
+     * A value that is missing or not finite is written as missing.
+     */
+    private void appendColumns(StringBuilder text, boolean parsed, String first,
+            String missing) {
+        ColumnStore columns = mColumns;
+        ColumnSchema schema = columns.getSchema();
+        long row = columns.getRowCount() - 1;
+        boolean csv = mFormat == FORMAT_CSV;
+        String separator = first;
+        for (int i = 0; i < schema.getColumnCount(); i++) {
+            if (!columns.isNumeric(i)) continue;
+            text.append(separator);
+            separator = ",";
+            if (!parsed) {
+                if (!csv) text.append(missing);
+                continue;
+            }
+            if (schema.getType(i) == ColumnSchema.TYPE_LONG) {
+                text.append(columns.getLong(i, row));
+                continue;
+            }
+            double value = columns.getDouble(i, row);
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                if (!csv) text.append(missing);
+            } else {
+                text.append(value);
+            }
+        }
+    }
+
+    /**
+     * Write a line's text, escaped for a quoted CSV field or a JSON
+     * string. Plain ASCII is escaped straight from the bytes; anything
+     * else is decoded first and written out as UTF-8.
+     */
+    private void putText(byte[] data, int length, boolean json) throws IOException {
+        int bits = 0;
+        for (int i = 0; i < length; i++) {
+            bits |= data[i];
+        }
+        if (bits >= 0 && mDecoder.isAsciiCompatible()) {
+            for (int i = 0; i < length; i++) {
+                putEscaped(data[i], json);
+            }
+            return;
+        }
+        StringBuilder text = mText;
+        text.setLength(0);
+        mDecoder.decode(data, 0, length, text);
+        for (int i = 0; i < text.length(); i++) {
+            int c = text.charAt(i);
+            if (c < 0x80) {
+                putEscaped((byte) c, json);
+            } else if (c < 0x800) {
+                put((byte) (0xc0 | c >> 6));
+                put((byte) (0x80 | c & 0x3f));
+            } else if (Character.isHighSurrogate((char) c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int code = Character.toCodePoint((char) c, text.charAt(++i));
+                put((byte) (0xf0 | code >> 18));
+                put((byte) (0x80 | code >> 12 & 0x3f));
+                put((byte) (0x80 | code >> 6 & 0x3f));
+                put((byte) (0x80 | code & 0x3f));
+            } else {
+                if (Character.isSurrogate((char) c)) c = 0xfffd;
+                put((byte) (0xe0 | c >> 12));
+                put((byte) (0x80 | c >> 6 & 0x3f));
+                put((byte) (0x80 | c & 0x3f));
+            }
+        }
+    }
+
+    private void putEscaped(byte b, boolean json) throws IOException {
+        if (!json) {
+            // Quotes are doubled; line breaks may stay inside a quoted field
+            if (b == '"') put(b);
+            put(b);
+            return;
+        }
+        if (b == '"' || b == '\\') {
+            put((byte) '\\');
+            put(b);
+        } else if (b == '\n') {
+            put((byte) '\\');
+            put((byte) 'n');
+        } else if (b == '\r') {
+            put((byte) '\\');
+            put((byte) 'r');
+        } else if (b == '\t') {
+            put((byte) '\\');
+            put((byte) 't');
+        } else if (b >= 0 && b < 0x20 || b == 0x7f) {
+            putAscii("\\u00");
+            put(HEX[b >> 4 & 0xf]);
+            put(HEX[b & 0xf]);
+        } else {
+            put(b);
+        }
+    }
+
+    private void putAscii(CharSequence text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            put((byte) text.charAt(i));
+        }
+    }
+
+    private void put(byte b) throws IOException {
+        if (mBufferLength == mBuffer.length) flush();
+        mBuffer[mBufferLength++] = b;
+    }
+
+    private void flush() throws IOException {
+        if (mBufferLength == 0) return;
+        mOut.write(mBuffer, 0, mBufferLength);
+        mBytesWritten += mBufferLength;
+        mBufferLength = 0;
+    }
+
+    /** Records written by the last export. */
+    public long getRecords() {
+        return mRecords;
+    }
+
+    /** Bytes of capture read so far. */
+    public long getBytesRead() {
+        return mBytesRead;
+    }
+
+    /** Bytes of text written so far. */
+    public long getBytesWritten() {
+        return mBytesWritten;
+    }
+
+    public long getElapsedNanos() {
+        long end = mEndNanos != 0 ? mEndNanos : System.nanoTime();
+        return end - mStartNanos;
+    }
+
+    /** Text written per second, in MB (10^6 bytes). */
+    public double getMegabytesPerSecond() {
+        long elapsed = getElapsedNanos();
+        return elapsed > 0 ? mBytesWritten * 1e3 / elapsed : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d records, %d capture bytes to %d bytes in %.2f s: %.1f MB/s",
+                mRecords, mBytesRead, mBytesWritten, getElapsedNanos() / 1e9,
+                getMegabytesPerSecond());
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Running statistics for every numeric column of a {@link ColumnStore}:
+ * count, mean, standard deviation, min, max and approximate p50, p95
+ * and p99, both over the whole session and over sliding time windows.
+ *
+ * Each row costs constant time: a {@link RunningStats} and a
+ * {@link QuantileSketch} per column for the session, and one of each per
+ * column in the current slice of every window. A window is a ring of
+ * slices that are cleared as time moves past them; its figures are the
+ * merge of the slices it covers, so it advances in steps of one slice.
+ * Values that are NaN or infinite are left out of every figure.
+ *
+ * The parser's thread adds rows and any thread may summarise; the two
+ * share a lock that is held for one row or one summary.
+ */
+public class StreamStats {
+
+    /** Figures for one column over the session or one window. */
+    public static class Summary {
+        public long count;
+        public double mean;
+        public double standardDeviation;
+        public double min;
+        public double max;
+        public double p50;
+        public double p95;
+        public double p99;
+    }
+
+    /** Index of the whole session in summarize(), as opposed to a window. */
+    public static final int SESSION = -1;
+
+    // Default windows: the last 10 s in 1 s steps and the last minute in 10 s steps
+    private static final long[] DEFAULT_WINDOW_NANOS = {
+        TimeUnit.SECONDS.toNanos(10), TimeUnit.SECONDS.toNanos(60) };
+    private static final int[] DEFAULT_WINDOW_SLICES = { 10, 6 };
+
+    private final ColumnSchema mSchema;
+    private final RunningStats[] mSession;
+    private final QuantileSketch[] mSessionSketches;
+    private final Window[] mWindows;
+    private final int[] mSlices; // current slice of each window, for add()
+
+    // Scratch space for summarize()
+    private final RunningStats mMergedStats = new RunningStats();
+    private final QuantileSketch mMergedSketch = new QuantileSketch();
+
+    public StreamStats(ColumnSchema schema) {
+        this(schema, DEFAULT_WINDOW_NANOS, DEFAULT_WINDOW_SLICES);
+    }
+
+    /**
+     * @param schema  Columns of the rows that will be added
+     * @param windowNanos  Length of each sliding window
+     * @param slices  Number of steps each window advances in
+     */
+    public StreamStats(ColumnSchema schema, long[] windowNanos, int[] slices) {
+        mSchema = schema;
+        int columns = schema.getColumnCount();
+        mSession = new RunningStats[columns];
+        mSessionSketches = new QuantileSketch[columns];
+        for (int i = 0; i < columns; i++) {
+            if (schema.getType(i) == ColumnSchema.TYPE_SKIP) continue;
+            mSession[i] = new RunningStats();
+            mSessionSketches[i] = new QuantileSketch();
+        }
+        mWindows = new Window[windowNanos.length];
+        for (int i = 0; i < mWindows.length; i++) {
+            mWindows[i] = new Window(windowNanos[i], slices[i]);
+        }
+        mSlices = new int[mWindows.length];
+    }
+
+    /** A ring of slices, each with statistics for every column. */
+    private class Window {
+        final long mmNanos;
+        final long mmSliceNanos;
+        final long[] mmSlots; // time slot each slice holds, by slot modulo slices
+        final RunningStats[][] mmStats;
+        final QuantileSketch[][] mmSketches;
+
+        Window(long nanos, int slices) {
+            mmNanos = nanos;
+            mmSliceNanos = nanos / slices;
+            mmSlots = new long[slices];
+            Arrays.fill(mmSlots, Long.MIN_VALUE);
+            int columns = mSession.length;
+            mmStats = new RunningStats[slices][columns];
+            mmSketches = new QuantileSketch[slices][columns];
+            for (int slice = 0; slice < slices; slice++) {
+                for (int i = 0; i < columns; i++) {
+                    if (mSession[i] == null) continue;
+                    mmStats[slice][i] = new RunningStats();
+                    mmSketches[slice][i] = new QuantileSketch();
+                }
+            }
+        }
+
+        long slot(long nanos) {
+            // Floor division, nanoTime() may be negative
+            return nanos >= 0 ? nanos / mmSliceNanos : (nanos + 1) / mmSliceNanos - 1;
+        }
+
+        int index(long slot) {
+            int slices = mmSlots.length;
+            return (int) (((slot % slices) + slices) % slices);
+        }
+
+        /** The slice for a time, emptied first if it held an older slot. */
+        int sliceFor(long nanos) {
+            long slot = slot(nanos);
+            int slice = index(slot);
+            if (mmSlots[slice] != slot) {
+                for (int i = 0; i < mmStats[slice].length; i++) {
+                    if (mmStats[slice][i] == null) continue;
+                    mmStats[slice][i].clear();
+                    mmSketches[slice][i].clear();
+                }
+                mmSlots[slice] = slot;
+            }
+            return slice;
+        }
+    }
+
+    /** Add a committed row of a store. */
+    public synchronized void add(ColumnStore store, long row) {
+        long timestamp = store.getTimestamp(row);
+        for (int w = 0; w < mWindows.length; w++) {
+            mSlices[w] = mWindows[w].sliceFor(timestamp);
+        }
+        for (int column = 0; column < mSession.length; column++) {
+            if (mSession[column] == null) continue;
+            double value = store.getDouble(column, row);
+            // "nan", "inf" and overflowing exponents would swamp the mean
+            if (value != value || Double.isInfinite(value)) continue;
+            // One logarithm per value, shared by every sketch it goes in
+            int bin = mSessionSketches[column].binOf(value);
+            mSession[column].add(value);
+            mSessionSketches[column].addBin(bin);
+            for (int w = 0; w < mWindows.length; w++) {
+                Window window = mWindows[w];
+                window.mmStats[mSlices[w]][column].add(value);
+                window.mmSketches[mSlices[w]][column].addBin(bin);
+            }
+        }
+    }
+
+    /**
+     * Fill in the figures for one column.
+     * @param column  Column of the schema; skipped columns give a count of 0
+     * @param window  Index of a window, or SESSION
+     * @param now  Current System.nanoTime(), the end of the window
+     */
+    public synchronized void summarize(int column, int window, long now, Summary out) {
+        RunningStats stats = mMergedStats;
+        QuantileSketch sketch = mMergedSketch;
+        stats.clear();
+        sketch.clear();
+        if (mSession[column] != null) {
+            if (window == SESSION) {
+                stats.merge(mSession[column]);
+                sketch.merge(mSessionSketches[column]);
+            } else {
+                Window w = mWindows[window];
+                long newest = w.slot(now);
+                long oldest = newest - w.mmSlots.length + 1;
+                for (int slice = 0; slice < w.mmSlots.length; slice++) {
+                    long slot = w.mmSlots[slice];
+                    if (slot < oldest || slot > newest) continue;
+                    stats.merge(w.mmStats[slice][column]);
+                    sketch.merge(w.mmSketches[slice][column]);
+                }
+            }
+        }
+        out.count = stats.getCount();
+        out.mean = stats.getMean();
+        out.standardDeviation = stats.getStandardDeviation();
+        out.min = stats.getMin();
+        out.max = stats.getMax();
+        // A bin's representative value can lie just outside what was seen
+        out.p50 = clamp(sketch.getQuantile(0.50), out.min, out.max);
+        out.p95 = clamp(sketch.getQuantile(0.95), out.min, out.max);
+        out.p99 = clamp(sketch.getQuantile(0.99), out.min, out.max);
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return value < min ? min : value > max ? max : value;
+    }
+
+    /**
+     * Append a table of every numeric column, one line for the session
+     * and one per window, for display.
+     * @param now  Current System.nanoTime()
+     */
+    public void appendTable(StringBuilder out, long now) {
+        Summary summary = new Summary();
+        out.append(String.format("%-3s %4s %7s %9s %9s %9s %9s %9s %9s %9s%n",
+                "col", "", "n", "mean", "std", "min", "max", "p50", "p95", "p99"));
+        for (int column = 0; column < mSession.length; column++) {
+            if (mSession[column] == null) continue;
+            for (int window = SESSION; window < mWindows.length; window++) {
+                summarize(column, window, now, summary);
+                String span = window == SESSION ? "all"
+                        : TimeUnit.NANOSECONDS.toSeconds(mWindows[window].mmNanos) + "s";
+                out.append(String.format("%-3s %4s %7d %9.4g %9.4g %9.4g %9.4g %9.4g %9.4g %9.4g%n",
+                        window == SESSION ? String.valueOf(column) : "", span, summary.count,
+                        summary.mean, summary.standardDeviation, summary.min, summary.max,
+                        summary.p50, summary.p95, summary.p99));
+            }
+        }
+    }
+
+    public ColumnSchema getSchema() {
+        return mSchema;
+    }
+
+    public int getWindowCount() {
+        return mWindows.length;
+    }
+
+    /** Length of a window in nanoseconds. */
+    public long getWindowNanos(int window) {
+        return mWindows[window].mmNanos;
+    }
+}
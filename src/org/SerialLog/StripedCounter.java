@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter that many threads can add to without contending. Each
+ * thread adds to one of several cells picked by its id, and each cell
+ * sits on its own cache line so that threads on different cores do not
+ * invalidate each other's writes; reading sums the cells. The sum is not
+ * a snapshot: adds made while it runs may or may not be included.
+ *
+ * A hand rolled java.util.concurrent.atomic.LongAdder, which Android
+ * does not have. Has no Android dependencies.
+ */
+public class StripedCounter {
+
+    private static final int STRIPES = 8;
+    // Longs per 64-byte cache line; only the first of each is used
+    private static final int PADDING = 8;
+
+    private final AtomicLongArray mCells = new AtomicLongArray(STRIPES * PADDING);
+
+    public void add(long delta) {
+        int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        mCells.getAndAdd(stripe * PADDING, delta);
+    }
+
+    public void increment() {
+        add(1);
+    }
+
+    public long get() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += mCells.get(i * PADDING);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.util.Arrays;
+
+/**
+ * Index from the words of the session log to the lines that hold them,
+ * so that a keyword search on a long log reads a few posting lists
+ * instead of every line. Lines are named by their sequence number in the
+ * {@link LogModel}; posting lists are kept in ascending order and lose
+ * their evicted head as they grow, and words whose lines have all been
+ * evicted are swept out when the table fills.
+ *
+ * A word is a run of ASCII letters, digits and underscores, or of bytes
+ * above 0x7f so that UTF-8 letters stay inside words, compared without
+ * ASCII case. Words made only of digits are not indexed: readings would
+ * fill the table with words nobody searches for. Words are stored by a
+ * 64-bit hash, so a hit only names a candidate line that the caller must
+ * check against the line bytes.
+ *
+ * Not thread safe; {@link LogSearch} uses it from its own thread.
+ */
+public class TokenIndex {
+
+    // Longer runs are usually encoded data rather than words
+    public static final int MAX_WORD_LENGTH = 64;
+
+    private static final int INITIAL_TABLE_SIZE = 1024;
+    private static final int INITIAL_POSTINGS = 4;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /** Ascending line numbers holding one word. */
+    private static class Postings {
+        long[] mmLines = new long[INITIAL_POSTINGS];
+        int mmStart;
+        int mmEnd;
+
+        void add(long line) {
+            if (mmEnd > mmStart && mmLines[mmEnd - 1] == line) return;
+            if (mmEnd == mmLines.length) {
+                int live = mmEnd - mmStart;
+                if (live <= mmLines.length / 2) {
+                    System.arraycopy(mmLines, mmStart, mmLines, 0, live);
+                } else {
+                    long[] grown = new long[mmLines.length * 2];
+                    System.arraycopy(mmLines, mmStart, grown, 0, live);
+                    mmLines = grown;
+                }
+                mmStart = 0;
+                mmEnd = live;
+            }
+            mmLines[mmEnd++] = line;
+        }
+
+        /** Forget lines before firstLine. */
+        void trim(long firstLine) {
+            while (mmStart < mmEnd && mmLines[mmStart] < firstLine) mmStart++;
+        }
+
+        int size() {
+            return mmEnd - mmStart;
+        }
+
+        boolean contains(long line) {
+            return Arrays.binarySearch(mmLines, mmStart, mmEnd, line) >= 0;
+        }
+    }
+
+    private long[] mKeys = new long[INITIAL_TABLE_SIZE];
+    private Postings[] mValues = new Postings[INITIAL_TABLE_SIZE];
+    private int mWords;
+    private long mFirstLine;
+    private long mNextLine;
+
+    /** True for bytes that belong to a word. */
+    public static boolean isWordByte(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z')
+                || (b >= '0' && b <= '9') || b == '_' || b < 0;
+    }
+
+    /** A byte with ASCII upper case folded to lower case. */
+    public static byte fold(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    /** Hash of a word, ignoring ASCII case. */
+    public static long hash(byte[] data, int offset, int length) {
+        long h = FNV_OFFSET;
+        for (int i = offset; i < offset + length; i++) {
+            h = (h ^ (fold(data[i]) & 0xff)) * FNV_PRIME;
+        }
+        return h;
+    }
+
+    /** True for the words that are indexed. */
+    public static boolean isIndexed(byte[] data, int offset, int length) {
+        if (length == 0 || length > MAX_WORD_LENGTH) return false;
+        for (int i = offset; i < offset + length; i++) {
+            if (data[i] < '0' || data[i] > '9') return true;
+        }
+        return false;
+    }
+
+    /**
+     * Index the words of a line. Lines must be added in order.
+     * @param line  Sequence number of the line
+     */
+    public void add(long line, byte[] data, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        while (i < end) {
+            while (i < end && !isWordByte(data[i])) i++;
+            int start = i;
+            while (i < end && isWordByte(data[i])) i++;
+            if (isIndexed(data, start, i - start)) {
+                addPosting(hash(data, start, i - start), line);
+            }
+        }
+        mNextLine = line + 1;
+    }
+
+    /** Sequence number of the line that add() expects next. */
+    public long getNextLine() {
+        return mNextLine;
+    }
+
+    /**
+     * Note that lines before firstLine have been evicted from the log.
+     * Their postings are dropped lazily.
+     */
+    public void evictBefore(long firstLine) {
+        if (firstLine > mFirstLine) mFirstLine = firstLine;
+        if (mNextLine < firstLine) mNextLine = firstLine;
+    }
+
+    /**
+     * Lines that may hold every one of the words, in ascending order.
+     * @param hashes  hash() of each word; all of them must be indexed
+     */
+    public long[] candidates(long[] hashes) {
+        Postings[] lists = new Postings[hashes.length];
+        Postings shortest = null;
+        for (int i = 0; i < hashes.length; i++) {
+            lists[i] = get(hashes[i]);
+            if (lists[i] == null) return new long[0];
+            lists[i].trim(mFirstLine);
+            if (shortest == null || lists[i].size() < shortest.size()) shortest = lists[i];
+        }
+        long[] out = new long[shortest.size()];
+        int count = 0;
+        for (int i = shortest.mmStart; i < shortest.mmEnd; i++) {
+            long line = shortest.mmLines[i];
+            boolean all = true;
+            for (int j = 0; j < lists.length && all; j++) {
+                if (lists[j] != shortest) all = lists[j].contains(line);
+            }
+            if (all) out[count++] = line;
+        }
+        return count == out.length ? out : Arrays.copyOf(out, count);
+    }
+
+    /** Number of distinct words held. */
+    public int getWordCount() {
+        return mWords;
+    }
+
+    private Postings get(long key) {
+        int mask = mKeys.length - 1;
+        for (int i = mix(key) & mask; mValues[i] != null; i = (i + 1) & mask) {
+            if (mKeys[i] == key) return mValues[i];
+        }
+        return null;
+    }
+
+    private void addPosting(long key, long line) {
+        int mask = mKeys.length - 1;
+        int i = mix(key) & mask;
+        for (; mValues[i] != null; i = (i + 1) & mask) {
+            if (mKeys[i] == key) {
+                mValues[i].add(line);
+                return;
+            }
+        }
+        Postings postings = new Postings();
+        // Before any rehash, which sweeps out empty lists
+        postings.add(line);
+        mKeys[i] = key;
+        mValues[i] = postings;
+        if (++mWords * 4 > mKeys.length * 3) rehash();
+    }
+
+    /**
+     * Rebuild the table without the words whose lines are all evicted,
+     * growing it if it is still more than half full.
+     */
+    private void rehash() {
+        long[] keys = mKeys;
+        Postings[] values = mValues;
+        int live = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) continue;
+            values[i].trim(mFirstLine);
+            if (values[i].size() > 0) live++;
+        }
+        int size = keys.length;
+        if (live * 2 > size) size *= 2;
+        mKeys = new long[size];
+        mValues = new Postings[size];
+        mWords = 0;
+        int mask = size - 1;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null || values[i].size() == 0) continue;
+            int j = mix(keys[i]) & mask;
+            while (mValues[j] != null) j = (j + 1) & mask;
+            mKeys[j] = keys[i];
+            mValues[j] = values[i];
+            mWords++;
+        }
+    }
+
+    private static int mix(long key) {
+        return (int) (key ^ (key >>> 32));
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.io.IOException;
+
+/**
+ * A byte stream link to a device. {@link BTcom} connects, reads and
+ * writes through this interface, so the same receive path runs over
+ * Bluetooth RFCOMM, a TCP serial bridge or an in-process loopback.
+ *
+ * read() and write() may be called from different threads; close() may
+ * be called from any thread and must wake a blocked read().
+ */
+public interface Transport {
+
+    /** Open the link. Blocks until connected or failed. */
+    void connect() throws IOException;
+
+    /**
+     * Block until at least one byte is available and read it.
+     * @return the number of bytes read, or -1 at end of stream
+     */
+    int read(byte[] buffer, int offset, int length) throws IOException;
+
+    /** Write all the given bytes. */
+    void write(byte[] buffer, int offset, int length) throws IOException;
+
+    /** Close the link, waking any blocked read. */
+    void close() throws IOException;
+
+    /** Name of the remote end, shown to the user. */
+    String getName();
+
+    /**
+     * Identity of the remote end, the same each time the same device is
+     * connected, such as its Bluetooth address.
+     */
+    String getAddress();
+
+    /**
+     * A new, unconnected transport to the same device, used to reconnect
+     * once this one has been lost and closed.
+     * @return the transport, or null if the link cannot be made again
+     */
+    Transport reopen();
+}
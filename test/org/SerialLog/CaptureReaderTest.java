@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import junit.framework.TestCase;
+
+public class CaptureReaderTest extends TestCase {
+
+    private File mSegment;
+
+    @Override
+    protected void setUp() throws IOException {
+        mSegment = File.createTempFile("capture", CaptureFormat.SEGMENT_SUFFIX);
+    }
+
+    @Override
+    protected void tearDown() {
+        mSegment.delete();
+        CaptureFormat.indexFor(mSegment).delete();
+    }
+
+    /** Write a segment of plain records, without an index. */
+    private void writeSegment(short version, String... lines) throws IOException {
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(mSegment));
+        try {
+            out.writeInt(CaptureFormat.SEGMENT_MAGIC);
+            out.writeShort(version);
+            out.writeShort(0);
+            out.writeLong(1000);
+            out.writeLong(5000000);
+            for (int i = 0; i < lines.length; i++) {
+                byte[] data = lines[i].getBytes("US-ASCII");
+                out.writeLong(5000000 + i * 1000000L);
+                out.writeByte(CaptureFormat.DIR_IN);
+                out.writeShort(i % 2);
+                out.writeInt(data.length);
+                out.write(data);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Write a segment of plain records at the given times, each holding
+     * its own number, and an index entry for every third record.
+     * @param extraEntries  Entries past the data, as left by a flush
+     *                      whose data did not survive
+     */
+    private void writeIndexed(long[] times, int extraEntries) throws IOException {
+        long[] offsets = new long[times.length + extraEntries];
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(mSegment));
+        try {
+            out.writeInt(CaptureFormat.SEGMENT_MAGIC);
+            out.writeShort(CaptureFormat.VERSION);
+            out.writeShort(0);
+            out.writeLong(1000);
+            out.writeLong(5000000);
+            for (int i = 0; i < times.length; i++) {
+                offsets[i] = out.size();
+                byte[] data = Integer.toString(i).getBytes("US-ASCII");
+                out.writeLong(times[i]);
+                out.writeByte(CaptureFormat.DIR_IN);
+                out.writeShort(0);
+                out.writeInt(data.length);
+                out.write(data);
+            }
+            for (int i = times.length; i < offsets.length; i++) {
+                offsets[i] = out.size() + (i - times.length) * 20;
+            }
+        } finally {
+            out.close();
+        }
+        out = new DataOutputStream(new FileOutputStream(CaptureFormat.indexFor(mSegment)));
+        try {
+            out.writeInt(CaptureFormat.INDEX_MAGIC);
+            out.writeShort(CaptureFormat.VERSION);
+            for (int i = 0; i < offsets.length; i += 3) {
+                out.writeLong(i < times.length ? times[i] : times[times.length - 1] + i);
+                out.writeLong(i);
+                out.writeLong(offsets[i]);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /** Cut bytes off the end of a file. */
+    private static void truncate(File file, int bytes) throws IOException {
+        RandomAccessFile out = new RandomAccessFile(file, "rw");
+        try {
+            out.setLength(out.length() - bytes);
+        } finally {
+            out.close();
+        }
+    }
+
+    /** The number of the next record, or -1 at the end. */
+    private static long nextLine(CaptureReader reader) throws IOException {
+        if (!reader.next()) return -1;
+        assertEquals(Long.toString(reader.getLineNumber()),
+                new String(reader.getData(), 0, reader.getLength(), "US-ASCII"));
+        return reader.getLineNumber();
+    }
+
+    // Records 2 to 7 share a time, across the index entries at 3 and 6
+    private static final long[] TIMES = { 5000000, 6000000, 7000000, 7000000, 7000000,
+            7000000, 7000000, 7000000, 9000000, 10000000, 11000000, 12000000, 13000000 };
+
+    public void testSeekTime() throws IOException {
+        writeIndexed(TIMES, 0);
+        CaptureReader reader = new CaptureReader(mSegment);
+        try {
+            assertEquals(5, reader.getIndexSize());
+            reader.seekTime(7000000);
+            assertEquals(2, nextLine(reader));
+            reader.seekTime(7000001);
+            assertEquals(8, nextLine(reader));
+            reader.seekTime(12500000);
+            assertEquals(12, nextLine(reader));
+            reader.seekTime(0);
+            assertEquals(0, nextLine(reader));
+            reader.seekTime(Long.MIN_VALUE);
+            assertEquals(0, nextLine(reader));
+            reader.seekTime(13000001);
+            assertEquals(-1, nextLine(reader));
+        } finally {
+            reader.close();
+        }
+    }
+
+    public void testSeekWallClock() throws IOException {
+        writeIndexed(TIMES, 0);
+        CaptureReader reader = new CaptureReader(mSegment);
+        try {
+            // The segment started at 1000 ms wall time and 5 ms monotonic
+            reader.seekWallClock(1002);
+            assertEquals(2, nextLine(reader));
+            reader.seekWallClock(1005);
+            assertEquals(9, nextLine(reader));
+            assertEquals(1005, reader.toWallMillis(reader.getTimestamp()));
+        } finally {
+            reader.close();
+        }
+    }
+
+    public void testSeekLine() throws IOException {
+        writeIndexed(TIMES, 0);
+        CaptureReader reader = new CaptureReader(mSegment);
+        try {
+            for (int line = TIMES.length - 1; line >= 0; line--) {
+                reader.seekLine(line);
+                assertEquals(line, nextLine(reader));
+            }
+            reader.seekLine(TIMES.length);
+            assertEquals(-1, nextLine(reader));
+        } finally {
+            reader.close();
+        }
+    }
+
+    public void testFirstEntryTimeReplaced() throws IOException {
+        writeIndexed(TIMES, 0);
+        CaptureReader reader = new CaptureReader(mSegment);
+        try {
+            // Entry 0 is the reader's own, given the first record's time,
+            // so a seek before the data starts there
+            reader.seekTime(4000000);
+            assertEquals(0, nextLine(reader));
+        } finally {
+            reader.close();
+        }
+    }
+
+    public void testTruncatedRecordAndIndex() throws IOException {
+        // Three entries point past the data that survived
+        writeIndexed(TIMES, 9);
+        truncate(mSegment, 3);
+        truncate(CaptureFormat.indexFor(mSegment), 10);
+        CaptureReader reader = new CaptureReader(mSegment);
+        try {
+            assertEquals(5, reader.getIndexSize());
+            for (int line = 0; line < TIMES.length - 1; line++) {
+                assertEquals(line, nextLine(reader));
+            }
+            // The last record is cut short
+            assertEquals(-1, nextLine(reader));
+            reader.seekLine(TIMES.length - 1);
+            assertEquals(-1, nextLine(reader));
+            reader.seekTime(12000000);
+            assertEquals(11, nextLine(reader));
+            assertEquals(-1, nextLine(reader));
+        } finally {
+            reader.close();
+        }
+    }
+
+    public void testMissingIndex() throws IOException {
+        writeIndexed(TIMES, 0);
+        CaptureFormat.indexFor(mSegment).delete();
+        CaptureReader reader = new CaptureReader(mSegment);
+        try {
+            assertEquals(1, reader.getIndexSize());
+            reader.seekTime(9000000);
+            assertEquals(8, nextLine(reader));
+            reader.seekLine(4);
+            assertEquals(4, nextLine(reader));
+        } finally {
+            reader.close();
+        }
+    }
+
+    public void testSeekInBlocks() throws IOException {
+        File dir = File.createTempFile("capture", "");
+        dir.delete();
+        CaptureWriter writer = new CaptureWriter(dir, 256 * 1024, 1024, 1L << 30,
+                60 * 60 * 1000, 10);
+        writer.start();
+        CaptureQueue queue = writer.openQueue();
+        int lines = 2000;
+        for (int i = 0; i < lines; i++) {
+            byte[] data = Integer.toString(i).getBytes("US-ASCII");
+            // Runs of ten records share a time, across block boundaries
+            assertTrue(writer.offer(queue, 1000000 + i / 10 * 1000, CaptureFormat.DIR_IN, 0,
+                    data, 0, data.length));
+        }
+        writer.closeQueue(queue);
+        writer.stop();
+        File segment = dir.listFiles(new FilenameFilter() {
+            public boolean accept(File file, String name) {
+                return name.endsWith(CaptureFormat.SEGMENT_SUFFIX);
+            }
+        })[0];
+        CaptureReader reader = new CaptureReader(segment);
+        try {
+            assertTrue(reader.getIndexSize() > 10);
+            for (int i = 0; i < lines; i += 37) {
+                reader.seekLine(i);
+                assertEquals(i, nextLine(reader));
+                reader.seekTime(1000000 + i / 10 * 1000);
+                assertEquals(i / 10 * 10, nextLine(reader));
+            }
+            reader.seekTime(1000000 + lines / 10 * 1000);
+            assertEquals(-1, nextLine(reader));
+        } finally {
+            reader.close();
+            for (File file : dir.listFiles()) file.delete();
+            dir.delete();
+        }
+    }
+
+    public void testReadsPlainRecords() throws IOException {
+        writeSegment(CaptureFormat.VERSION, "first", "", "third");
+        CaptureReader reader = new CaptureReader(mSegment);
+        try {
+            assertEquals(1000, reader.getStartWallMillis());
+            String[] expected = { "first", "", "third" };
+            for (int i = 0; i < expected.length; i++) {
+                assertTrue(reader.next());
+                assertEquals(expected[i],
+                        new String(reader.getData(), 0, reader.getLength(), "US-ASCII"));
+                assertEquals(i % 2, reader.getTag());
+                assertEquals(5000000 + i * 1000000L, reader.getTimestamp());
+            }
+            assertFalse(reader.next());
+        } finally {
+            reader.close();
+        }
+    }
+
+    public void testOtherVersionsRejected() throws IOException {
+        for (short version : new short[] { 0, (short) (CaptureFormat.VERSION + 1) }) {
+            writeSegment(version, "line");
+            try {
+                new CaptureReader(mSegment).close();
+                fail("version " + version + " accepted");
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+}
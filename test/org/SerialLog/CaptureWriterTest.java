@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class CaptureWriterTest extends TestCase {
+
+    private static final int LINES = 3000;
+    private static final int BLOCK_BYTES = 4096;
+    private static final long SEGMENT_BYTES = 16 * 1024;
+
+    private File mDir;
+
+    @Override
+    protected void setUp() throws IOException {
+        mDir = File.createTempFile("capture", "");
+        mDir.delete();
+    }
+
+    @Override
+    protected void tearDown() {
+        File[] files = mDir.listFiles();
+        if (files != null) {
+            for (File file : files) file.delete();
+        }
+        mDir.delete();
+    }
+
+    /** Payload of line i from a queue, of varied lengths and some empty. */
+    private static byte[] payload(int queue, int i) throws IOException {
+        if (i % 40 < 4) return new byte[0];
+        StringBuilder text = new StringBuilder();
+        text.append(queue).append(',').append(i);
+        int repeats = i % 97 == 0 ? 120 : i % 5;
+        for (int j = 0; j < repeats; j++) {
+            text.append(",").append(i * 31 + j);
+        }
+        return text.toString().getBytes("US-ASCII");
+    }
+
+    private static class Record {
+        final long mmTimestamp;
+        final int mmDirection;
+        final int mmTag;
+        final byte[] mmData;
+
+        Record(long timestamp, int direction, int tag, byte[] data) {
+            mmTimestamp = timestamp;
+            mmDirection = direction;
+            mmTag = tag;
+            mmData = data;
+        }
+    }
+
+    /**
+     * Capture lines from two queues, whose timestamps interleave, and a
+     * metrics record, then read every segment back.
+     */
+    private void roundTrip(short flags, int codec) throws IOException {
+        CaptureWriter writer = new CaptureWriter(mDir, 1024 * 1024, BLOCK_BYTES, SEGMENT_BYTES,
+                60 * 60 * 1000, 10);
+        writer.setEncoding(flags, codec);
+        writer.start();
+        CaptureQueue[] queues = { writer.openQueue(), writer.openQueue() };
+        List<Record> expected = new ArrayList<Record>();
+        long base = 1000000000L;
+        for (int i = 0; i < LINES; i++) {
+            for (int q = 0; q < queues.length; q++) {
+                byte[] data = payload(q, i);
+                long timestamp = base + i * 2000L + q * 1000L;
+                int direction = q == 0 ? CaptureFormat.DIR_IN : CaptureFormat.DIR_OUT;
+                assertTrue(writer.offer(queues[q], timestamp, direction, q + 3,
+                        data, 0, data.length));
+                expected.add(new Record(timestamp, direction, q + 3, data));
+            }
+            if (i == LINES / 2) {
+                byte[] meta = "lines.in=1500".getBytes("US-ASCII");
+                long timestamp = base + i * 2000L + 1500;
+                assertTrue(writer.offer(queues[1], timestamp, CaptureFormat.DIR_META,
+                        CaptureFormat.META_TAG, meta, 0, meta.length));
+                expected.add(new Record(timestamp, CaptureFormat.DIR_META,
+                        CaptureFormat.META_TAG, meta));
+            }
+        }
+        writer.closeQueue(queues[0]);
+        writer.closeQueue(queues[1]);
+        writer.stop();
+        assertNull(writer.getFailure());
+        assertEquals(0, writer.getDropped());
+        assertEquals(expected.size(), writer.getLinesWritten());
+
+        File[] segments = mDir.listFiles();
+        List<CaptureReader> readers = new ArrayList<CaptureReader>();
+        for (File file : segments) {
+            if (file.getName().endsWith(CaptureFormat.SEGMENT_SUFFIX)) {
+                readers.add(new CaptureReader(file));
+            }
+        }
+        assertTrue("segments " + readers.size(), readers.size() > 1);
+        CaptureReader[] ordered = readers.toArray(new CaptureReader[readers.size()]);
+        Arrays.sort(ordered, new Comparator<CaptureReader>() {
+            public int compare(CaptureReader a, CaptureReader b) {
+                return a.getStartNanos() < b.getStartNanos() ? -1
+                        : a.getStartNanos() > b.getStartNanos() ? 1 : 0;
+            }
+        });
+
+        int read = 0;
+        int entries = 0;
+        for (CaptureReader reader : ordered) {
+            try {
+                assertEquals(flags, reader.getFlags());
+                long line = 0;
+                while (reader.next()) {
+                    Record record = expected.get(read++);
+                    assertEquals(line++, reader.getLineNumber());
+                    assertEquals(record.mmTimestamp, reader.getTimestamp());
+                    assertEquals(record.mmDirection, reader.getDirection());
+                    assertEquals(record.mmTag, reader.getTag());
+                    assertTrue("record " + (read - 1), Arrays.equals(record.mmData,
+                            Arrays.copyOf(reader.getData(), reader.getLength())));
+                }
+                entries += reader.getIndexSize();
+            } finally {
+                reader.close();
+            }
+        }
+        assertEquals(expected.size(), read);
+        // Past the first entry of each segment, which the reader always has
+        assertTrue("index entries " + entries, entries > ordered.length * 2);
+    }
+
+    public void testPlainRecords() throws IOException {
+        roundTrip((short) 0, CaptureFormat.CODEC_STORED);
+    }
+
+    public void testStoredBlocks() throws IOException {
+        roundTrip(CaptureFormat.FLAG_BLOCKS, CaptureFormat.CODEC_STORED);
+    }
+
+    public void testCompressedBlocks() throws IOException {
+        roundTrip(CaptureFormat.FLAG_BLOCKS, CaptureFormat.CODEC_LZ4);
+    }
+
+    public void testDefaultEncoding() throws IOException {
+        roundTrip(CaptureWriter.DEFAULT_FLAGS, CaptureFormat.CODEC_LZ4);
+    }
+
+    public void testLineTooLongForBlockRefused() throws IOException {
+        CaptureWriter writer = new CaptureWriter(mDir, 64 * 1024, BLOCK_BYTES, SEGMENT_BYTES,
+                60 * 60 * 1000, 10);
+        CaptureQueue queue = writer.openQueue();
+        byte[] data = new byte[BLOCK_BYTES];
+        assertFalse(writer.offer(queue, 1, CaptureFormat.DIR_IN, 0, data, 0, data.length));
+        assertEquals(1, writer.getDropped());
+    }
+}
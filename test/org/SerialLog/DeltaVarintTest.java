@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+public class DeltaVarintTest extends TestCase {
+
+    public void testRoundTrip() throws IOException {
+        long[] values = { 0, 1, -1, 63, -64, 64, 127, 128, Integer.MAX_VALUE,
+                Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE };
+        byte[] data = new byte[values.length * 3 * DeltaVarint.MAX_VARINT_BYTES];
+        DeltaVarint out = new DeltaVarint();
+        out.reset(data, 0, data.length);
+        for (long value : values) {
+            out.putSigned(value);
+            out.putDelta(value);
+            out.putUnsigned(value);
+        }
+        int end = out.getPosition();
+        DeltaVarint in = new DeltaVarint();
+        in.reset(data, 0, end);
+        for (long value : values) {
+            assertEquals(value, in.getSigned());
+            assertEquals(value, in.getDelta());
+            assertEquals(value, in.getUnsigned());
+        }
+        assertFalse(in.hasRemaining());
+    }
+
+    public void testSmallDeltasTakeOneByte() throws IOException {
+        byte[] data = new byte[64];
+        DeltaVarint out = new DeltaVarint();
+        out.reset(data, 0, data.length);
+        long time = 123456789012345L;
+        out.putDelta(time);
+        int start = out.getPosition();
+        out.putDelta(time + 20);
+        out.putDelta(time + 5);
+        assertEquals(2, out.getPosition() - start);
+    }
+
+    public void testTruncatedInputRejected() {
+        byte[] data = new byte[DeltaVarint.MAX_VARINT_BYTES];
+        DeltaVarint out = new DeltaVarint();
+        out.reset(data, 0, data.length);
+        out.putUnsigned(1L << 40);
+        DeltaVarint in = new DeltaVarint();
+        in.reset(data, 0, out.getPosition() - 1);
+        try {
+            in.getUnsigned();
+            fail("expected IOException");
+        } catch (IOException e) {
+            // expected
+        }
+        in.reset(data, 0, 2);
+        try {
+            in.getFixed(4);
+            fail("expected IOException");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class LineDecoderTest extends TestCase {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static String decode(LineDecoder decoder, byte[] data, int offset, int length) {
+        StringBuilder out = new StringBuilder("> ");
+        decoder.decode(data, offset, length, out);
+        return out.toString();
+    }
+
+    public void testAsciiLineWithinArray() throws Exception {
+        byte[] data = "xxtemp=21.5yy".getBytes("US-ASCII");
+        assertEquals("> temp=21.5", decode(new LineDecoder(UTF_8), data, 2, 9));
+    }
+
+    public void testAsciiLongerThanBuffer() {
+        byte[] line = new byte[5000];
+        Arrays.fill(line, (byte) 'a');
+        line[4999] = 'z';
+        String text = decode(new LineDecoder(UTF_8), line, 0, line.length);
+        assertEquals(5002, text.length());
+        assertEquals('z', text.charAt(text.length() - 1));
+    }
+
+    public void testMultibyteAndMalformed() throws Exception {
+        LineDecoder decoder = new LineDecoder(UTF_8);
+        byte[] data = "caf\u00e9 \u20ac5".getBytes("UTF-8");
+        assertEquals("> caf\u00e9 \u20ac5", decode(decoder, data, 0, data.length));
+        // A truncated character is replaced, and does not leak into the next line
+        assertEquals("> ab\ufffd", decode(decoder, new byte[] { 'a', 'b', (byte) 0xe2 }, 0, 3));
+        assertEquals("> ok", decode(decoder, "ok".getBytes("US-ASCII"), 0, 2));
+    }
+
+    public void testLongNonAsciiLine() throws Exception {
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            expected.append("\u00e9\u4e2d");
+        }
+        byte[] data = expected.toString().getBytes("UTF-8");
+        assertEquals("> " + expected, decode(new LineDecoder(UTF_8), data, 0, data.length));
+    }
+
+    public void testUtf16HasNoAsciiFastPath() throws Exception {
+        Charset utf16 = Charset.forName("UTF-16LE");
+        LineDecoder decoder = new LineDecoder(utf16);
+        assertFalse(decoder.isAsciiCompatible());
+        byte[] data = "hi".getBytes("UTF-16LE");
+        assertEquals("> hi", decode(decoder, data, 0, data.length));
+        assertTrue(new LineDecoder(Charset.forName("ISO-8859-1")).isAsciiCompatible());
+    }
+
+    public void testHexDump() {
+        StringBuilder out = new StringBuilder();
+        LineDecoder.appendHex(new byte[] { 0x41, 0x00, (byte) 0xff }, 0, 3, out);
+        assertEquals("41 00 FF  A..", out.toString());
+    }
+}
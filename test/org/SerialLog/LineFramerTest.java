@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class LineFramerTest extends TestCase {
+
+    private final List<byte[]> mFrames = new ArrayList<byte[]>();
+
+    private LineFramer framer(Framing framing) {
+        return new LineFramer(new LineBufferPool(4, 16), framing, new LineFramer.Listener() {
+            public void onLine(LineBuffer line) {
+                mFrames.add(Arrays.copyOf(line.getData(), line.getLength()));
+                line.release();
+            }
+        });
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+
+    /** Feed the bytes whole, then again a byte at a time. */
+    private void feedTwice(LineFramer framer, byte[] stream) {
+        framer.feed(stream, 0, stream.length);
+        for (int i = 0; i < stream.length; i++) {
+            framer.feed(stream, i, 1);
+        }
+    }
+
+    private void assertFrames(byte[]... expected) {
+        assertEquals(expected.length, mFrames.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertTrue("frame " + i + " " + Arrays.toString(mFrames.get(i)),
+                    Arrays.equals(expected[i], mFrames.get(i)));
+        }
+    }
+
+    public void testCobsDecodesZerosAndLongBlocks() {
+        LineFramer framer = framer(Framing.cobs());
+        byte[] run = new byte[254];
+        Arrays.fill(run, (byte) 7);
+        // 11 22 00 33, then 254 sevens followed by 44
+        byte[] first = bytes(0x03, 0x11, 0x22, 0x02, 0x33, 0x00);
+        byte[] stream = new byte[first.length + 1 + run.length + 2 + 1];
+        System.arraycopy(first, 0, stream, 0, first.length);
+        stream[first.length] = (byte) 0xff;
+        System.arraycopy(run, 0, stream, first.length + 1, run.length);
+        stream[stream.length - 3] = 0x02;
+        stream[stream.length - 2] = 0x44;
+        stream[stream.length - 1] = 0x00;
+        byte[] second = Arrays.copyOf(run, run.length + 1);
+        second[run.length] = 0x44;
+
+        feedTwice(framer, stream);
+        byte[] one = bytes(0x11, 0x22, 0x00, 0x33);
+        assertFrames(one, second, one, second);
+        assertEquals(0, framer.getErrors());
+    }
+
+    public void testCobsFrameCutShortIsDropped() {
+        LineFramer framer = framer(Framing.cobs());
+        // The code promises four data bytes but a zero comes after two
+        byte[] stream = bytes(0x05, 0x11, 0x22, 0x00, 0x02, 0x33, 0x00);
+        feedTwice(framer, stream);
+        assertFrames(bytes(0x33), bytes(0x33));
+        assertEquals(2, framer.getErrors());
+    }
+
+    public void testCobsRepeatedZerosAreNotFrames() {
+        LineFramer framer = framer(Framing.cobs());
+        feedTwice(framer, bytes(0x00, 0x00, 0x01, 0x00, 0x00));
+        assertFrames(bytes(), bytes());
+        assertEquals(0, framer.getErrors());
+    }
+
+    public void testSlipUnescapes() {
+        LineFramer framer = framer(Framing.slip());
+        feedTwice(framer, bytes(0xc0, 0x11, 0xdb, 0xdc, 0xdb, 0xdd, 0x22, 0xc0));
+        byte[] frame = bytes(0x11, 0xc0, 0xdb, 0x22);
+        assertFrames(frame, frame);
+        assertEquals(0, framer.getErrors());
+    }
+
+    public void testSlipBadEscapeDropsFrame() {
+        LineFramer framer = framer(Framing.slip());
+        feedTwice(framer, bytes(0x11, 0xdb, 0x22, 0x33, 0xc0, 0x44, 0xc0));
+        assertFrames(bytes(0x44), bytes(0x44));
+        assertEquals(2, framer.getErrors());
+    }
+
+    public void testSlipEscapeBeforeEndDropsFrame() {
+        LineFramer framer = framer(Framing.slip());
+        feedTwice(framer, bytes(0x11, 0xdb, 0xc0, 0x44, 0xc0));
+        assertFrames(bytes(0x44), bytes(0x44));
+        assertEquals(2, framer.getErrors());
+    }
+
+    public void testResetForgetsPartialFrame() {
+        LineFramer framer = framer(Framing.slip());
+        byte[] partial = bytes(0x11, 0xdb);
+        framer.feed(partial, 0, partial.length);
+        framer.reset();
+        byte[] next = bytes(0xdc, 0xc0);
+        framer.feed(next, 0, next.length);
+        assertFrames(bytes(0xdc));
+        assertEquals(0, framer.getErrors());
+    }
+
+    public void testOverflowModes() {
+        byte[] stream = bytes(1, 2, 3, 4, 5, 0xc0, 6, 0xc0);
+
+        LineFramer truncate = framer(Framing.slip().withMaxFrame(2, Framing.OVERFLOW_TRUNCATE));
+        truncate.feed(stream, 0, stream.length);
+        assertFrames(bytes(1, 2), bytes(6));
+        assertEquals(1, truncate.getOverruns());
+
+        mFrames.clear();
+        LineFramer split = framer(Framing.slip().withMaxFrame(2, Framing.OVERFLOW_SPLIT));
+        split.feed(stream, 0, stream.length);
+        assertFrames(bytes(1, 2), bytes(3, 4), bytes(5), bytes(6));
+        assertEquals(1, split.getOverruns());
+
+        mFrames.clear();
+        LineFramer discard = framer(Framing.slip().withMaxFrame(2, Framing.OVERFLOW_DISCARD));
+        discard.feed(stream, 0, stream.length);
+        assertFrames(bytes(6));
+        assertEquals(1, discard.getOverruns());
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import junit.framework.TestCase;
+
+public class LogModelTest extends TestCase {
+
+    private static void append(LogModel model, int direction, int tag, long nanos) {
+        byte[] line = "x".getBytes();
+        model.append(line, 0, line.length, direction, tag, nanos);
+    }
+
+    public void testGapIsPerDeviceAndDirection() {
+        LogModel model = new LogModel(1024, 16);
+        append(model, LogModel.DIR_IN, 0, 1000);
+        append(model, LogModel.DIR_IN, 1, 1500);
+        append(model, LogModel.DIR_OUT, 0, 1700);
+        append(model, LogModel.DIR_NOTE, 0, 1800);
+        append(model, LogModel.DIR_IN, 0, 3000);
+        append(model, LogModel.DIR_IN, 1, 3100);
+        append(model, LogModel.DIR_OUT, 0, 3200);
+
+        assertEquals(LogModel.NO_GAP, model.getGap(0));
+        assertEquals(LogModel.NO_GAP, model.getGap(1));
+        assertEquals(LogModel.NO_GAP, model.getGap(2));
+        assertEquals(LogModel.NO_GAP, model.getGap(3));
+        assertEquals(2000, model.getGap(4));
+        assertEquals(1600, model.getGap(5));
+        assertEquals(1500, model.getGap(6));
+    }
+
+    public void testGapSurvivesEviction() {
+        LogModel model = new LogModel(1024, 2);
+        append(model, LogModel.DIR_IN, 3, 1000);
+        append(model, LogModel.DIR_IN, 4, 1100);
+        append(model, LogModel.DIR_IN, 3, 2000);
+        assertEquals(1000, model.getGap(1));
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class Lz4Test extends TestCase {
+
+    private final int[] mTable = new int[Lz4.HASH_TABLE_SIZE];
+
+    /** Compress then decompress, with the data placed off the start of both arrays. */
+    private byte[] roundTrip(byte[] data) throws IOException {
+        byte[] src = new byte[data.length + 3];
+        System.arraycopy(data, 0, src, 3, data.length);
+        byte[] compressed = new byte[Lz4.maxCompressedLength(data.length) + 5];
+        int length = Lz4.compress(src, 3, data.length, compressed, 5, mTable);
+        assertTrue(length <= Lz4.maxCompressedLength(data.length));
+        byte[] out = new byte[data.length + 7];
+        int decoded = Lz4.decompress(compressed, 5, length, out, 7, data.length);
+        assertEquals(data.length, decoded);
+        return Arrays.copyOfRange(out, 7, 7 + decoded);
+    }
+
+    public void testEmptyAndTiny() throws IOException {
+        for (int length = 0; length < 20; length++) {
+            byte[] data = new byte[length];
+            for (int i = 0; i < length; i++) data[i] = (byte) ('a' + i % 3);
+            assertTrue("length " + length, Arrays.equals(data, roundTrip(data)));
+        }
+    }
+
+    public void testRepetitiveLinesShrink() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; text.length() < 64 * 1024; i++) {
+            text.append(i).append(",21.5,48.2,1013\r\n");
+        }
+        byte[] data = text.toString().getBytes("US-ASCII");
+        byte[] compressed = new byte[Lz4.maxCompressedLength(data.length)];
+        int length = Lz4.compress(data, 0, data.length, compressed, 0, mTable);
+        assertTrue(length < data.length / 2);
+        assertTrue(Arrays.equals(data, roundTrip(data)));
+    }
+
+    public void testLongRunsAndRandom() throws IOException {
+        Random random = new Random(42);
+        for (int round = 0; round < 50; round++) {
+            byte[] data = new byte[random.nextInt(100000)];
+            int i = 0;
+            while (i < data.length) {
+                // Alternate incompressible stretches with long runs and repeats
+                int run = Math.min(data.length - i, random.nextInt(600));
+                int kind = random.nextInt(3);
+                for (int j = 0; j < run; j++, i++) {
+                    if (kind == 0) data[i] = (byte) random.nextInt();
+                    else if (kind == 1) data[i] = 7;
+                    else data[i] = i >= 70000 ? data[i - 70000] : (byte) (j % 13);
+                }
+            }
+            assertTrue("round " + round, Arrays.equals(data, roundTrip(data)));
+        }
+    }
+
+    public void testCorruptInputRejected() throws IOException {
+        byte[] data = "temp=21.5 temp=21.5 temp=21.5 temp=21.5 done".getBytes("US-ASCII");
+        byte[] compressed = new byte[Lz4.maxCompressedLength(data.length)];
+        int length = Lz4.compress(data, 0, data.length, compressed, 0, mTable);
+        byte[] out = new byte[data.length];
+        try {
+            // Output room one byte short
+            Lz4.decompress(compressed, 0, length, out, 0, data.length - 1);
+            fail("expected IOException");
+        } catch (IOException e) {
+            // expected
+        }
+        try {
+            Lz4.decompress(compressed, 0, length - 3, out, 0, data.length);
+            fail("expected IOException");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
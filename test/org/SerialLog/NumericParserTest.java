@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class NumericParserTest extends TestCase {
+
+    private static boolean parse(NumericParser parser, String line) {
+        byte[] bytes = line.getBytes();
+        // Somewhere other than the start of the array
+        byte[] data = new byte[bytes.length + 4];
+        System.arraycopy(bytes, 0, data, 2, bytes.length);
+        return parser.parse(data, 2, bytes.length, 42);
+    }
+
+    private static NumericParser parser(String types) {
+        return new NumericParser(new ColumnStore(ColumnSchema.parse(",", types), 16));
+    }
+
+    /** The field parsed as a long, or null if it was refused. */
+    private static Long parseLong(String field) {
+        NumericParser parser = parser("l");
+        if (!parse(parser, field)) return null;
+        ColumnStore store = parser.getStore();
+        return store.getLong(0, store.getRowCount() - 1);
+    }
+
+    /** The field parsed as a double, or null if it was refused. */
+    private static Double parseDouble(String field) {
+        NumericParser parser = parser("d");
+        if (!parse(parser, field)) return null;
+        ColumnStore store = parser.getStore();
+        return store.getDouble(0, store.getRowCount() - 1);
+    }
+
+    public void testLongLimits() {
+        assertEquals(Long.valueOf(Long.MIN_VALUE), parseLong("-9223372036854775808"));
+        assertEquals(Long.valueOf(Long.MAX_VALUE), parseLong("9223372036854775807"));
+        assertEquals(Long.valueOf(Long.MAX_VALUE), parseLong("+9223372036854775807"));
+        assertNull(parseLong("9223372036854775808"));
+        assertNull(parseLong("-9223372036854775809"));
+        assertNull(parseLong("92233720368547758070"));
+        assertEquals(Long.valueOf(0), parseLong("-0"));
+        assertEquals(Long.valueOf(7), parseLong("0000000000000000000000007"));
+    }
+
+    public void testLongRejects() {
+        assertNull(parseLong("-"));
+        assertNull(parseLong("+"));
+        assertNull(parseLong("1.0"));
+        assertNull(parseLong("1e3"));
+        assertNull(parseLong("0x10"));
+        assertNull(parseLong("1 2"));
+        assertNull(parseLong("--1"));
+    }
+
+    public void testDoubleForms() {
+        assertEquals(0.5, parseDouble(".5"));
+        assertEquals(1.0, parseDouble("1."));
+        assertEquals(-0.25, parseDouble("-.25"));
+        assertEquals(1500.0, parseDouble("1.5e3"));
+        assertEquals(1500.0, parseDouble("1.5E+3"));
+        assertEquals(0.0015, parseDouble("1.5e-3"));
+        assertEquals(0.0, parseDouble("0.000"));
+        assertEquals(1e22, parseDouble("1e22"));
+        assertEquals(1e-22, parseDouble("1e-22"));
+        assertEquals(1e23, parseDouble("1e23"));
+    }
+
+    public void testDoubleRejects() {
+        assertNull(parseDouble("1e"));
+        assertNull(parseDouble("1e+"));
+        assertNull(parseDouble("e5"));
+        assertNull(parseDouble("."));
+        assertNull(parseDouble("0x10"));
+        assertNull(parseDouble("1.2.3"));
+        assertNull(parseDouble("infinity"));
+        assertNull(parseDouble("1,5"));
+    }
+
+    public void testDoubleRange() {
+        assertEquals(0.0, parseDouble("1e-400"));
+        assertEquals(Double.POSITIVE_INFINITY, parseDouble("1e400"));
+        assertEquals(Double.NEGATIVE_INFINITY, parseDouble("-1e400"));
+        assertEquals(Double.MIN_VALUE, parseDouble("4.9e-324"));
+        assertEquals(Double.MAX_VALUE, parseDouble("1.7976931348623157e308"),
+                Math.ulp(Double.MAX_VALUE));
+        assertEquals(0.0, parseDouble("0e999999999999"));
+    }
+
+    public void testNanAndInf() {
+        assertTrue(Double.isNaN(parseDouble("nan")));
+        assertTrue(Double.isNaN(parseDouble("NaN")));
+        assertEquals(Double.POSITIVE_INFINITY, parseDouble("inf"));
+        assertEquals(Double.POSITIVE_INFINITY, parseDouble("+INF"));
+        assertEquals(Double.NEGATIVE_INFINITY, parseDouble("-inf"));
+    }
+
+    public void testLongDigitStrings() {
+        String[] inputs = { "12345678901234567890123", "1.23456789012345678901234",
+                "0.000000000000000000012345678901234567890", "98765432109876543210e-30",
+                "123456789012345678901234567890e270" };
+        for (String input : inputs) {
+            double expected = Double.parseDouble(input);
+            assertEquals(input, expected, parseDouble(input), 2 * Math.ulp(expected));
+        }
+    }
+
+    public void testMatchesJavaOnShortNumbers() {
+        Random random = new Random(12);
+        for (int i = 0; i < 10000; i++) {
+            // Up to 15 significant digits and exponents within 22: exact
+            long mantissa = random.nextLong() % 1000000000000000L;
+            int scale = random.nextInt(16);
+            String text = BigDecimal.valueOf(mantissa, scale).toPlainString();
+            if (random.nextBoolean()) text += "e" + (random.nextInt(15) - 7);
+            assertEquals(text, Double.parseDouble(text), parseDouble(text));
+        }
+    }
+
+    public void testWhitespaceAroundFields() {
+        NumericParser parser = parser("ld");
+        assertTrue(parse(parser, "  12 \t,\t 3.5 \r"));
+        ColumnStore store = parser.getStore();
+        assertEquals(12, store.getLong(0, 0));
+        assertEquals(3.5, store.getDouble(1, 0));
+        assertEquals(42, store.getTimestamp(0));
+    }
+
+    public void testFieldCount() {
+        NumericParser parser = parser("ld");
+        assertFalse(parse(parser, "12,"));
+        assertFalse(parse(parser, "12"));
+        assertFalse(parse(parser, "12,3,4"));
+        assertFalse(parse(parser, "12,3,"));
+        assertTrue(parse(parser, "12,3"));
+        assertEquals(4, parser.getMalformed());
+        assertEquals(1, parser.getParsed());
+
+        parser = parser("d");
+        assertFalse(parse(parser, "12,"));
+        assertEquals(1, parser.getMalformed());
+    }
+
+    public void testSkippedColumns() {
+        NumericParser parser = parser("l-d");
+        assertTrue(parse(parser, "1,label,2.5"));
+        assertEquals(2.5, parser.getStore().getDouble(2, 0));
+        assertFalse(parser.getStore().isNumeric(1));
+    }
+
+    public void testMalformedAndBlankCounters() {
+        NumericParser parser = parser("l");
+        assertFalse(parse(parser, ""));
+        assertFalse(parse(parser, " \t\r"));
+        assertFalse(parse(parser, "x"));
+        assertFalse(parse(parser, "1.5"));
+        assertTrue(parse(parser, "7"));
+        assertEquals(2, parser.getBlank());
+        assertEquals(2, parser.getMalformed());
+        assertEquals(1, parser.getParsed());
+        assertEquals(1, parser.getStore().getRowCount());
+        assertEquals("1 parsed, 2 malformed, 2 blank", parser.toString());
+    }
+
+    public void testLearnsSchemaFromFirstNumericLine() {
+        NumericParser parser = new NumericParser(new byte[] { ',', ';' }, 16);
+        assertNull(parser.getStore());
+        assertFalse(parse(parser, "Booting..."));
+        assertFalse(parse(parser, ""));
+        assertFalse(parse(parser, "1,2,"));
+        assertNull(parser.getStore());
+        assertTrue(parse(parser, "1;2.5, -3 \r"));
+        ColumnStore store = parser.getStore();
+        assertNotNull(store);
+        assertNotNull(parser.getStats());
+        assertEquals(3, store.getSchema().getColumnCount());
+        for (int column = 0; column < 3; column++) {
+            assertEquals(ColumnSchema.TYPE_DOUBLE, store.getSchema().getType(column));
+        }
+        assertEquals(2.5, store.getDouble(1, 0));
+        assertEquals(-3.0, store.getDouble(2, 0));
+        // The learnt schema holds from then on
+        assertFalse(parse(parser, "1,2"));
+        assertTrue(parse(parser, "4,5,6"));
+        assertEquals(2, store.getRowCount());
+        assertEquals(1, parser.getBlank());
+        assertEquals(3, parser.getMalformed());
+    }
+}
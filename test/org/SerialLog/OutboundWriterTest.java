@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class OutboundWriterTest extends TestCase {
+
+    /** A link whose writes block until it is closed or released. */
+    private static class TestTransport implements Transport {
+        final CountDownLatch mmRelease = new CountDownLatch(1);
+        final StringBuffer mmWritten = new StringBuffer();
+        volatile boolean mmBlock;
+        volatile boolean mmClosed;
+
+        public void connect() {
+        }
+
+        public int read(byte[] buffer, int offset, int length) {
+            return 0;
+        }
+
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            if (mmBlock) {
+                try {
+                    mmRelease.await();
+                } catch (InterruptedException e) {
+                    throw new IOException("interrupted");
+                }
+            }
+            if (mmClosed) throw new IOException("closed");
+            mmWritten.append(new String(buffer, offset, length, "UTF-8"));
+        }
+
+        public void close() {
+            mmClosed = true;
+            mmRelease.countDown();
+        }
+
+        public String getName() {
+            return "test";
+        }
+
+        public String getAddress() {
+            return "test";
+        }
+
+        public Transport reopen() {
+            return new TestTransport();
+        }
+    }
+
+    private ExecutorService mExecutor;
+    private OutboundWriter mWriter;
+    // What the listener was told, in order
+    private final StringBuffer mEvents = new StringBuffer();
+    private final CountDownLatch mClosed = new CountDownLatch(1);
+
+    @Override
+    protected void setUp() {
+        mExecutor = Executors.newCachedThreadPool();
+        mWriter = new OutboundWriter(8, Charset.forName("UTF-8"), mExecutor,
+                new OutboundWriter.Listener() {
+                    public void onWritten(String command, byte[] encoded, int offset,
+                            int length) {
+                        mEvents.append("written ").append(command).append(';');
+                    }
+
+                    public void onWriteFailed(IOException e) {
+                        mEvents.append("failed;");
+                    }
+
+                    public void onClosed() {
+                        mEvents.append("closed;");
+                        mClosed.countDown();
+                    }
+                });
+    }
+
+    @Override
+    protected void tearDown() {
+        mExecutor.shutdownNow();
+    }
+
+    public void testSendsQueuedCommands() throws Exception {
+        TestTransport transport = new TestTransport();
+        Future<Integer> sent = mWriter.submit("hello\n");
+        mWriter.attach(transport);
+        assertEquals(6, sent.get(1, TimeUnit.SECONDS).intValue());
+        assertEquals("hello\n", transport.mmWritten.toString());
+    }
+
+    public void testDetachDoesNotWaitForStuckWrite() throws Exception {
+        TestTransport transport = new TestTransport();
+        transport.mmBlock = true;
+        mWriter.attach(transport);
+        Future<Integer> sent = mWriter.submit("a");
+        Thread.sleep(50);
+        long start = System.nanoTime();
+        mWriter.detach();
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100));
+        transport.close();
+        mWriter.clear(new IOException("connection closed"));
+        try {
+            sent.get(1, TimeUnit.SECONDS);
+            fail("expected the command to fail");
+        } catch (ExecutionException e) {
+            assertEquals("connection closed", e.getCause().getMessage());
+        }
+    }
+
+    public void testFailedWriteSentAgainAfterReattach() throws Exception {
+        TestTransport lost = new TestTransport();
+        lost.mmBlock = true;
+        mWriter.attach(lost);
+        Future<Integer> first = mWriter.submit("first\n");
+        Thread.sleep(50);
+        // The link goes while the write is in progress
+        lost.close();
+        mWriter.detach();
+        Future<Integer> second = mWriter.submit("second\n");
+        assertFalse(first.isDone());
+
+        TestTransport back = new TestTransport();
+        mWriter.attach(back);
+        assertEquals(6, first.get(1, TimeUnit.SECONDS).intValue());
+        assertEquals(7, second.get(1, TimeUnit.SECONDS).intValue());
+        assertEquals("first\nsecond\n", back.mmWritten.toString());
+    }
+
+    public void testClosedAfterWriteInProgress() throws Exception {
+        TestTransport transport = new TestTransport();
+        transport.mmBlock = true;
+        mWriter.attach(transport);
+        Future<Integer> sent = mWriter.submit("a");
+        Thread.sleep(50);
+        mWriter.close();
+        assertFalse(mClosed.await(50, TimeUnit.MILLISECONDS));
+        // The write goes through after all, and is reported before the close
+        transport.mmRelease.countDown();
+        assertTrue(mClosed.await(1, TimeUnit.SECONDS));
+        assertEquals(1, sent.get(1, TimeUnit.SECONDS).intValue());
+        assertEquals("written a;closed;", mEvents.toString());
+
+        // Closed for good
+        mWriter.attach(new TestTransport());
+        mWriter.close();
+        Thread.sleep(50);
+        assertEquals("written a;closed;", mEvents.toString());
+    }
+
+    public void testClosedAtOnceWhenIdle() throws Exception {
+        mWriter.close();
+        assertEquals(0, mClosed.getCount());
+        assertEquals("closed;", mEvents.toString());
+    }
+
+    public void testQueueSizeIgnoresWakeup() throws Exception {
+        mWriter.attach(new TestTransport());
+        mWriter.detach();
+        mWriter.submit("x");
+        assertEquals(1, mWriter.getQueueSize());
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import junit.framework.TestCase;
+
+public class QuantileSketchTest extends TestCase {
+
+    public void testQuantilesWithinAccuracy() {
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 1; i <= 1000; i++) {
+            sketch.add(i);
+        }
+        assertEquals(1000, sketch.getCount());
+        assertEquals(500, sketch.getQuantile(0.5), 500 * sketch.getAccuracy());
+        assertEquals(990, sketch.getQuantile(0.99), 990 * sketch.getAccuracy());
+    }
+
+    public void testNegativeAndZero() {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(-100);
+        sketch.add(0);
+        sketch.add(100);
+        assertEquals(-100, sketch.getQuantile(0), 100 * sketch.getAccuracy());
+        assertEquals(0, sketch.getQuantile(0.5), 0);
+        assertEquals(100, sketch.getQuantile(1), 100 * sketch.getAccuracy());
+    }
+
+    public void testNonFiniteIgnored() {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(Double.NaN);
+        sketch.add(Double.POSITIVE_INFINITY);
+        sketch.add(Double.NEGATIVE_INFINITY);
+        assertEquals(0, sketch.getCount());
+        assertTrue(Double.isNaN(sketch.getQuantile(0.5)));
+    }
+
+    public void testInfinityBinsAtTop() {
+        QuantileSketch sketch = new QuantileSketch();
+        int top = sketch.binOf(QuantileSketch.MAX_MAGNITUDE * 10);
+        assertEquals(top, sketch.binOf(Double.POSITIVE_INFINITY));
+        assertEquals(-top, sketch.binOf(Double.NEGATIVE_INFINITY));
+        assertEquals(top, sketch.binOf(Double.MAX_VALUE));
+        // Counting by those bins must stay within the arrays
+        sketch.addBin(sketch.binOf(Double.POSITIVE_INFINITY));
+        sketch.addBin(sketch.binOf(Double.NEGATIVE_INFINITY));
+        assertEquals(2, sketch.getCount());
+    }
+
+    public void testTinyMagnitudesCountAsZero() {
+        QuantileSketch sketch = new QuantileSketch();
+        assertEquals(0, sketch.binOf(QuantileSketch.MIN_MAGNITUDE / 10));
+        assertEquals(0, sketch.binOf(-Double.MIN_VALUE));
+    }
+
+    public void testParsedInfinityLeftOutOfStats() {
+        ColumnSchema schema = ColumnSchema.parse(",", "dd");
+        NumericParser parser = new NumericParser(new ColumnStore(schema, 16));
+        String[] lines = { "3,inf", "4,-inf", "5,1e999", "6,2" };
+        for (int i = 0; i < lines.length; i++) {
+            byte[] line = lines[i].getBytes();
+            assertTrue(lines[i], parser.parse(line, 0, line.length, i));
+        }
+        StreamStats.Summary summary = new StreamStats.Summary();
+        parser.getStats().summarize(1, StreamStats.SESSION, lines.length, summary);
+        assertEquals(1, summary.count);
+        assertEquals(2, summary.mean, 0);
+        parser.getStats().summarize(0, StreamStats.SESSION, lines.length, summary);
+        assertEquals(4, summary.count);
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.util.Arrays;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+public class SessionExporterTest extends TestCase {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private File mFirst;
+    private File mSecond;
+
+    /** A record to write: direction, tag and payload. */
+    private static Object[] record(int direction, int tag, byte[] data) {
+        return new Object[] { direction, tag, data };
+    }
+
+    private static Object[] record(int direction, int tag, String text) {
+        return record(direction, tag, text.getBytes(UTF_8));
+    }
+
+    /**
+     * Write a segment of plain records, one ms apart from its start.
+     * @param wallMillis  Wall clock time of the start, and of the first record
+     */
+    private static File writeSegment(long wallMillis, long nanos, Object[]... records)
+            throws IOException {
+        File segment = File.createTempFile("capture", CaptureFormat.SEGMENT_SUFFIX);
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(segment));
+        try {
+            out.writeInt(CaptureFormat.SEGMENT_MAGIC);
+            out.writeShort(CaptureFormat.VERSION);
+            out.writeShort(0);
+            out.writeLong(wallMillis);
+            out.writeLong(nanos);
+            for (int i = 0; i < records.length; i++) {
+                byte[] data = (byte[]) records[i][2];
+                out.writeLong(nanos + i * 1000000L);
+                out.writeByte((Integer) records[i][0]);
+                out.writeShort((Integer) records[i][1]);
+                out.writeInt(data.length);
+                out.write(data);
+            }
+        } finally {
+            out.close();
+        }
+        return segment;
+    }
+
+    @Override
+    protected void setUp() throws IOException {
+        mFirst = writeSegment(1000, 5000000,
+                record(CaptureFormat.DIR_IN, 0, "1,2.5"),
+                record(CaptureFormat.DIR_OUT, 0, "say \"hi\""),
+                record(CaptureFormat.DIR_MARKER, 0, "note\nline"),
+                record(CaptureFormat.DIR_META, CaptureFormat.META_TAG, "lines.in=3"),
+                record(CaptureFormat.DIR_IN, 1, "a\\b\t\u0001\u007f"),
+                record(CaptureFormat.DIR_IN, 0, "\u00e9\u20ac\ud83d\ude00"),
+                record(CaptureFormat.DIR_IN, 0, "nan,3"));
+        mSecond = writeSegment(1010, 900000000,
+                record(CaptureFormat.DIR_IN, 0, "4,5"),
+                record(CaptureFormat.DIR_IN, 0, "6,7"));
+    }
+
+    @Override
+    protected void tearDown() {
+        mFirst.delete();
+        mSecond.delete();
+    }
+
+    private static String export(SessionExporter exporter) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(exporter.export(out));
+        return new String(out.toByteArray(), UTF_8);
+    }
+
+    private String export(int format, ColumnSchema columns, long from, long to)
+            throws IOException {
+        SessionExporter exporter = new SessionExporter(new File[] { mFirst, mSecond }, format,
+                UTF_8);
+        exporter.setColumns(columns);
+        if (from != Long.MIN_VALUE || to != Long.MAX_VALUE) exporter.setTimeRange(from, to);
+        return export(exporter);
+    }
+
+    public void testCsv() throws IOException {
+        assertEquals("wall_ms,monotonic_ns,direction,tag,text\n"
+                + "1000,5000000,in,0,\"1,2.5\"\n"
+                + "1001,6000000,out,0,\"say \"\"hi\"\"\"\n"
+                + "1002,7000000,note,0,\"note\nline\"\n"
+                + "1004,9000000,in,1,\"a\\b\t\u0001\u007f\"\n"
+                + "1005,10000000,in,0,\"\u00e9\u20ac\ud83d\ude00\"\n"
+                + "1006,11000000,in,0,\"nan,3\"\n"
+                + "1010,900000000,in,0,\"4,5\"\n"
+                + "1011,901000000,in,0,\"6,7\"\n",
+                export(SessionExporter.FORMAT_CSV, null, Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    public void testCsvColumns() throws IOException {
+        assertEquals("wall_ms,monotonic_ns,direction,tag,text,column_1,column_2\n"
+                + "1000,5000000,in,0,\"1,2.5\",1.0,2.5\n"
+                + "1001,6000000,out,0,\"say \"\"hi\"\"\",,\n"
+                + "1002,7000000,note,0,\"note\nline\",,\n"
+                + "1004,9000000,in,1,\"a\\b\t\u0001\u007f\",,\n"
+                + "1005,10000000,in,0,\"\u00e9\u20ac\ud83d\ude00\",,\n"
+                + "1006,11000000,in,0,\"nan,3\",,3.0\n"
+                + "1010,900000000,in,0,\"4,5\",4.0,5.0\n"
+                + "1011,901000000,in,0,\"6,7\",6.0,7.0\n",
+                export(SessionExporter.FORMAT_CSV, ColumnSchema.parse(",", "dd"),
+                        Long.MIN_VALUE, Long.MAX_VALUE));
+        // A skipped field has no column
+        String csv = export(SessionExporter.FORMAT_CSV, ColumnSchema.parse(",", "-l"),
+                Long.MIN_VALUE, 1001);
+        assertEquals("wall_ms,monotonic_ns,direction,tag,text,column_2\n"
+                + "1000,5000000,in,0,\"1,2.5\",\n", csv);
+    }
+
+    public void testJsonLines() throws IOException {
+        assertEquals("{\"wall_ms\":1000,\"monotonic_ns\":5000000,\"direction\":\"in\","
+                + "\"tag\":0,\"text\":\"1,2.5\"}\n"
+                + "{\"wall_ms\":1001,\"monotonic_ns\":6000000,\"direction\":\"out\","
+                + "\"tag\":0,\"text\":\"say \\\"hi\\\"\"}\n"
+                + "{\"wall_ms\":1002,\"monotonic_ns\":7000000,\"direction\":\"note\","
+                + "\"tag\":0,\"text\":\"note\\nline\"}\n"
+                + "{\"wall_ms\":1004,\"monotonic_ns\":9000000,\"direction\":\"in\","
+                + "\"tag\":1,\"text\":\"a\\\\b\\t\\u0001\\u007f\"}\n"
+                + "{\"wall_ms\":1005,\"monotonic_ns\":10000000,\"direction\":\"in\","
+                + "\"tag\":0,\"text\":\"\u00e9\u20ac\ud83d\ude00\"}\n"
+                + "{\"wall_ms\":1006,\"monotonic_ns\":11000000,\"direction\":\"in\","
+                + "\"tag\":0,\"text\":\"nan,3\"}\n"
+                + "{\"wall_ms\":1010,\"monotonic_ns\":900000000,\"direction\":\"in\","
+                + "\"tag\":0,\"text\":\"4,5\"}\n"
+                + "{\"wall_ms\":1011,\"monotonic_ns\":901000000,\"direction\":\"in\","
+                + "\"tag\":0,\"text\":\"6,7\"}\n",
+                export(SessionExporter.FORMAT_JSON_LINES, null, Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    public void testJsonLinesColumns() throws IOException {
+        // Only received lines are parsed, and numbers JSON cannot hold are null
+        assertEquals("{\"wall_ms\":1000,\"monotonic_ns\":5000000,\"direction\":\"in\","
+                + "\"tag\":0,\"text\":\"1,2.5\",\"values\":[1.0,2.5]}\n"
+                + "{\"wall_ms\":1001,\"monotonic_ns\":6000000,\"direction\":\"out\","
+                + "\"tag\":0,\"text\":\"say \\\"hi\\\"\"}\n"
+                + "{\"wall_ms\":1002,\"monotonic_ns\":7000000,\"direction\":\"note\","
+                + "\"tag\":0,\"text\":\"note\\nline\"}\n"
+                + "{\"wall_ms\":1004,\"monotonic_ns\":9000000,\"direction\":\"in\","
+                + "\"tag\":1,\"text\":\"a\\\\b\\t\\u0001\\u007f\"}\n"
+                + "{\"wall_ms\":1005,\"monotonic_ns\":10000000,\"direction\":\"in\","
+                + "\"tag\":0,\"text\":\"\u00e9\u20ac\ud83d\ude00\"}\n"
+                + "{\"wall_ms\":1006,\"monotonic_ns\":11000000,\"direction\":\"in\","
+                + "\"tag\":0,\"text\":\"nan,3\",\"values\":[null,3.0]}\n"
+                + "{\"wall_ms\":1010,\"monotonic_ns\":900000000,\"direction\":\"in\","
+                + "\"tag\":0,\"text\":\"4,5\",\"values\":[4.0,5.0]}\n",
+                export(SessionExporter.FORMAT_JSON_LINES, ColumnSchema.parse(",", "dd"),
+                        Long.MIN_VALUE, 1011));
+    }
+
+    public void testTimeRangeIsHalfOpen() throws IOException {
+        assertEquals("wall_ms,monotonic_ns,direction,tag,text\n"
+                + "1004,9000000,in,1,\"a\\b\t\u0001\u007f\"\n"
+                + "1005,10000000,in,0,\"\u00e9\u20ac\ud83d\ude00\"\n",
+                export(SessionExporter.FORMAT_CSV, null, 1003, 1006));
+        // Across the segments, skipping the time between them
+        assertEquals("wall_ms,monotonic_ns,direction,tag,text\n"
+                + "1006,11000000,in,0,\"nan,3\"\n"
+                + "1010,900000000,in,0,\"4,5\"\n",
+                export(SessionExporter.FORMAT_CSV, null, 1006, 1011));
+        assertEquals("wall_ms,monotonic_ns,direction,tag,text\n",
+                export(SessionExporter.FORMAT_CSV, null, 1007, 1010));
+        assertEquals("wall_ms,monotonic_ns,direction,tag,text\n"
+                + "1011,901000000,in,0,\"6,7\"\n",
+                export(SessionExporter.FORMAT_CSV, null, 1011, Long.MAX_VALUE));
+    }
+
+    public void testMalformedTextReplaced() throws IOException {
+        File segment = writeSegment(0, 0,
+                record(CaptureFormat.DIR_IN, 0, new byte[] { 'a', (byte) 0xff, 'b' }),
+                record(CaptureFormat.DIR_IN, 0, new byte[] { 0, 'A', (byte) 0xd8, 0, 0, 'B' }));
+        try {
+            SessionExporter exporter = new SessionExporter(new File[] { segment },
+                    SessionExporter.FORMAT_JSON_LINES, UTF_8);
+            String json = export(exporter);
+            assertTrue(json, json.contains("\"text\":\"a\ufffdb\"}"));
+            assertTrue(json, json.contains("\"text\":\"\\u0000A\ufffd\\u0000\\u0000B\"}"));
+        } finally {
+            segment.delete();
+        }
+    }
+
+    /** UTF-16BE that passes surrogates through unchecked, as a device might send them. */
+    private static class RawUtf16 extends Charset {
+        RawUtf16() {
+            super("x-raw-utf-16", null);
+        }
+
+        @Override
+        public boolean contains(Charset charset) {
+            return false;
+        }
+
+        @Override
+        public CharsetDecoder newDecoder() {
+            return new CharsetDecoder(this, 0.5f, 1) {
+                @Override
+                protected CoderResult decodeLoop(ByteBuffer in, CharBuffer out) {
+                    while (in.remaining() >= 2) {
+                        if (!out.hasRemaining()) return CoderResult.OVERFLOW;
+                        out.put((char) (in.get() << 8 | in.get() & 0xff));
+                    }
+                    return CoderResult.UNDERFLOW;
+                }
+            };
+        }
+
+        @Override
+        public CharsetEncoder newEncoder() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    public void testLoneSurrogatesReplaced() throws IOException {
+        File segment = writeSegment(0, 0,
+                record(CaptureFormat.DIR_IN, 0,
+                        new byte[] { 0, 'A', (byte) 0xd8, 0x3d, 0, 'B', (byte) 0xdc, 0 }),
+                record(CaptureFormat.DIR_IN, 0,
+                        new byte[] { (byte) 0xd8, 0x3d, (byte) 0xde, 0, 0, '"' }));
+        try {
+            SessionExporter exporter = new SessionExporter(new File[] { segment },
+                    SessionExporter.FORMAT_JSON_LINES, new RawUtf16());
+            String json = export(exporter);
+            // Never half a code point, which would not be valid UTF-8
+            assertTrue(json, json.contains("\"text\":\"A\ufffdB\ufffd\"}"));
+            assertTrue(json, json.contains("\"text\":\"\ud83d\ude00\\\"\"}"));
+            assertEquals(2, exporter.getRecords());
+        } finally {
+            segment.delete();
+        }
+    }
+
+    public void testLastSession() {
+        File dir = new File("captures");
+        File[] segments = {
+            new File(dir, "capture-20260101-100000-0.cap"),
+            new File(dir, "capture-20260101-100500-1.cap"),
+            new File(dir, "capture-20260102-090000-0.cap"),
+            new File(dir, "capture-20260102-090000-10.cap"),
+            new File(dir, "capture-20260102-090000-9.cap"),
+            new File(dir, "capture-20260102-090000-2.cap"),
+            new File(dir, "capture-20260102-090001-11.cap"),
+        };
+        File[] shuffled = segments.clone();
+        Collections.reverse(Arrays.asList(shuffled));
+        assertEquals(Arrays.asList(
+                new File(dir, "capture-20260102-090000-0.cap"),
+                new File(dir, "capture-20260102-090000-2.cap"),
+                new File(dir, "capture-20260102-090000-9.cap"),
+                new File(dir, "capture-20260102-090000-10.cap"),
+                new File(dir, "capture-20260102-090001-11.cap")),
+                Arrays.asList(SessionExporter.lastSession(shuffled)));
+        assertEquals(Arrays.asList(segments[0], segments[1]),
+                Arrays.asList(SessionExporter.lastSession(
+                        new File[] { segments[1], segments[0] })));
+        assertEquals(0, SessionExporter.lastSession(new File[0]).length);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2026 The SerialLog contributors
+ *
+ * Released under the MIT License; see the LICENSE file at the top of the
+ * project.
+ */
+
+package org.SerialLog;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class TokenIndexTest extends TestCase {
+
+    private static long hash(String word) {
+        byte[] bytes = word.getBytes();
+        return TokenIndex.hash(bytes, 0, bytes.length);
+    }
+
+    private static void add(TokenIndex index, long line, String text) {
+        byte[] bytes = text.getBytes();
+        index.add(line, bytes, 0, bytes.length);
+    }
+
+    public void testEveryWordFoundAcrossRehash() {
+        TokenIndex index = new TokenIndex();
+        // Enough distinct words to grow the table several times
+        int words = 5000;
+        for (int i = 0; i < words; i++) {
+            add(index, i, "w" + i + " common");
+        }
+        assertEquals(words + 1, index.getWordCount());
+        for (int i = 0; i < words; i++) {
+            long[] lines = index.candidates(new long[] { hash("w" + i) });
+            assertTrue("w" + i, Arrays.equals(new long[] { i }, lines));
+        }
+        assertEquals(words, index.candidates(new long[] { hash("common") }).length);
+    }
+
+    public void testEvictedWordsSweptOnRehash() {
+        TokenIndex index = new TokenIndex();
+        int words = 5000;
+        for (int i = 0; i < words; i++) {
+            index.evictBefore(i);
+            add(index, i, "w" + i);
+        }
+        // Evicted words go as the table fills, so it never grows far
+        assertTrue(index.getWordCount() < words);
+        assertEquals(0, index.candidates(new long[] { hash("w0") }).length);
+        long last = words - 1;
+        assertTrue(Arrays.equals(new long[] { last },
+                index.candidates(new long[] { hash("w" + last) })));
+    }
+
+    public void testIntersectionAndCase() {
+        TokenIndex index = new TokenIndex();
+        add(index, 0, "Temp=21 ok");
+        add(index, 1, "temp=22 FAIL");
+        add(index, 2, "humidity fail");
+        assertTrue(Arrays.equals(new long[] { 0, 1 },
+                index.candidates(new long[] { hash("TEMP") })));
+        assertTrue(Arrays.equals(new long[] { 1 },
+                index.candidates(new long[] { hash("temp"), hash("fail") })));
+        assertEquals(0, index.candidates(new long[] { hash("missing") }).length);
+    }
+
+    public void testNumbersAndLongRunsNotIndexed() {
+        byte[] digits = "12345".getBytes();
+        assertFalse(TokenIndex.isIndexed(digits, 0, digits.length));
+        byte[] mixed = "x1".getBytes();
+        assertTrue(TokenIndex.isIndexed(mixed, 0, mixed.length));
+        byte[] tooLong = new byte[TokenIndex.MAX_WORD_LENGTH + 1];
+        Arrays.fill(tooLong, (byte) 'a');
+        assertFalse(TokenIndex.isIndexed(tooLong, 0, tooLong.length));
+    }
+}